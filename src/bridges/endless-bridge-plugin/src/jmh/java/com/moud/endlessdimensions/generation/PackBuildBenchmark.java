@@ -0,0 +1,136 @@
+package com.moud.endlessdimensions.generation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds packs through {@link PackFactory} on the real templates directory, including pack id hashing
+ * and the layout-specific output. Run from the module directory or point {@code endless.templates} at it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PackBuildBenchmark {
+    private static final String TEMPLATES_PROPERTY = "endless.templates";
+    private static final String SAMPLE_TEMPLATE = "features/special/shapes_scatter.yml";
+
+    @Param({"OVERWORLD_OPEN", "END_ISLANDS"})
+    public String shell;
+
+    @Param({"DIRECTORY", "ARCHIVE"})
+    public String layout;
+
+    private Path templatesRoot;
+    private Path packsRoot;
+    private PackFactory factory;
+    private DimensionDefinition definition;
+
+    private String sampleText;
+    private PlaceholderTemplate sampleTemplate;
+    private Map<String, String> sampleValues;
+
+    @Setup
+    public void setup() throws IOException {
+        templatesRoot = Path.of(System.getProperty(TEMPLATES_PROPERTY, "src/main/resources/templates"));
+        if (!Files.isRegularFile(templatesRoot.resolve("pack.yml"))) {
+            throw new IllegalStateException("No pack templates at " + templatesRoot.toAbsolutePath()
+                + "; set -D" + TEMPLATES_PROPERTY);
+        }
+        TemplateCache cache = new TemplateCache(templatesRoot);
+        packsRoot = Files.createTempDirectory("endless-pack-bench-");
+        factory = new PackFactory(cache, packsRoot, PackLayout.valueOf(layout));
+
+        ShellType shellType = ShellType.valueOf(shell);
+        List<BiomeSlot> biomes = new ArrayList<>();
+        List<BiomeTemplateId> pool = shellType.baseBiomePool();
+        Map<Integer, PaletteDefinition> palettes = new LinkedHashMap<>();
+        for (int i = 0; i < Math.min(pool.size(), 4); i++) {
+            biomes.add(new BiomeSlot(pool.get(i), null, i + 1));
+            palettes.put(i + 1, new PaletteDefinition("minecraft:grass_block", "minecraft:dirt",
+                "minecraft:stone", "minecraft:water"));
+        }
+        definition = new DimensionDefinition("endlessdimensions:bench", 1L, shellType, biomes, palettes);
+
+        sampleText = cache.get(SAMPLE_TEMPLATE).text();
+        sampleTemplate = cache.compiled(SAMPLE_TEMPLATE);
+        sampleValues = new LinkedHashMap<>();
+        sampleValues.put("DIM_SHAPES_GRID_WIDTH", "20");
+        sampleValues.put("DIM_SHAPES_GRID_PADDING", "8");
+        sampleValues.put("DIM_SHAPES_AMOUNT", "1");
+        sampleValues.put("DIM_SHAPES_WEIGHT_CUBE", "3");
+        sampleValues.put("DIM_SHAPES_WEIGHT_SPHERE", "2");
+        sampleValues.put("DIM_SHAPES_WEIGHT_DIAMOND", "2");
+        sampleValues.put("DIM_SURFACE_BLOCK", "minecraft:grass_block");
+    }
+
+    // Packs are content-addressed, so the output is removed after every build to keep the next one fresh.
+    @TearDown(Level.Invocation)
+    public void clearPacks() throws IOException {
+        try (var walk = Files.walk(packsRoot)) {
+            for (Path path : walk.sorted(Comparator.reverseOrder()).toList()) {
+                if (!path.equals(packsRoot)) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    @TearDown
+    public void teardown() throws IOException {
+        clearPacks();
+        Files.deleteIfExists(packsRoot);
+    }
+
+    // A build on a warm template cache, as every build after the first one sees it.
+    @Benchmark
+    public Path buildPack() throws IOException {
+        return build(factory);
+    }
+
+    // The first build after startup: templates are read, hashed and compiled before the pack is written.
+    @Benchmark
+    public Path buildPackColdTemplates() throws IOException {
+        return build(new PackFactory(new TemplateCache(templatesRoot), packsRoot, factory.layout()));
+    }
+
+    @Benchmark
+    public String renderSinglePass() {
+        return sampleTemplate.render(sampleValues, Map.of());
+    }
+
+    // The chained String.replace pass PackFactory used before templates were compiled.
+    @Benchmark
+    public String renderChainedReplace() {
+        List<String> keys = new ArrayList<>(sampleValues.keySet());
+        keys.sort(Comparator.comparingInt(String::length).reversed());
+        String content = sampleText;
+        for (String key : keys) {
+            content = content.replace(key, sampleValues.get(key));
+        }
+        return content;
+    }
+
+    private Path build(PackFactory packFactory) throws IOException {
+        return packFactory.layout() == PackLayout.ARCHIVE
+            ? packFactory.createPackArchive(definition)
+            : packFactory.createPack(definition);
+    }
+}
@@ -0,0 +1,68 @@
+package com.moud.endlessdimensions.portal;
+
+import com.moud.endlessdimensions.dimension.DimensionKey;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.instance.block.Block;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Run with the gc profiler (enabled in build.gradle): gc.alloc.rate.norm should stay flat between
+ * portal sizes, since a cold detection only allocates the resulting PortalKey.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PortalDetectorAllocationBenchmark {
+    private static final DimensionKey DIMENSION = new DimensionKey("minecraft:overworld");
+
+    @Param({"2x3", "21x21"})
+    public String shape;
+
+    private GridWorld world;
+    private PortalDetector detector;
+    private Pos start;
+
+    @Setup
+    public void setup() {
+        String[] size = shape.split("x");
+        world = new GridWorld(Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+        detector = new PortalDetector();
+        start = new Pos(world.width / 2, GridWorld.BASE_Y + world.height / 2, 0);
+        // Warm the per-thread scratch buffers and the cache table to their steady-state capacity.
+        detector.detectPortalKey(world, start, DIMENSION);
+    }
+
+    @Benchmark
+    public PortalKey coldFloodFill() {
+        detector.invalidate(DIMENSION, start.blockX(), start.blockY(), start.blockZ());
+        return detector.detectPortalKey(world, start, DIMENSION);
+    }
+
+    private static final class GridWorld implements Block.Getter {
+        private static final int BASE_Y = 64;
+
+        private final Block portal = Block.NETHER_PORTAL.withProperty("axis", "x");
+        private final int width;
+        private final int height;
+
+        private GridWorld(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public Block getBlock(int x, int y, int z, Condition condition) {
+            boolean inside = z == 0 && x >= 0 && x < width && y >= BASE_Y && y < BASE_Y + height;
+            return inside ? portal : Block.AIR;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.moud.endlessdimensions.portal;
+
+import com.moud.endlessdimensions.dimension.DimensionKey;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.instance.block.Block;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PortalDetectorBenchmark {
+    private static final DimensionKey DIMENSION = new DimensionKey("minecraft:overworld");
+
+    @Param({"2x3", "21x21"})
+    public String shape;
+
+    private PortalWorld world;
+    private PortalDetector detector;
+    private Pos start;
+
+    @Setup
+    public void setup() {
+        String[] size = shape.split("x");
+        int width = Integer.parseInt(size[0]);
+        int height = Integer.parseInt(size[1]);
+        world = new PortalWorld();
+        for (int x = 0; x < width; x++) {
+            for (int y = 64; y < 64 + height; y++) {
+                world.portals.add(PackedBlockPos.pack(x, y, 0));
+            }
+        }
+        detector = new PortalDetector();
+        start = new Pos(width / 2, 64 + height / 2, 0);
+        detector.detectPortalKey(world, start, DIMENSION);
+    }
+
+    @Benchmark
+    public PortalKey cold() {
+        detector.invalidateDimension(DIMENSION);
+        return detector.detectPortalKey(world, start, DIMENSION);
+    }
+
+    @Benchmark
+    public PortalKey warm() {
+        return detector.detectPortalKey(world, start, DIMENSION);
+    }
+
+    private static final class PortalWorld implements Block.Getter {
+        private final Block portal = Block.NETHER_PORTAL.withProperty("axis", "x");
+        private final Set<Long> portals = new HashSet<>();
+
+        @Override
+        public Block getBlock(int x, int y, int z, Condition condition) {
+            return portals.contains(PackedBlockPos.pack(x, y, z)) ? portal : Block.AIR;
+        }
+    }
+}
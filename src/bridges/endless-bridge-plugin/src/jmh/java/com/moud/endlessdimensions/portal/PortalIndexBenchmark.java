@@ -0,0 +1,158 @@
+package com.moud.endlessdimensions.portal;
+
+import com.moud.endlessdimensions.dimension.DimensionKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chunk lookups against a populated index, next to the previous boxed map-of-sets layout that copied
+ * each bucket on read, plus re-indexing portals that are already indexed, as every repeat detection does.
+ * With the gc profiler, gc.alloc.rate.norm for the primitive lookups and re-index should be ~0.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PortalIndexBenchmark {
+    private static final DimensionKey DIMENSION = new DimensionKey("minecraft:overworld");
+    private static final int LOOKUPS = 1024;
+
+    @Param({"100000"})
+    public int portals;
+
+    private PortalIndex index;
+    private BoxedPortalIndex boxed;
+    private long[] hitChunks;
+    private long[] missChunks;
+    private PortalKey[] indexedKeys;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        int spread = (int) Math.sqrt(portals) * 64;
+        List<PortalKey> keys = new ArrayList<>(portals);
+        for (int i = 0; i < portals; i++) {
+            int x = random.nextInt(spread * 2) - spread;
+            int y = 64 + random.nextInt(64);
+            int z = random.nextInt(spread * 2) - spread;
+            PortalAxis axis = random.nextBoolean() ? PortalAxis.X : PortalAxis.Z;
+            Vec3i max = axis == PortalAxis.Z ? new Vec3i(x + 1, y + 2, z) : new Vec3i(x, y + 2, z + 1);
+            keys.add(PortalKey.normalize(DIMENSION, axis, new Vec3i(x, y, z), max));
+        }
+        index = new PortalIndex();
+        index.indexAll(keys);
+        boxed = new BoxedPortalIndex();
+        keys.forEach(boxed::index);
+
+        hitChunks = new long[LOOKUPS];
+        missChunks = new long[LOOKUPS];
+        indexedKeys = new PortalKey[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            PortalKey key = keys.get(random.nextInt(keys.size()));
+            indexedKeys[i] = key;
+            hitChunks[i] = PortalIndex.chunkKey(PortalIndex.chunkCoord(key.min().x()),
+                PortalIndex.chunkCoord(key.min().z()));
+            missChunks[i] = PortalIndex.chunkKey(spread + random.nextInt(1 << 16), random.nextInt(1 << 16));
+        }
+    }
+
+    @Benchmark
+    public int primitiveHits() {
+        int found = 0;
+        for (long chunkKey : hitChunks) {
+            List<PortalKey> bucket = index.get(DIMENSION, chunkKey);
+            for (int i = 0; i < bucket.size(); i++) {
+                found += bucket.get(i).min().y();
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int primitiveMisses() {
+        int found = 0;
+        for (long chunkKey : missChunks) {
+            if (index.hasPortals(DIMENSION, chunkKey)) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    // Each call used to copy the portal's whole stripe even when nothing changed.
+    @Benchmark
+    public void primitiveReindexAlreadyIndexed() {
+        for (PortalKey key : indexedKeys) {
+            index.index(key);
+        }
+    }
+
+    @Benchmark
+    public void boxedReindexAlreadyIndexed() {
+        for (PortalKey key : indexedKeys) {
+            boxed.index(key);
+        }
+    }
+
+    @Benchmark
+    public int boxedHits() {
+        int found = 0;
+        for (long chunkKey : hitChunks) {
+            for (PortalKey key : boxed.get(DIMENSION, chunkKey)) {
+                found += key.min().y();
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int boxedMisses() {
+        int found = 0;
+        for (long chunkKey : missChunks) {
+            if (!boxed.get(DIMENSION, chunkKey).isEmpty()) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private static final class BoxedPortalIndex {
+        private final Map<DimensionKey, Map<Long, Set<PortalKey>>> portalsByChunk = new ConcurrentHashMap<>();
+
+        void index(PortalKey portalKey) {
+            Map<Long, Set<PortalKey>> byChunk = portalsByChunk.computeIfAbsent(portalKey.dimension(),
+                ignored -> new ConcurrentHashMap<>());
+            for (int chunkX = PortalIndex.chunkCoord(portalKey.min().x());
+                 chunkX <= PortalIndex.chunkCoord(portalKey.max().x()); chunkX++) {
+                for (int chunkZ = PortalIndex.chunkCoord(portalKey.min().z());
+                     chunkZ <= PortalIndex.chunkCoord(portalKey.max().z()); chunkZ++) {
+                    byChunk.computeIfAbsent(PortalIndex.chunkKey(chunkX, chunkZ),
+                        ignored -> ConcurrentHashMap.newKeySet()).add(portalKey);
+                }
+            }
+        }
+
+        Set<PortalKey> get(DimensionKey dimensionKey, long chunkKey) {
+            Map<Long, Set<PortalKey>> byChunk = portalsByChunk.get(dimensionKey);
+            if (byChunk == null) {
+                return Set.of();
+            }
+            Set<PortalKey> portals = byChunk.get(chunkKey);
+            return portals == null || portals.isEmpty() ? Set.of() : new HashSet<>(portals);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.moud.endlessdimensions.portal;
+
+import com.moud.endlessdimensions.dimension.DimensionKey;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retained heap per binding for a registry of one million links, as the columnar table versus the
+ * record-per-binding map it replaced. Read the retainedBytesPerBinding counter, not the time; every
+ * binding is decoded into fresh records just as loading a segment does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-XX:+UseParallelGC"})
+public class PortalLinkTableFootprintBenchmark {
+    @Param({"1000000"})
+    public int bindings;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long retainedBytesPerBinding;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            retainedBytesPerBinding = 0;
+        }
+    }
+
+    @Benchmark
+    public Object columnarTable(Footprint footprint) {
+        long before = usedHeap();
+        PortalLinkTable table = new PortalLinkTable(new DimensionInterner(), 0);
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < bindings; i++) {
+            PortalKey key = nextKey(random);
+            table.put(key, nextLink(random, key));
+        }
+        footprint.retainedBytesPerBinding = (usedHeap() - before) / bindings;
+        return table;
+    }
+
+    @Benchmark
+    public Object recordMap(Footprint footprint) {
+        long before = usedHeap();
+        Map<PortalKey, PortalLink> map = new ConcurrentHashMap<>();
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < bindings; i++) {
+            PortalKey key = nextKey(random);
+            map.put(key, nextLink(random, key));
+        }
+        footprint.retainedBytesPerBinding = (usedHeap() - before) / bindings;
+        return map;
+    }
+
+    // New DimensionKey instances per binding, as the store's JSON decoding produces them.
+    private static PortalKey nextKey(SplittableRandom random) {
+        int x = random.nextInt(-1_000_000, 1_000_000);
+        int y = random.nextInt(0, 200);
+        int z = random.nextInt(-1_000_000, 1_000_000);
+        return new PortalKey(new DimensionKey("minecraft:overworld"), PortalAxis.X,
+            new Vec3i(x, y, z), new Vec3i(x, y + 2, z + 1));
+    }
+
+    private static PortalLink nextLink(SplittableRandom random, PortalKey source) {
+        DimensionKey destination = new DimensionKey("endless:dimension_" + random.nextInt(16));
+        int x = source.min().x() / 8;
+        int y = source.min().y();
+        int z = source.min().z() / 8;
+        PortalKey portal = new PortalKey(destination, PortalAxis.X, new Vec3i(x, y, z), new Vec3i(x, y + 2, z + 1));
+        return new PortalLink(LinkType.DEFAULT, new UUID(random.nextLong(), random.nextLong()),
+            new DestinationRef(destination, x + 0.5, y, z + 0.5, 0f, 0f, portal));
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -1,5 +1,7 @@
 package com.moud.endlessdimensions;
 
+import com.moud.endlessdimensions.codec.StorageFormat;
+import com.moud.endlessdimensions.portal.PortalRegistry;
 import com.moud.endlessdimensions.portal.PortalRouter;
 import net.minestom.server.extensions.Extension;
 import org.slf4j.Logger;
@@ -30,7 +32,8 @@ public class EndlessBridgeExtension extends Extension {
             bridgePlugin = new EndlessBridgePlugin();
             bridgePlugin.initialize(getDataDirectory());
             if (EndlessBridgePlugin.getDimensionService() != null) {
-                portalRouter = new PortalRouter(getEventNode(), EndlessBridgePlugin.getDimensionService(), getDataDirectory(), logger);
+                portalRouter = new PortalRouter(getEventNode(), EndlessBridgePlugin.getDimensionService(), getDataDirectory(),
+                    PortalRegistry.configuredSaveWindow(), StorageFormat.configured(), logger);
                 portalRouter.register();
             } else {
                 logger.warn("[EndlessBridgeExtension] DimensionService unavailable; portal router not started");
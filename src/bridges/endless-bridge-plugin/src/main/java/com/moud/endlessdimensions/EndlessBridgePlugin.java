@@ -1,13 +1,18 @@
 package com.moud.endlessdimensions;
 
+import com.moud.endlessdimensions.codec.StorageFormat;
 import com.moud.endlessdimensions.generation.DimensionFactory;
 import com.moud.endlessdimensions.generation.DimensionRegistry;
 import com.moud.endlessdimensions.generation.DimensionDefinitionService;
 import com.moud.endlessdimensions.generation.DimensionService;
+import com.moud.endlessdimensions.generation.DimensionWorldStore;
 import com.moud.endlessdimensions.generation.CustomDimensionRegistry;
 import com.moud.endlessdimensions.generation.DimensionKeyResolver;
 import com.moud.endlessdimensions.generation.EasterEggCatalog;
+import com.moud.endlessdimensions.generation.InstanceLifecycleManager;
 import com.moud.endlessdimensions.generation.PackFactory;
+import com.moud.endlessdimensions.generation.PackLayout;
+import com.moud.endlessdimensions.generation.TemplateCache;
 import com.moud.endlessdimensions.generation.TerraIntegration;
 import endless.bridge.registry.BridgeRegistry;
 import org.slf4j.Logger;
@@ -15,6 +20,7 @@ import org.slf4j.LoggerFactory;
 
 import java.nio.file.Path;
 import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
 
 public class EndlessBridgePlugin {
     private static final Logger logger = LoggerFactory.getLogger(EndlessBridgePlugin.class);
@@ -28,6 +34,8 @@ public class EndlessBridgePlugin {
     private static PackFactory packFactory;
     private static TerraIntegration terraIntegration;
     private static DimensionFactory dimensionFactory;
+    private static DimensionWorldStore worldStore;
+    private static InstanceLifecycleManager lifecycleManager;
     private static boolean initialized = false;
 
     static {
@@ -46,7 +54,7 @@ public class EndlessBridgePlugin {
         logger.info("[EndlessBridgePlugin] Initialize called");
         if (context instanceof Path dataDir) {
             Path pluginDataDir = dataDir.resolve("plugin-data");
-            dimensionRegistry = new DimensionRegistry(pluginDataDir, logger);
+            dimensionRegistry = new DimensionRegistry(pluginDataDir, StorageFormat.configured(), logger);
             ensurePackDirectories(pluginDataDir);
             try {
                 dimensionRegistry.loadAll();
@@ -62,10 +70,19 @@ public class EndlessBridgePlugin {
             if (!Files.exists(templatesRoot)) {
                 logger.warn("[EndlessBridgePlugin] Missing templates directory: {}", templatesRoot);
             }
-            packFactory = new PackFactory(templatesRoot, pluginDataDir.resolve("terra-packs"));
+            packFactory = new PackFactory(new TemplateCache(templatesRoot), pluginDataDir.resolve("terra-packs"),
+                PackLayout.configured());
             terraIntegration = new TerraIntegration(logger);
-            dimensionFactory = new DimensionFactory(packFactory, terraIntegration, logger);
-            dimensionService = new DimensionService(definitionService, packFactory, dimensionFactory, logger);
+            worldStore = new DimensionWorldStore(pluginDataDir.resolve("worlds"), logger);
+            dimensionFactory = new DimensionFactory(packFactory, terraIntegration, worldStore, logger);
+            dimensionService = new DimensionService(definitionService, packFactory, dimensionFactory,
+                DimensionService.configuredBuildConcurrency(), logger);
+            worldStore.startAutosave(dimensionService::loadedInstances,
+                DimensionWorldStore.configuredAutosaveInterval());
+            lifecycleManager = new InstanceLifecycleManager(dimensionService,
+                InstanceLifecycleManager.configuredIdleTimeout(), InstanceLifecycleManager.configuredSweepInterval(),
+                logger);
+            lifecycleManager.start();
         } else {
             logger.warn("[EndlessBridgePlugin] No data directory provided; skipping dimension registry load");
         }
@@ -74,9 +91,15 @@ public class EndlessBridgePlugin {
     public void shutdown() {
         try {
             logger.info("[EndlessBridgePlugin] Shutting down...");
+            if (lifecycleManager != null) {
+                lifecycleManager.stop();
+            }
             if (dimensionService != null) {
                 dimensionService.shutdown();
             }
+            if (worldStore != null) {
+                worldStore.close(10, TimeUnit.SECONDS);
+            }
             BridgeRegistry.unregister("Endless");
             initialized = false;
         } catch (Exception e) {
@@ -128,10 +151,19 @@ public class EndlessBridgePlugin {
         return dimensionFactory;
     }
 
+    public static DimensionWorldStore getWorldStore() {
+        return worldStore;
+    }
+
+    public static InstanceLifecycleManager getLifecycleManager() {
+        return lifecycleManager;
+    }
+
     private void ensurePackDirectories(Path pluginDataDir) {
         try {
             java.nio.file.Files.createDirectories(pluginDataDir.resolve("dimensions"));
             java.nio.file.Files.createDirectories(pluginDataDir.resolve("terra-packs"));
+            java.nio.file.Files.createDirectories(pluginDataDir.resolve("worlds"));
         } catch (Exception e) {
             logger.warn("[EndlessBridgePlugin] Failed to ensure plugin data directories", e);
         }
@@ -0,0 +1,113 @@
+package com.moud.endlessdimensions.codec;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Streaming reader for {@link BinaryOutput}. Malformed input fails with an IOException instead of
+ * allocating whatever a corrupt length claims.
+ */
+public final class BinaryInput {
+    private static final int MAX_STRING_BYTES = 1 << 16;
+
+    private final DataInputStream in;
+    private final List<String> strings = new ArrayList<>();
+
+    public BinaryInput(InputStream in) {
+        this.in = new DataInputStream(Objects.requireNonNull(in, "in"));
+    }
+
+    // Returns the version that follows the magic.
+    public int readHeader(byte[] magic) throws IOException {
+        byte[] head = in.readNBytes(magic.length);
+        if (!Arrays.equals(head, magic)) {
+            throw new IOException("Not a binary " + new String(magic, StandardCharsets.US_ASCII) + " stream");
+        }
+        return readVarInt();
+    }
+
+    public int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varint is too long");
+    }
+
+    public int readSignedVarInt() throws IOException {
+        int raw = readVarInt();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    // A count of entries that follow; bounded by the caller's sanity limit.
+    public int readCount(int max) throws IOException {
+        int count = readVarInt();
+        if (count < 0 || count > max) {
+            throw new IOException("Entry count out of range: " + Integer.toUnsignedString(count));
+        }
+        return count;
+    }
+
+    public String readString() throws IOException {
+        int tag = readVarInt();
+        if (tag == BinaryOutput.STRING_NULL) {
+            return null;
+        }
+        if (tag == BinaryOutput.STRING_INLINE) {
+            int length = readVarInt();
+            if (length < 0 || length > MAX_STRING_BYTES) {
+                throw new IOException("String length out of range: " + Integer.toUnsignedString(length));
+            }
+            byte[] bytes = in.readNBytes(length);
+            if (bytes.length != length) {
+                throw new EOFException();
+            }
+            String value = new String(bytes, StandardCharsets.UTF_8);
+            strings.add(value);
+            return value;
+        }
+        int index = tag - BinaryOutput.STRING_REFERENCE_BASE;
+        if (index < 0 || index >= strings.size()) {
+            throw new IOException("Unknown string reference " + index);
+        }
+        return strings.get(index);
+    }
+
+    public String readRequiredString(String field) throws IOException {
+        String value = readString();
+        if (value == null) {
+            throw new IOException("Missing required field: " + field);
+        }
+        return value;
+    }
+
+    public boolean readBoolean() throws IOException {
+        return in.readBoolean();
+    }
+
+    public long readLong() throws IOException {
+        return in.readLong();
+    }
+
+    public float readFloat() throws IOException {
+        return in.readFloat();
+    }
+
+    public double readDouble() throws IOException {
+        return in.readDouble();
+    }
+}
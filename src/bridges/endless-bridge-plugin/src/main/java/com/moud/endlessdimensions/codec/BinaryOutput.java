@@ -0,0 +1,81 @@
+package com.moud.endlessdimensions.codec;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Streaming writer for the binary formats. Integers are LEB128 varints (zigzag for signed values) and
+ * strings go through a table built as the stream is written: the first occurrence is written inline,
+ * later ones as a back-reference. Paired with {@link BinaryInput}.
+ */
+public final class BinaryOutput {
+    static final int STRING_NULL = 0;
+    static final int STRING_INLINE = 1;
+    static final int STRING_REFERENCE_BASE = 2;
+
+    private final DataOutputStream out;
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    public BinaryOutput(OutputStream out) {
+        this.out = new DataOutputStream(Objects.requireNonNull(out, "out"));
+    }
+
+    public void writeHeader(byte[] magic, int version) throws IOException {
+        out.write(magic);
+        writeVarInt(version);
+    }
+
+    public void writeVarInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    public void writeSignedVarInt(int value) throws IOException {
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    public void writeString(String value) throws IOException {
+        if (value == null) {
+            writeVarInt(STRING_NULL);
+            return;
+        }
+        Integer index = strings.get(value);
+        if (index != null) {
+            writeVarInt(STRING_REFERENCE_BASE + index);
+            return;
+        }
+        strings.put(value, strings.size());
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(STRING_INLINE);
+        writeVarInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public void writeBoolean(boolean value) throws IOException {
+        out.writeBoolean(value);
+    }
+
+    public void writeLong(long value) throws IOException {
+        out.writeLong(value);
+    }
+
+    public void writeFloat(float value) throws IOException {
+        out.writeFloat(value);
+    }
+
+    public void writeDouble(double value) throws IOException {
+        out.writeDouble(value);
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+}
@@ -0,0 +1,72 @@
+package com.moud.endlessdimensions.codec;
+
+import com.moud.endlessdimensions.generation.DimensionDefinition;
+import com.moud.endlessdimensions.generation.DimensionDefinitionCodec;
+import com.moud.endlessdimensions.portal.PortalRegistrySnapshot;
+import com.moud.endlessdimensions.portal.PortalRegistryStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Offline converter between the JSON and binary encodings:
+ * {@code StorageConverter <bindings|dimension> <input> <output> <json|binary>}. The input format is
+ * detected, so the same command converts in either direction. Journals are not read; compact the
+ * registry (or stop the server) first so the snapshot is complete.
+ */
+public final class StorageConverter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StorageConverter.class);
+
+    private StorageConverter() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 4) {
+            System.err.println("Usage: StorageConverter <bindings|dimension> <input> <output> <json|binary>");
+            System.exit(2);
+        }
+        try {
+            StorageFormat target = StorageFormat.fromId(args[3]);
+            Path input = Path.of(args[1]);
+            Path output = Path.of(args[2]);
+            switch (args[0]) {
+                case "bindings" -> convertBindings(input, output, target);
+                case "dimension" -> convertDimension(input, output, target);
+                default -> throw new IllegalArgumentException("Unknown kind: " + args[0]);
+            }
+            LOGGER.info("[StorageConverter] Wrote {} ({}, {} bytes)", output, target, Files.size(output));
+        } catch (Exception e) {
+            LOGGER.error("[StorageConverter] Conversion failed", e);
+            System.exit(1);
+        }
+    }
+
+    // The input is read completely before the output is opened, so both may name the same file.
+    public static void convertBindings(Path input, Path output, StorageFormat target) throws IOException {
+        PortalRegistryStore codec = new PortalRegistryStore(input, LOGGER);
+        PortalRegistrySnapshot snapshot;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(input))) {
+            snapshot = codec.read(in);
+        }
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output))) {
+            codec.write(snapshot.links(), snapshot.legacyLinks(), target, out);
+        }
+    }
+
+    public static void convertDimension(Path input, Path output, StorageFormat target) throws IOException {
+        DimensionDefinition definition;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(input))) {
+            definition = DimensionDefinitionCodec.read(in);
+        }
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output))) {
+            DimensionDefinitionCodec.write(definition, target, out);
+        }
+    }
+}
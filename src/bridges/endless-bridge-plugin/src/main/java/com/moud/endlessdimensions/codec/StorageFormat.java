@@ -0,0 +1,52 @@
+package com.moud.endlessdimensions.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * On-disk encodings for persisted registries. Readers accept either and tell them apart by the binary
+ * magic; the configured format only decides what is written.
+ */
+public enum StorageFormat {
+    JSON(".json"),
+    BINARY(".bin");
+
+    public static final String PROPERTY = "endless.storage.format";
+
+    private final String extension;
+
+    StorageFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    public static StorageFormat fromId(String id) {
+        return switch (id.trim().toLowerCase(Locale.ROOT)) {
+            case "json" -> JSON;
+            case "binary", "bin" -> BINARY;
+            default -> throw new IllegalArgumentException("Unknown storage format: " + id);
+        };
+    }
+
+    // -Dendless.storage.format=binary switches new writes to the binary encoding; JSON stays the default.
+    public static StorageFormat configured() {
+        String value = System.getProperty(PROPERTY);
+        return value == null || value.isBlank() ? JSON : fromId(value);
+    }
+
+    // The stream must support mark/reset; it is left positioned at the start either way.
+    public static StorageFormat detect(InputStream in, byte[] magic) throws IOException {
+        if (!in.markSupported()) {
+            throw new IllegalArgumentException("Format detection needs a stream that supports mark");
+        }
+        in.mark(magic.length);
+        byte[] head = in.readNBytes(magic.length);
+        in.reset();
+        return Arrays.equals(head, magic) ? BINARY : JSON;
+    }
+}
@@ -0,0 +1,233 @@
+package com.moud.endlessdimensions.generation;
+
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.coordinate.Point;
+import net.minestom.server.instance.InstanceContainer;
+import net.minestom.server.timer.Task;
+import net.minestom.server.timer.TaskSchedule;
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Loads chunks around a point ahead of arrival, nearest ring first. Requests are issued from one
+ * repeating main-thread task that stops for the tick once its time budget or in-flight cap is spent.
+ */
+public final class ChunkPregenerator {
+    public static final int DEFAULT_RADIUS = 4;
+    public static final Duration DEFAULT_TICK_BUDGET = Duration.ofMillis(2);
+    public static final int DEFAULT_MAX_IN_FLIGHT = 16;
+
+    private final long tickBudgetNanos;
+    private final int maxInFlight;
+    private final Logger logger;
+    // Only touched from the main thread: start() hands jobs over through scheduleNextTick.
+    private final List<Job> jobs = new ArrayList<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // Counts jobs from start() until their completion settles, so stats() can read it from any thread.
+    private final AtomicInteger activeJobs = new AtomicInteger();
+    private final LongAdder completedChunks = new LongAdder();
+    private final LongAdder failedChunks = new LongAdder();
+    private final LongAdder cancelledJobs = new LongAdder();
+
+    private Task tickTask;
+    private int cursor;
+
+    public ChunkPregenerator(Logger logger) {
+        this(DEFAULT_TICK_BUDGET, DEFAULT_MAX_IN_FLIGHT, logger);
+    }
+
+    public ChunkPregenerator(Duration tickBudget, int maxInFlight, Logger logger) {
+        Objects.requireNonNull(tickBudget, "tickBudget");
+        this.logger = Objects.requireNonNull(logger, "logger");
+        if (tickBudget.isNegative() || tickBudget.isZero()) {
+            throw new IllegalArgumentException("tickBudget must be positive");
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        this.tickBudgetNanos = tickBudget.toNanos();
+        this.maxInFlight = maxInFlight;
+    }
+
+    public Job start(InstanceContainer instance, Point center, int radiusChunks) {
+        Objects.requireNonNull(instance, "instance");
+        Objects.requireNonNull(center, "center");
+        if (radiusChunks < 0) {
+            throw new IllegalArgumentException("radiusChunks must not be negative");
+        }
+        Job job = new Job(instance, Math.floorDiv(center.blockX(), 16), Math.floorDiv(center.blockZ(), 16),
+            radiusChunks);
+        activeJobs.incrementAndGet();
+        job.completion.whenComplete((ignored, error) -> activeJobs.decrementAndGet());
+        MinecraftServer.getSchedulerManager().scheduleNextTick(() -> enqueue(job));
+        return job;
+    }
+
+    public void cancelAll(InstanceContainer instance) {
+        Objects.requireNonNull(instance, "instance");
+        MinecraftServer.getSchedulerManager().scheduleNextTick(() -> {
+            for (Job job : List.copyOf(jobs)) {
+                if (job.instance == instance) {
+                    job.cancel();
+                }
+            }
+        });
+    }
+
+    public ChunkPregeneratorStats stats() {
+        return new ChunkPregeneratorStats(activeJobs.get(), inFlight.get(), completedChunks.sum(),
+            failedChunks.sum(), cancelledJobs.sum());
+    }
+
+    public void stop() {
+        if (tickTask != null) {
+            tickTask.cancel();
+            tickTask = null;
+        }
+        for (Job job : List.copyOf(jobs)) {
+            job.cancel();
+        }
+        jobs.clear();
+    }
+
+    private void enqueue(Job job) {
+        if (job.isDone()) {
+            return;
+        }
+        jobs.add(job);
+        if (tickTask == null) {
+            tickTask = MinecraftServer.getSchedulerManager().buildTask(this::tick)
+                .repeat(TaskSchedule.nextTick())
+                .schedule();
+        }
+    }
+
+    // Jobs take turns one chunk at a time so a large radius cannot starve a later, smaller one.
+    private void tick() {
+        long deadline = System.nanoTime() + tickBudgetNanos;
+        jobs.removeIf(Job::isDone);
+        int idle = 0;
+        while (!jobs.isEmpty() && idle < jobs.size() && inFlight.get() < maxInFlight
+            && System.nanoTime() < deadline) {
+            cursor = cursor % jobs.size();
+            Job job = jobs.get(cursor++);
+            idle = job.issueNext() ? 0 : idle + 1;
+        }
+        if (jobs.isEmpty() && tickTask != null) {
+            tickTask.cancel();
+            tickTask = null;
+        }
+    }
+
+    public final class Job {
+        private final InstanceContainer instance;
+        private final int centerX;
+        private final int centerZ;
+        private final int radius;
+        private final int total;
+        private final AtomicInteger remaining;
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+        private final long started = System.nanoTime();
+        private int ring;
+        private int step;
+
+        private Job(InstanceContainer instance, int centerX, int centerZ, int radius) {
+            this.instance = instance;
+            this.centerX = centerX;
+            this.centerZ = centerZ;
+            this.radius = radius;
+            this.total = (2 * radius + 1) * (2 * radius + 1);
+            this.remaining = new AtomicInteger(total);
+        }
+
+        public CompletableFuture<Void> completion() {
+            return completion;
+        }
+
+        public int totalChunks() {
+            return total;
+        }
+
+        public int completedChunks() {
+            return total - remaining.get();
+        }
+
+        public boolean isDone() {
+            return completion.isDone();
+        }
+
+        // Chunks already requested still finish loading; only the rest of the spiral is dropped.
+        public void cancel() {
+            if (completion.cancel(false)) {
+                cancelledJobs.increment();
+                logger.debug("[ChunkPregenerator] Cancelled warm-up at {},{} after {}/{} chunks",
+                    centerX, centerZ, completedChunks(), total);
+            }
+        }
+
+        // Returns false once every chunk of the spiral has been requested.
+        private boolean issueNext() {
+            if (isDone() || ring > radius) {
+                return false;
+            }
+            int chunkX;
+            int chunkZ;
+            if (ring == 0) {
+                chunkX = centerX;
+                chunkZ = centerZ;
+            } else {
+                // Walk the ring's 8 * ring cells: top edge, right edge, bottom edge, left edge.
+                int side = 2 * ring;
+                int edge = step / side;
+                int offset = step % side;
+                switch (edge) {
+                    case 0 -> { chunkX = centerX - ring + offset; chunkZ = centerZ - ring; }
+                    case 1 -> { chunkX = centerX + ring; chunkZ = centerZ - ring + offset; }
+                    case 2 -> { chunkX = centerX + ring - offset; chunkZ = centerZ + ring; }
+                    default -> { chunkX = centerX - ring; chunkZ = centerZ + ring - offset; }
+                }
+            }
+            advance();
+            if (instance.isChunkLoaded(chunkX, chunkZ)) {
+                chunkDone();
+                return true;
+            }
+            inFlight.incrementAndGet();
+            int x = chunkX;
+            int z = chunkZ;
+            instance.loadChunk(chunkX, chunkZ).whenComplete((chunk, error) -> {
+                inFlight.decrementAndGet();
+                if (error != null) {
+                    failedChunks.increment();
+                    logger.debug("[ChunkPregenerator] Failed to load chunk {},{}", x, z, error);
+                }
+                chunkDone();
+            });
+            return true;
+        }
+
+        private void advance() {
+            step++;
+            if (ring == 0 || step >= 8 * ring) {
+                ring++;
+                step = 0;
+            }
+        }
+
+        private void chunkDone() {
+            completedChunks.increment();
+            if (remaining.decrementAndGet() == 0 && completion.complete(null)) {
+                logger.debug("[ChunkPregenerator] Warmed {} chunks around {},{} in {} ms", total, centerX, centerZ,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            }
+        }
+    }
+}
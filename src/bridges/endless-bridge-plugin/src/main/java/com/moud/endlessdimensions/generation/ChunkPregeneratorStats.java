@@ -0,0 +1,8 @@
+package com.moud.endlessdimensions.generation;
+
+public record ChunkPregeneratorStats(int activeJobs,
+                                     int inFlightChunks,
+                                     long completedChunks,
+                                     long failedChunks,
+                                     long cancelledJobs) {
+}
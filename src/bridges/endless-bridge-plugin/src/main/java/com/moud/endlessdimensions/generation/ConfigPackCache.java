@@ -0,0 +1,155 @@
+package com.moud.endlessdimensions.generation;
+
+import com.dfsek.terra.api.config.ConfigPack;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Loaded Terra packs keyed by pack id, evicted least recently used first once their estimated heap exceeds the budget.
+ */
+public final class ConfigPackCache {
+    public static final long DEFAULT_BUDGET_BYTES = 256L << 20;
+
+    private final long budgetBytes;
+    private final Object lock = new Object();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<ConfigPack>> loading = new HashMap<>();
+
+    private long weightBytes;
+    private long hits;
+    private long misses;
+    private long loadFailures;
+    private long evictions;
+    private long evictedWeightBytes;
+
+    public ConfigPackCache(long budgetBytes) {
+        if (budgetBytes < 0) {
+            throw new IllegalArgumentException("budgetBytes must not be negative");
+        }
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Returns the cached pack or loads it, sharing one load between concurrent callers. The pack just loaded
+     * is never evicted by its own insertion, so a pack heavier than the budget still stays cached and the
+     * weight can exceed the budget; {@link ConfigPackCacheStats#overBudgetBytes()} reports by how much.
+     */
+    public ConfigPack get(String packId, Loader loader) throws IOException {
+        Objects.requireNonNull(packId, "packId");
+        Objects.requireNonNull(loader, "loader");
+        CompletableFuture<ConfigPack> pending;
+        CompletableFuture<ConfigPack> created = null;
+        synchronized (lock) {
+            Entry entry = entries.get(packId);
+            if (entry != null) {
+                hits++;
+                return entry.pack();
+            }
+            pending = loading.get(packId);
+            if (pending != null) {
+                // Joining a load already in progress still skips a Terra parse.
+                hits++;
+            } else {
+                misses++;
+                created = new CompletableFuture<>();
+                loading.put(packId, created);
+            }
+        }
+        if (pending != null) {
+            return await(packId, pending);
+        }
+
+        Loaded loaded;
+        try {
+            loaded = loader.load();
+            Objects.requireNonNull(loaded, "loaded");
+        } catch (Throwable t) {
+            // Errors too: a load that never completes its future would hang every later request for this pack.
+            synchronized (lock) {
+                loading.remove(packId, created);
+                loadFailures++;
+            }
+            created.completeExceptionally(t);
+            throw t;
+        }
+        synchronized (lock) {
+            loading.remove(packId, created);
+            entries.put(packId, new Entry(loaded.pack(), loaded.weightBytes()));
+            weightBytes += loaded.weightBytes();
+            evictOverBudget(packId);
+        }
+        created.complete(loaded.pack());
+        return loaded.pack();
+    }
+
+    public ConfigPack getIfPresent(String packId) {
+        synchronized (lock) {
+            Entry entry = entries.get(packId);
+            return entry != null ? entry.pack() : null;
+        }
+    }
+
+    public void invalidate(String packId) {
+        synchronized (lock) {
+            Entry removed = entries.remove(packId);
+            if (removed != null) {
+                weightBytes -= removed.weightBytes();
+            }
+        }
+    }
+
+    public ConfigPackCacheStats stats() {
+        synchronized (lock) {
+            return new ConfigPackCacheStats(entries.size(), weightBytes, budgetBytes,
+                hits, misses, loadFailures, evictions, evictedWeightBytes);
+        }
+    }
+
+    // The newest pack always stays, even when it alone is over budget; it is about to be attached.
+    private void evictOverBudget(String keep) {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (weightBytes > budgetBytes && iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            if (eldest.getKey().equals(keep)) {
+                continue;
+            }
+            iterator.remove();
+            weightBytes -= eldest.getValue().weightBytes();
+            evictions++;
+            evictedWeightBytes += eldest.getValue().weightBytes();
+        }
+    }
+
+    private static ConfigPack await(String packId, CompletableFuture<ConfigPack> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new IOException("Failed to load shared pack " + packId, cause);
+        }
+    }
+
+    @FunctionalInterface
+    public interface Loader {
+        Loaded load() throws IOException;
+    }
+
+    public record Loaded(ConfigPack pack, long weightBytes) {
+        public Loaded {
+            Objects.requireNonNull(pack, "pack");
+            if (weightBytes < 0) {
+                throw new IllegalArgumentException("weightBytes must not be negative");
+            }
+        }
+    }
+
+    private record Entry(ConfigPack pack, long weightBytes) {
+    }
+}
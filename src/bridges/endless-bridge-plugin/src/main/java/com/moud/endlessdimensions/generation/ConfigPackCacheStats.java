@@ -0,0 +1,20 @@
+package com.moud.endlessdimensions.generation;
+
+public record ConfigPackCacheStats(int entries,
+                                   long weightBytes,
+                                   long budgetBytes,
+                                   long hits,
+                                   long misses,
+                                   long loadFailures,
+                                   long evictions,
+                                   long evictedWeightBytes) {
+    // Non-zero only while the most recently loaded pack is kept despite exceeding the budget on its own.
+    public long overBudgetBytes() {
+        return Math.max(0L, weightBytes - budgetBytes);
+    }
+
+    public double hitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+}
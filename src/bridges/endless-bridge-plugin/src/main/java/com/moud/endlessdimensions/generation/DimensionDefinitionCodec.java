@@ -6,7 +6,15 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
-
+import com.moud.endlessdimensions.codec.BinaryInput;
+import com.moud.endlessdimensions.codec.BinaryOutput;
+import com.moud.endlessdimensions.codec.StorageFormat;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -15,6 +23,8 @@ import java.util.Objects;
 
 public final class DimensionDefinitionCodec {
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final byte[] BINARY_MAGIC = {'E', 'D', 'D', 'F'};
+    private static final int MAX_ENTRIES = 4096;
 
     private DimensionDefinitionCodec() {
     }
@@ -114,6 +124,82 @@ public final class DimensionDefinitionCodec {
         return new DimensionDefinition(dimensionId, seed, shellType, biomes, palettes);
     }
 
+    public static void write(DimensionDefinition definition, StorageFormat format, OutputStream out) throws IOException {
+        Objects.requireNonNull(format, "format");
+        if (format == StorageFormat.BINARY) {
+            toBinary(definition, out);
+        } else {
+            out.write(toJson(definition).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    // Accepts either encoding; the binary magic decides which decoder runs.
+    public static DimensionDefinition read(InputStream in) throws IOException {
+        InputStream source = in.markSupported() ? in : new BufferedInputStream(in);
+        if (StorageFormat.detect(source, BINARY_MAGIC) == StorageFormat.BINARY) {
+            return fromBinary(source);
+        }
+        return fromJson(new String(source.readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    // Same fields as the JSON form; block names and template ids are shared through the string table.
+    public static void toBinary(DimensionDefinition definition, OutputStream out) throws IOException {
+        Objects.requireNonNull(definition, "definition");
+        BinaryOutput output = new BinaryOutput(out);
+        output.writeHeader(BINARY_MAGIC, DimensionDefinitionMigrations.CURRENT_VERSION);
+        output.writeString(definition.dimensionId());
+        output.writeLong(definition.seed());
+        output.writeString(definition.shellType().id());
+
+        output.writeVarInt(definition.biomes().size());
+        for (BiomeSlot slot : definition.biomes()) {
+            output.writeString(slot.templateId().name());
+            output.writeString(slot.overlayId() != null ? slot.overlayId().name() : null);
+            output.writeVarInt(slot.paletteSlot());
+        }
+
+        output.writeVarInt(definition.palettes().size());
+        for (Map.Entry<Integer, PaletteDefinition> entry : definition.palettes().entrySet()) {
+            PaletteDefinition palette = entry.getValue();
+            output.writeSignedVarInt(entry.getKey());
+            output.writeString(palette.surfaceBlock());
+            output.writeString(palette.subsurfaceBlock());
+            output.writeString(palette.stoneBlock());
+            output.writeString(palette.liquidBlock());
+        }
+        output.flush();
+    }
+
+    public static DimensionDefinition fromBinary(InputStream in) throws IOException {
+        BinaryInput input = new BinaryInput(Objects.requireNonNull(in, "in"));
+        DimensionDefinitionMigrations.checkBinaryVersion(input.readHeader(BINARY_MAGIC));
+        String dimensionId = input.readRequiredString("dimensionId");
+        long seed = input.readLong();
+        ShellType shellType = ShellType.fromId(input.readRequiredString("shellType"));
+
+        int biomeCount = input.readCount(MAX_ENTRIES);
+        List<BiomeSlot> biomes = new ArrayList<>(biomeCount);
+        for (int i = 0; i < biomeCount; i++) {
+            BiomeTemplateId template = BiomeTemplateId.valueOf(input.readRequiredString("templateId"));
+            String overlayId = input.readString();
+            BiomeTemplateId overlay = overlayId != null ? BiomeTemplateId.valueOf(overlayId) : null;
+            biomes.add(new BiomeSlot(template, overlay, input.readVarInt()));
+        }
+
+        int paletteCount = input.readCount(MAX_ENTRIES);
+        Map<Integer, PaletteDefinition> palettes = new LinkedHashMap<>();
+        for (int i = 0; i < paletteCount; i++) {
+            int slot = input.readSignedVarInt();
+            String surface = input.readRequiredString("surfaceBlock");
+            String subsurface = input.readString();
+            String stone = input.readRequiredString("stoneBlock");
+            String liquid = input.readString();
+            palettes.put(slot, new PaletteDefinition(surface, subsurface, stone, liquid));
+        }
+
+        return new DimensionDefinition(dimensionId, seed, shellType, biomes, palettes);
+    }
+
     private static String requireString(JsonObject obj, String key) {
         JsonElement element = obj.get(key);
         if (element == null || element.isJsonNull()) {
@@ -4,6 +4,8 @@ import com.google.gson.JsonObject;
 
 public final class DimensionDefinitionMigrations {
     public static final int CURRENT_VERSION = 2;
+    // The binary encoding was introduced at this version; older definitions only exist as JSON.
+    public static final int FIRST_BINARY_VERSION = 2;
 
     private DimensionDefinitionMigrations() {
     }
@@ -20,4 +22,13 @@ public final class DimensionDefinitionMigrations {
         migrated.addProperty("version", CURRENT_VERSION);
         return migrated;
     }
+
+    // Binary definitions carry the same version field; until the schema changes again there is nothing
+    // to migrate, so this only rejects versions the decoder has no layout for.
+    public static int checkBinaryVersion(int version) {
+        if (version > CURRENT_VERSION || version < FIRST_BINARY_VERSION) {
+            throw new IllegalArgumentException("Unsupported binary dimension definition version: " + version);
+        }
+        return version;
+    }
 }
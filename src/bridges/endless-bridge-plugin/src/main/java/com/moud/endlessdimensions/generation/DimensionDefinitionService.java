@@ -76,6 +76,19 @@ public class DimensionDefinitionService {
         return definition;
     }
 
+    // Same definition resolveForResolvedKey would return, but nothing is registered; null for an unknown custom key.
+    public DimensionDefinition preview(ResolvedDimensionKey resolved,
+                                       ShellType shellType,
+                                       List<BiomeSlot> biomes,
+                                       Map<Integer, PaletteDefinition> palettes) {
+        Objects.requireNonNull(resolved, "resolved");
+        DimensionDefinition existing = registry.get(resolved.dimensionId());
+        if (existing != null || resolved.type() == ResolvedDimensionType.CUSTOM) {
+            return existing;
+        }
+        return new DimensionDefinition(resolved.dimensionId(), resolved.seed(), shellType, biomes, palettes);
+    }
+
     public String registerCustomDefinition(ShellType shellType,
                                            List<BiomeSlot> biomes,
                                            Map<Integer, PaletteDefinition> palettes) throws IOException {
@@ -3,21 +3,28 @@ package com.moud.endlessdimensions.generation;
 import com.dfsek.terra.api.config.ConfigPack;
 import com.moud.endlessdimensions.dimension.DimensionKeys;
 import net.minestom.server.MinecraftServer;
+import net.minestom.server.instance.ChunkLoader;
 import net.minestom.server.instance.InstanceContainer;
 import net.minestom.server.instance.InstanceManager;
 import org.slf4j.Logger;
 
 import java.io.IOException;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 public class DimensionFactory {
     private final PackFactory packFactory;
     private final TerraIntegration terraIntegration;
+    private final DimensionWorldStore worldStore;
     private final Logger logger;
 
-    public DimensionFactory(PackFactory packFactory, TerraIntegration terraIntegration, Logger logger) {
+    public DimensionFactory(PackFactory packFactory,
+                            TerraIntegration terraIntegration,
+                            DimensionWorldStore worldStore,
+                            Logger logger) {
         this.packFactory = Objects.requireNonNull(packFactory, "packFactory");
         this.terraIntegration = Objects.requireNonNull(terraIntegration, "terraIntegration");
+        this.worldStore = Objects.requireNonNull(worldStore, "worldStore");
         this.logger = Objects.requireNonNull(logger, "logger");
     }
 
@@ -25,15 +32,28 @@ public class DimensionFactory {
         Objects.requireNonNull(definition, "definition");
 
         ConfigPack pack = packFactory.buildPack(definition);
-        return createInstance(definition, pack);
+        return createInstance(definition, pack, openChunkLoader(definition));
     }
 
-    public InstanceContainer createInstance(DimensionDefinition definition, ConfigPack pack) {
+    // Reads the dimension's stored chunks; call off the main thread.
+    public ChunkLoader openChunkLoader(DimensionDefinition definition) throws IOException {
+        Objects.requireNonNull(definition, "definition");
+        return worldStore.openLoader(definition.dimensionId());
+    }
+
+    public CompletableFuture<Void> saveInstance(String dimensionId, InstanceContainer instance) {
+        return worldStore.save(dimensionId, instance);
+    }
+
+    // Stored chunks are served by the loader; Terra only generates chunks the world file does not have yet.
+    public InstanceContainer createInstance(DimensionDefinition definition, ConfigPack pack, ChunkLoader chunkLoader) {
         Objects.requireNonNull(definition, "definition");
         Objects.requireNonNull(pack, "pack");
+        Objects.requireNonNull(chunkLoader, "chunkLoader");
 
         InstanceManager instanceManager = MinecraftServer.getInstanceManager();
-        InstanceContainer instance = instanceManager.createInstanceContainer(definition.shellType().dimensionKey());
+        InstanceContainer instance = instanceManager.createInstanceContainer(definition.shellType().dimensionKey(),
+            chunkLoader);
         instance.setTag(DimensionKeys.DIMENSION_ID_TAG, definition.dimensionId());
         terraIntegration.attachToInstance(instance, pack, definition.seed());
 
@@ -1,26 +1,39 @@
 package com.moud.endlessdimensions.generation;
 
+import com.moud.endlessdimensions.codec.StorageFormat;
 import org.slf4j.Logger;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 public class DimensionRegistry {
     private final Path dimensionsDir;
+    private final StorageFormat format;
     private final Logger logger;
-    private final Map<String, DimensionDefinition> definitions = new LinkedHashMap<>();
+    // Concurrent because pack builders register definitions in parallel. getAll() iterates in dimension id
+    // order; the LinkedHashMap this replaced followed directory listing order, which was not stable either.
+    private final Map<String, DimensionDefinition> definitions = new ConcurrentSkipListMap<>();
 
     public DimensionRegistry(Path dataDir, Logger logger) {
+        this(dataDir, StorageFormat.JSON, logger);
+    }
+
+    // Definitions are read in either format; format only selects how they are written.
+    public DimensionRegistry(Path dataDir, StorageFormat format, Logger logger) {
         Objects.requireNonNull(dataDir, "dataDir");
+        this.format = Objects.requireNonNull(format, "format");
         this.logger = Objects.requireNonNull(logger, "logger");
         this.dimensionsDir = dataDir.resolve("dimensions");
     }
@@ -28,15 +41,22 @@ public class DimensionRegistry {
     public void loadAll() throws IOException {
         ensureDirectory();
         definitions.clear();
-        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dimensionsDir, "*.json")) {
+        // save() writes the configured format before deleting the other one, so a crash in between leaves
+        // both files; the configured one is the newer and wins regardless of listing order.
+        Map<String, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dimensionsDir, "*.{json,bin}")) {
             for (Path file : stream) {
-                try {
-                    String json = Files.readString(file, StandardCharsets.UTF_8);
-                    DimensionDefinition definition = DimensionDefinitionCodec.fromJson(json);
-                    definitions.put(definition.dimensionId(), definition);
-                } catch (Exception e) {
-                    logger.warn("[DimensionRegistry] Failed to load {}", file, e);
-                }
+                String name = file.getFileName().toString();
+                files.merge(name.substring(0, name.lastIndexOf('.')), file,
+                    (existing, candidate) -> name.endsWith(format.extension()) ? candidate : existing);
+            }
+        }
+        for (Path file : files.values()) {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+                DimensionDefinition definition = DimensionDefinitionCodec.read(in);
+                definitions.put(definition.dimensionId(), definition);
+            } catch (Exception e) {
+                logger.warn("[DimensionRegistry] Failed to load {}", file, e);
             }
         }
         logger.info("[DimensionRegistry] Loaded {} dimension definitions", definitions.size());
@@ -45,15 +65,22 @@ public class DimensionRegistry {
     public void save(DimensionDefinition definition) throws IOException {
         Objects.requireNonNull(definition, "definition");
         ensureDirectory();
-        Path target = dimensionsDir.resolve(fileNameFor(definition.dimensionId()));
+        Path target = dimensionsDir.resolve(fileNameFor(definition.dimensionId(), format));
         Path temp = dimensionsDir.resolve(target.getFileName() + ".tmp");
-        String json = DimensionDefinitionCodec.toJson(definition);
-        Files.writeString(temp, json, StandardCharsets.UTF_8);
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            DimensionDefinitionCodec.write(definition, format, out);
+        }
         try {
             Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
         } catch (IOException e) {
             Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
         }
+        // A copy in the other format would be loaded too and could shadow this one.
+        for (StorageFormat other : StorageFormat.values()) {
+            if (other != format) {
+                Files.deleteIfExists(dimensionsDir.resolve(fileNameFor(definition.dimensionId(), other)));
+            }
+        }
     }
 
     public void register(DimensionDefinition definition) throws IOException {
@@ -76,8 +103,9 @@ public class DimensionRegistry {
 
     public void remove(String dimensionId) throws IOException {
         definitions.remove(dimensionId);
-        Path target = dimensionsDir.resolve(fileNameFor(dimensionId));
-        Files.deleteIfExists(target);
+        for (StorageFormat stored : StorageFormat.values()) {
+            Files.deleteIfExists(dimensionsDir.resolve(fileNameFor(dimensionId, stored)));
+        }
     }
 
     private void ensureDirectory() throws IOException {
@@ -86,7 +114,7 @@ public class DimensionRegistry {
         }
     }
 
-    private String fileNameFor(String dimensionId) {
-        return dimensionId.replace(":", "_") + ".json";
+    private String fileNameFor(String dimensionId, StorageFormat storedFormat) {
+        return dimensionId.replace(":", "_") + storedFormat.extension();
     }
 }
@@ -2,44 +2,105 @@ package com.moud.endlessdimensions.generation;
 
 import com.dfsek.terra.api.config.ConfigPack;
 import net.minestom.server.MinecraftServer;
+import net.minestom.server.coordinate.Point;
 import net.minestom.server.coordinate.Pos;
 import net.minestom.server.entity.Player;
+import net.minestom.server.instance.Chunk;
+import net.minestom.server.instance.ChunkLoader;
 import net.minestom.server.instance.InstanceContainer;
-import net.minestom.server.instance.block.Block;
 import net.minestom.server.world.DimensionType;
 import org.slf4j.Logger;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 public class DimensionService {
+    public static final int DEFAULT_BUILD_CONCURRENCY = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+    public static final String BUILD_CONCURRENCY_PROPERTY = "endless.pack.buildConcurrency";
+    private static final long SHUTDOWN_SAVE_TIMEOUT_SECONDS = 30;
+    private static final int SPECULATIVE_QUEUE_CAPACITY = 4;
+
     private final DimensionDefinitionService definitionService;
     private final PackFactory packFactory;
     private final DimensionFactory dimensionFactory;
     private final Logger logger;
-    private final ExecutorService packExecutor;
+    private final ThreadPoolExecutor packExecutor;
+    private final ThreadPoolExecutor speculativeExecutor;
+    private final ExecutorService spawnExecutor;
+    private final ChunkPregenerator pregenerator;
     private final Map<String, CompletableFuture<InstanceContainer>> inFlight = new ConcurrentHashMap<>();
     private final Map<String, InstanceContainer> instances = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastAccessNanos = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Boolean>> unloading = new ConcurrentHashMap<>();
+    private final Set<String> unloaded = ConcurrentHashMap.newKeySet();
+    private final LongAdder startedBuilds = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+    public DimensionService(DimensionDefinitionService definitionService,
+                            PackFactory packFactory,
+                            DimensionFactory dimensionFactory,
+                            Logger logger) {
+        this(definitionService, packFactory, dimensionFactory, DEFAULT_BUILD_CONCURRENCY, logger);
+    }
 
     public DimensionService(DimensionDefinitionService definitionService,
                             PackFactory packFactory,
                             DimensionFactory dimensionFactory,
+                            int buildConcurrency,
                             Logger logger) {
         this.definitionService = Objects.requireNonNull(definitionService, "definitionService");
         this.packFactory = Objects.requireNonNull(packFactory, "packFactory");
         this.dimensionFactory = Objects.requireNonNull(dimensionFactory, "dimensionFactory");
         this.logger = Objects.requireNonNull(logger, "logger");
-        this.packExecutor = Executors.newSingleThreadExecutor(runnable -> {
-            Thread thread = new Thread(runnable, "endless-pack-builder");
-            thread.setDaemon(true);
-            return thread;
-        });
+        if (buildConcurrency < 1) {
+            throw new IllegalArgumentException("buildConcurrency must be at least 1");
+        }
+        // Pack builds are mostly template I/O, so they run on virtual threads; the pool size caps
+        // how many run at once and the FIFO queue serves waiting builds in arrival order.
+        this.packExecutor = new ThreadPoolExecutor(buildConcurrency, buildConcurrency,
+            0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            Thread.ofVirtual().name("endless-pack-builder-", 0).factory());
+        // Speculative builds get a single thread and a short queue that drops the oldest guess.
+        this.speculativeExecutor = new ThreadPoolExecutor(1, 1,
+            0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(SPECULATIVE_QUEUE_CAPACITY),
+            Thread.ofVirtual().name("endless-pack-speculator-", 0).factory(),
+            new ThreadPoolExecutor.DiscardOldestPolicy());
+        this.spawnExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("endless-spawn-resolver-", 0).factory());
+        this.pregenerator = new ChunkPregenerator(logger);
+    }
+
+    // -Dendless.pack.buildConcurrency=N caps concurrent pack builds; unset keeps DEFAULT_BUILD_CONCURRENCY.
+    public static int configuredBuildConcurrency() {
+        String value = System.getProperty(BUILD_CONCURRENCY_PROPERTY);
+        if (value == null || value.isBlank()) {
+            return DEFAULT_BUILD_CONCURRENCY;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + BUILD_CONCURRENCY_PROPERTY + ": " + value, e);
+        }
     }
 
     public CompletableFuture<InstanceContainer> createOrResolveInstance(String bookText,
@@ -56,6 +117,7 @@ public class DimensionService {
         InstanceContainer existing = instances.get(dimensionId);
         if (existing != null) {
             logger.debug("[DimensionService] action=instance_cached dimensionId={}", dimensionId);
+            touch(dimensionId);
             return CompletableFuture.completedFuture(existing);
         }
         CompletableFuture<InstanceContainer> inflightExisting = inFlight.get(dimensionId);
@@ -66,44 +128,43 @@ public class DimensionService {
 
         logger.info("[DimensionService] action=resolve_start dimensionId={} shellType={} type={}",
             dimensionId, shellType, resolved.type());
-        return inFlight.computeIfAbsent(dimensionId, key -> {
-            CompletableFuture<InstanceContainer> future = new CompletableFuture<>();
-            future.whenComplete((instance, error) -> inFlight.remove(key, future));
-
-            packExecutor.execute(() -> {
-                DimensionDefinition definition;
-                try {
-                    definition = definitionService.resolveForResolvedKey(resolved, shellType, biomes, palettes);
-                } catch (IOException e) {
-                    future.completeExceptionally(e);
-                    return;
-                }
-
-                ConfigPack pack;
-                try {
-                    logger.debug("[DimensionService] action=pack_build_start dimensionId={}", definition.dimensionId());
-                    pack = packFactory.buildPack(definition);
-                    logger.debug("[DimensionService] action=pack_build_complete dimensionId={}", definition.dimensionId());
-                } catch (IOException e) {
-                    logger.error("[DimensionService] Failed to build pack for {}", definition.dimensionId(), e);
-                    future.completeExceptionally(e);
-                    return;
-                }
-
-                // Pack build happens off-thread; instance attach happens on the main thread.
-                MinecraftServer.getSchedulerManager().scheduleNextTick(() -> {
-                    try {
-                        InstanceContainer instance = dimensionFactory.createInstance(definition, pack);
-                        instances.putIfAbsent(dimensionId, instance);
-                        future.complete(instance);
-                    } catch (Exception e) {
-                        logger.error("[DimensionService] Failed to create instance for {}", definition.dimensionId(), e);
-                        future.completeExceptionally(e);
-                    }
-                });
-            });
+        return submitBuild(dimensionId,
+            () -> definitionService.resolveForResolvedKey(resolved, shellType, biomes, palettes));
+    }
 
-            return future;
+    // Builds the pack a book would resolve to without registering a definition or creating an instance.
+    // The pack lands in the pack cache, so a later createOrResolveInstance either finds it or joins the
+    // load; a guess that is never used is simply evicted like any other cold pack.
+    public void prewarmPack(String bookText,
+                            ShellType shellType,
+                            List<BiomeSlot> biomes,
+                            Map<Integer, PaletteDefinition> palettes) {
+        Objects.requireNonNull(bookText, "bookText");
+        ResolvedDimensionKey resolved = definitionService.resolveKey(bookText);
+        String dimensionId = resolved.dimensionId();
+        if (instances.containsKey(dimensionId) || inFlight.containsKey(dimensionId)) {
+            return;
+        }
+        DimensionDefinition definition = definitionService.preview(resolved, shellType, biomes, palettes);
+        if (definition == null) {
+            return;
+        }
+        speculativeExecutor.execute(() -> {
+            // Real builds come first: a guess is dropped rather than compete with a queued build.
+            if (!packExecutor.getQueue().isEmpty() || inFlight.containsKey(dimensionId)
+                || packFactory.isPackCached(definition)) {
+                logger.debug("[DimensionService] action=pack_prewarm_skipped dimensionId={}", dimensionId);
+                return;
+            }
+            long started = System.nanoTime();
+            try {
+                packFactory.buildPack(definition);
+                logger.debug("[DimensionService] action=pack_prewarm_complete dimensionId={} packId={} elapsedMs={}",
+                    dimensionId, packFactory.packIdFor(definition),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            } catch (IOException | RuntimeException e) {
+                logger.debug("[DimensionService] action=pack_prewarm_failed dimensionId={}", dimensionId, e);
+            }
         });
     }
 
@@ -112,6 +173,7 @@ public class DimensionService {
         InstanceContainer existing = instances.get(dimensionId);
         if (existing != null) {
             logger.debug("[DimensionService] action=instance_cached dimensionId={}", dimensionId);
+            touch(dimensionId);
             return CompletableFuture.completedFuture(existing);
         }
         CompletableFuture<InstanceContainer> inflightExisting = inFlight.get(dimensionId);
@@ -170,11 +232,22 @@ public class DimensionService {
         scheduleTeleportExact(instance, player, spawnPosition);
     }
 
+    // Warms chunks around a point of a resolved instance, e.g. a destination portal, before anyone arrives.
+    public ChunkPregenerator.Job pregenerate(InstanceContainer instance, Point center, int radiusChunks) {
+        touchInstance(instance);
+        return pregenerator.start(instance, center, radiusChunks);
+    }
+
+    public ChunkPregeneratorStats pregenerationStats() {
+        return pregenerator.stats();
+    }
+
     private CompletableFuture<InstanceContainer> createOrResolveInstance(DimensionDefinition definition) {
         String dimensionId = definition.dimensionId();
         InstanceContainer existing = instances.get(dimensionId);
         if (existing != null) {
             logger.debug("[DimensionService] action=instance_cached dimensionId={}", dimensionId);
+            touch(dimensionId);
             return CompletableFuture.completedFuture(existing);
         }
         CompletableFuture<InstanceContainer> inflightExisting = inFlight.get(dimensionId);
@@ -184,38 +257,181 @@ public class DimensionService {
         }
         logger.info("[DimensionService] action=resolve_start dimensionId={} shellType={}", dimensionId,
             definition.shellType());
+        return submitBuild(dimensionId, () -> definition);
+    }
+
+    public PackBuildStats buildStats() {
+        return new PackBuildStats(packExecutor.getQueue().size(), packExecutor.getActiveCount(),
+            startedBuilds.sum(), totalWaitNanos.sum(), maxWaitNanos.get());
+    }
+
+    private CompletableFuture<InstanceContainer> submitBuild(String dimensionId, DefinitionSource definitionSource) {
         return inFlight.computeIfAbsent(dimensionId, key -> {
             CompletableFuture<InstanceContainer> future = new CompletableFuture<>();
             future.whenComplete((instance, error) -> inFlight.remove(key, future));
 
+            long queuedAt = System.nanoTime();
             packExecutor.execute(() -> {
+                recordBuildStart(dimensionId, System.nanoTime() - queuedAt);
+                // Anything thrown here would escape the task and leave the future, and the inFlight entry
+                // every later lookup joins, incomplete forever.
+                DimensionDefinition definition;
+                try {
+                    definition = definitionSource.resolve();
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                    return;
+                }
+
                 ConfigPack pack;
                 try {
                     logger.debug("[DimensionService] action=pack_build_start dimensionId={}", definition.dimensionId());
                     pack = packFactory.buildPack(definition);
-                    logger.debug("[DimensionService] action=pack_build_complete dimensionId={}", definition.dimensionId());
-                } catch (IOException e) {
+                    logger.debug("[DimensionService] action=pack_build_complete dimensionId={} packId={}",
+                        definition.dimensionId(), packFactory.packIdFor(definition));
+                } catch (Throwable e) {
                     logger.error("[DimensionService] Failed to build pack for {}", definition.dimensionId(), e);
                     future.completeExceptionally(e);
                     return;
                 }
 
-                MinecraftServer.getSchedulerManager().scheduleNextTick(() -> {
-                    try {
-                        InstanceContainer instance = dimensionFactory.createInstance(definition, pack);
-                        instances.putIfAbsent(dimensionId, instance);
-                        future.complete(instance);
-                    } catch (Exception e) {
-                        logger.error("[DimensionService] Failed to create instance for {}", definition.dimensionId(), e);
-                        future.completeExceptionally(e);
-                    }
-                });
+                // Pack build and world load happen off-thread; instance attach happens on the main thread.
+                openAndAttach(dimensionId, definition, pack, future);
             });
 
             return future;
         });
     }
 
+    private void openAndAttach(String dimensionId,
+                               DimensionDefinition definition,
+                               ConfigPack pack,
+                               CompletableFuture<InstanceContainer> future) {
+        // A new instance must not read the world file before the previous one has finished saving it.
+        CompletableFuture<Boolean> pendingUnload = unloading.get(dimensionId);
+        if (pendingUnload != null) {
+            pendingUnload.whenCompleteAsync((ignored, error) -> openAndAttach(dimensionId, definition, pack, future),
+                packExecutor);
+            return;
+        }
+        ChunkLoader chunkLoader;
+        try {
+            chunkLoader = dimensionFactory.openChunkLoader(definition);
+        } catch (Throwable e) {
+            logger.error("[DimensionService] Failed to open world for {}", dimensionId, e);
+            future.completeExceptionally(e);
+            return;
+        }
+        MinecraftServer.getSchedulerManager().scheduleNextTick(() -> {
+            if (unloading.containsKey(dimensionId)) {
+                openAndAttach(dimensionId, definition, pack, future);
+                return;
+            }
+            try {
+                InstanceContainer retained = instances.get(dimensionId);
+                if (retained != null) {
+                    // The unload was abandoned, so the previous instance is still usable.
+                    touch(dimensionId);
+                    future.complete(retained);
+                    return;
+                }
+                InstanceContainer instance = dimensionFactory.createInstance(definition, pack, chunkLoader);
+                instances.putIfAbsent(dimensionId, instance);
+                touch(dimensionId);
+                if (unloaded.remove(dimensionId)) {
+                    logger.info("[DimensionService] action=instance_rehydrated dimensionId={}", dimensionId);
+                }
+                future.complete(instance);
+            } catch (Throwable e) {
+                logger.error("[DimensionService] Failed to create instance for {}", definition.dimensionId(), e);
+                future.completeExceptionally(e);
+            }
+        });
+    }
+
+    public Map<String, InstanceContainer> loadedInstances() {
+        return Collections.unmodifiableMap(instances);
+    }
+
+    public long lastAccessNanos(String dimensionId) {
+        return lastAccessNanos.getOrDefault(dimensionId, Long.MIN_VALUE);
+    }
+
+    // Runs on the main thread. Chunks are saved first; the instance is only unregistered if the save
+    // succeeded and nobody arrived in the meantime, otherwise it stays loaded for the next sweep.
+    public CompletableFuture<Boolean> unloadInstance(String dimensionId, InstanceContainer instance) {
+        Objects.requireNonNull(dimensionId, "dimensionId");
+        Objects.requireNonNull(instance, "instance");
+        if (!instance.getPlayers().isEmpty() || !instances.remove(dimensionId, instance)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        pregenerator.cancelAll(instance);
+        CompletableFuture<Boolean> done = new CompletableFuture<>();
+        unloading.put(dimensionId, done);
+        long started = System.nanoTime();
+        logger.info("[DimensionService] action=instance_unload_start dimensionId={}", dimensionId);
+        dimensionFactory.saveInstance(dimensionId, instance).whenComplete((ignored, error) -> {
+            if (error != null) {
+                logger.warn("[DimensionService] Failed to save chunks for {}", dimensionId, error);
+            }
+            // Global next-tick tasks run at tick start, before the dispatcher ticks instances, so the
+            // instance is not mid-tick while it is unregistered and its chunks are dropped.
+            MinecraftServer.getSchedulerManager().scheduleNextTick(() ->
+                finishUnload(dimensionId, instance, error == null, started, done));
+        });
+        return done;
+    }
+
+    private void finishUnload(String dimensionId,
+                              InstanceContainer instance,
+                              boolean saved,
+                              long started,
+                              CompletableFuture<Boolean> done) {
+        boolean unregistered = false;
+        try {
+            if (saved && instance.getPlayers().isEmpty()) {
+                MinecraftServer.getInstanceManager().unregisterInstance(instance);
+                lastAccessNanos.remove(dimensionId);
+                unloaded.add(dimensionId);
+                unregistered = true;
+                logger.info("[DimensionService] action=instance_unloaded dimensionId={} elapsedMs={}",
+                    dimensionId, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            }
+        } catch (Exception e) {
+            logger.error("[DimensionService] Failed to unregister instance for {}", dimensionId, e);
+        } finally {
+            if (!unregistered) {
+                instances.putIfAbsent(dimensionId, instance);
+                logger.info("[DimensionService] action=instance_unload_aborted dimensionId={} saved={}",
+                    dimensionId, saved);
+            }
+            unloading.remove(dimensionId, done);
+            done.complete(unregistered);
+        }
+    }
+
+    private void touch(String dimensionId) {
+        lastAccessNanos.put(dimensionId, System.nanoTime());
+    }
+
+    private void touchInstance(InstanceContainer instance) {
+        instances.forEach((dimensionId, loaded) -> {
+            if (loaded == instance) {
+                touch(dimensionId);
+            }
+        });
+    }
+
+    private void recordBuildStart(String dimensionId, long waitNanos) {
+        startedBuilds.increment();
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulate(waitNanos);
+        logger.debug("[DimensionService] action=pack_build_dequeued dimensionId={} waitMs={} queueDepth={}",
+            dimensionId, TimeUnit.NANOSECONDS.toMillis(waitNanos), packExecutor.getQueue().size());
+    }
+
+    // The column is copied on the tick thread and searched on spawnExecutor; only the teleport
+    // itself goes back to the tick.
     private void scheduleTeleport(InstanceContainer instance, Player player, Pos targetPosition) {
         MinecraftServer.getSchedulerManager().scheduleNextTick(() -> {
             instance.loadChunk(targetPosition).whenComplete((chunk, error) -> {
@@ -223,61 +439,64 @@ public class DimensionService {
                     logger.warn("[DimensionService] Failed to load target chunk for {}", player.getUsername(), error);
                 }
                 MinecraftServer.getSchedulerManager().scheduleNextTick(() -> {
-                    Pos safePosition = resolveSafeSpawn(instance, targetPosition);
-                    try {
-                        player.setInstance(instance, safePosition);
-                    } catch (Exception e) {
-                        logger.error("[DimensionService] Failed to teleport player {} to {}",
-                            player.getUsername(), instance, e);
+                    DimensionType dimensionType = instance.getCachedDimensionType();
+                    int minY = dimensionType != null ? dimensionType.minY() : DimensionType.VANILLA_MIN_Y;
+                    int maxY = dimensionType != null ? dimensionType.maxY() : DimensionType.VANILLA_MAX_Y;
+                    Chunk loaded = instance.getChunkAt(targetPosition);
+                    if (loaded == null) {
+                        teleportNow(instance, player,
+                            SafeSpawnResolver.resolveUnloaded(targetPosition, minY, maxY));
+                        return;
                     }
+                    SafeSpawnResolver.ColumnSnapshot column =
+                        SafeSpawnResolver.snapshot(loaded, targetPosition, minY, maxY);
+                    CompletableFuture.supplyAsync(() -> SafeSpawnResolver.resolve(column, targetPosition, minY, maxY),
+                            spawnExecutor)
+                        .whenComplete((safePosition, resolveError) -> {
+                            if (resolveError != null) {
+                                logger.warn("[DimensionService] Failed to resolve safe spawn for {}",
+                                    player.getUsername(), resolveError);
+                            }
+                            Pos destination = safePosition != null
+                                ? safePosition
+                                : SafeSpawnResolver.resolveUnloaded(targetPosition, minY, maxY);
+                            MinecraftServer.getSchedulerManager().scheduleNextTick(() ->
+                                teleportNow(instance, player, destination));
+                        });
                 });
             });
         });
     }
 
+    private void teleportNow(InstanceContainer instance, Player player, Pos position) {
+        try {
+            player.setInstance(instance, position);
+        } catch (Exception e) {
+            logger.error("[DimensionService] Failed to teleport player {} to {}",
+                player.getUsername(), instance, e);
+        }
+    }
+
     private void scheduleTeleportExact(InstanceContainer instance, Player player, Pos targetPosition) {
         MinecraftServer.getSchedulerManager().scheduleNextTick(() -> {
             instance.loadChunk(targetPosition).whenComplete((chunk, error) -> {
                 if (error != null) {
                     logger.warn("[DimensionService] Failed to load target chunk for {}", player.getUsername(), error);
                 }
-                MinecraftServer.getSchedulerManager().scheduleNextTick(() -> {
-                    try {
-                        player.setInstance(instance, targetPosition);
-                    } catch (Exception e) {
-                        logger.error("[DimensionService] Failed to teleport player {} to {}",
-                            player.getUsername(), instance, e);
-                    }
-                });
+                MinecraftServer.getSchedulerManager().scheduleNextTick(() ->
+                    teleportNow(instance, player, targetPosition));
             });
         });
     }
 
-    private Pos resolveSafeSpawn(InstanceContainer instance, Pos targetPosition) {
-        DimensionType dimensionType = instance.getCachedDimensionType();
-        int minY = dimensionType != null ? dimensionType.minY() : DimensionType.VANILLA_MIN_Y;
-        int maxY = dimensionType != null ? dimensionType.maxY() : DimensionType.VANILLA_MAX_Y;
-        int blockX = targetPosition.blockX();
-        int blockZ = targetPosition.blockZ();
-        int startY = Math.min(maxY - 2, Math.max(minY + 1, (int) Math.round(targetPosition.y())));
-
-        for (int y = startY; y >= minY + 1; y--) {
-            Block floor = instance.getBlock(blockX, y - 1, blockZ);
-            Block body = instance.getBlock(blockX, y, blockZ);
-            Block head = instance.getBlock(blockX, y + 1, blockZ);
-            if (floor.isSolid() && body.isAir() && head.isAir()) {
-                return new Pos(targetPosition.x(), y, targetPosition.z());
-            }
-        }
-
-        double fallbackY = Math.max(minY + 1, Math.min(targetPosition.y(), maxY - 2));
-        return new Pos(targetPosition.x(), fallbackY, targetPosition.z());
-    }
-
     public void shutdown() {
+        pregenerator.stop();
+        speculativeExecutor.shutdownNow();
+        spawnExecutor.shutdown();
+        saveLoadedInstances();
         packExecutor.shutdown();
         try {
-            if (!packExecutor.awaitTermination(2, java.util.concurrent.TimeUnit.SECONDS)) {
+            if (!packExecutor.awaitTermination(2, TimeUnit.SECONDS)) {
                 packExecutor.shutdownNow();
             }
         } catch (InterruptedException e) {
@@ -285,4 +504,26 @@ public class DimensionService {
             packExecutor.shutdownNow();
         }
     }
+
+    private void saveLoadedInstances() {
+        List<CompletableFuture<Void>> saves = new ArrayList<>();
+        instances.forEach((dimensionId, instance) -> saves.add(dimensionFactory.saveInstance(dimensionId, instance)));
+        if (saves.isEmpty()) {
+            return;
+        }
+        try {
+            CompletableFuture.allOf(saves.toArray(CompletableFuture[]::new))
+                .get(SHUTDOWN_SAVE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            logger.info("[DimensionService] action=worlds_saved count={}", saves.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            logger.warn("[DimensionService] Failed to save all dimension worlds on shutdown", e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface DefinitionSource {
+        DimensionDefinition resolve() throws IOException;
+    }
 }
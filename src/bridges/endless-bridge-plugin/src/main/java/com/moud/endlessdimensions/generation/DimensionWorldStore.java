@@ -0,0 +1,178 @@
+package com.moud.endlessdimensions.generation;
+
+import net.hollowcube.polar.PolarLoader;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.instance.InstanceContainer;
+import net.minestom.server.timer.Task;
+import net.minestom.server.timer.TaskSchedule;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * One Polar world file per generated dimension, under plugin-data/worlds/<dimensionId>.polar.
+ */
+public final class DimensionWorldStore {
+    public static final Duration DEFAULT_AUTOSAVE_INTERVAL = Duration.ofMinutes(5);
+    public static final String AUTOSAVE_INTERVAL_PROPERTY = "endless.world.autosaveIntervalMs";
+    private static final String EXTENSION = ".polar";
+
+    private final Path worldsRoot;
+    private final Logger logger;
+    private final ExecutorService saveExecutor;
+    // Polar rewrites the whole file on every save, so saves of one dimension are chained, never overlapped.
+    private final Map<String, CompletableFuture<Void>> lastSave = new ConcurrentHashMap<>();
+
+    private Task autosaveTask;
+
+    public DimensionWorldStore(Path worldsRoot, Logger logger) {
+        this.worldsRoot = Objects.requireNonNull(worldsRoot, "worldsRoot");
+        this.logger = Objects.requireNonNull(logger, "logger");
+        this.saveExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("endless-world-saver-", 0).factory());
+    }
+
+    // -Dendless.world.autosaveIntervalMs=N saves loaded dimensions every N ms; 0 disables autosave.
+    public static Duration configuredAutosaveInterval() {
+        String value = System.getProperty(AUTOSAVE_INTERVAL_PROPERTY);
+        if (value == null || value.isBlank()) {
+            return DEFAULT_AUTOSAVE_INTERVAL;
+        }
+        try {
+            return Duration.ofMillis(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + AUTOSAVE_INTERVAL_PROPERTY + ": " + value, e);
+        }
+    }
+
+    public Path worldFile(String dimensionId) {
+        Objects.requireNonNull(dimensionId, "dimensionId");
+        return worldsRoot.resolve(sanitize(dimensionId) + EXTENSION);
+    }
+
+    public boolean exists(String dimensionId) {
+        return Files.exists(worldFile(dimensionId));
+    }
+
+    // Reads the stored world eagerly, so a damaged file fails before an instance is registered.
+    public PolarLoader openLoader(String dimensionId) throws IOException {
+        Path file = worldFile(dimensionId);
+        Files.createDirectories(worldsRoot);
+        try {
+            return new PolarLoader(file);
+        } catch (Exception e) {
+            throw new IOException("Failed to open Polar world " + file, e);
+        }
+    }
+
+    public CompletableFuture<Void> save(String dimensionId, InstanceContainer instance) {
+        Objects.requireNonNull(dimensionId, "dimensionId");
+        Objects.requireNonNull(instance, "instance");
+        return lastSave.compute(dimensionId, (key, previous) -> {
+            CompletableFuture<Void> after = previous != null
+                ? previous.exceptionally(error -> null)
+                : CompletableFuture.completedFuture(null);
+            CompletableFuture<Void> save = after.thenCompose(ignored -> saveChunks(key, instance));
+            save.whenComplete((ignored, error) -> lastSave.remove(key, save));
+            return save;
+        });
+    }
+
+    // Saves every loaded dimension on the interval; a dimension whose previous save is still running is skipped.
+    public void startAutosave(Supplier<Map<String, InstanceContainer>> loadedInstances, Duration interval) {
+        Objects.requireNonNull(loadedInstances, "loadedInstances");
+        Objects.requireNonNull(interval, "interval");
+        if (interval.isNegative()) {
+            throw new IllegalArgumentException("interval must not be negative");
+        }
+        if (autosaveTask != null || interval.isZero()) {
+            return;
+        }
+        autosaveTask = MinecraftServer.getSchedulerManager().buildTask(() -> autosave(loadedInstances.get()))
+            .delay(TaskSchedule.duration(interval))
+            .repeat(TaskSchedule.duration(interval))
+            .schedule();
+        logger.info("[DimensionWorldStore] Autosaving loaded dimensions every {} s", interval.toSeconds());
+    }
+
+    public void close(long timeout, TimeUnit unit) {
+        if (autosaveTask != null) {
+            autosaveTask.cancel();
+            autosaveTask = null;
+        }
+        try {
+            CompletableFuture.allOf(lastSave.values().toArray(CompletableFuture[]::new)).get(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Failures are reported to whoever requested the save.
+        } catch (TimeoutException e) {
+            logger.warn("[DimensionWorldStore] World saves still running after {} {}", timeout, unit);
+        }
+        saveExecutor.shutdown();
+    }
+
+    private void autosave(Map<String, InstanceContainer> loadedInstances) {
+        loadedInstances.forEach((dimensionId, instance) -> {
+            if (!lastSave.containsKey(dimensionId)) {
+                save(dimensionId, instance).whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        logger.warn("[DimensionWorldStore] Autosave failed for {}", dimensionId, error);
+                    }
+                });
+            }
+        });
+    }
+
+    // Chunks are written from the instance's own tick so the loader never reads them while the instance mutates
+    // them. An instance that no longer ticks would never run the task, and has no tick to race, so it saves here.
+    private CompletableFuture<Void> saveChunks(String dimensionId, InstanceContainer instance) {
+        CompletableFuture<Void> saved = new CompletableFuture<>();
+        Runnable task = () -> {
+            long started = System.nanoTime();
+            try {
+                instance.saveChunksToStorage().whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        saved.completeExceptionally(error);
+                        return;
+                    }
+                    logger.debug("[DimensionWorldStore] Saved {} in {} ms", dimensionId,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+                    saved.complete(null);
+                });
+            } catch (RuntimeException e) {
+                saved.completeExceptionally(e);
+            }
+        };
+        if (instance.isRegistered() && !MinecraftServer.isStopping()) {
+            instance.scheduleNextTick(ignored -> task.run());
+        } else {
+            saveExecutor.execute(task);
+        }
+        return saved;
+    }
+
+    private static String sanitize(String dimensionId) {
+        StringBuilder builder = new StringBuilder(dimensionId.length());
+        for (int i = 0; i < dimensionId.length(); i++) {
+            char c = dimensionId.charAt(i);
+            boolean safe = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '_' || c == '.';
+            builder.append(safe ? c : '_');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,114 @@
+package com.moud.endlessdimensions.generation;
+
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.instance.InstanceContainer;
+import net.minestom.server.timer.Task;
+import net.minestom.server.timer.TaskSchedule;
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Unloads generated and custom dimension instances once they have been empty for the idle timeout.
+ * Unloaded dimensions are rebuilt on their next lookup through {@link DimensionService}.
+ */
+public final class InstanceLifecycleManager {
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(5);
+    public static final Duration DEFAULT_SWEEP_INTERVAL = Duration.ofSeconds(30);
+    public static final String IDLE_TIMEOUT_PROPERTY = "endless.instance.idleTimeoutMs";
+    public static final String SWEEP_INTERVAL_PROPERTY = "endless.instance.sweepIntervalMs";
+
+    private final DimensionService dimensionService;
+    private final long idleTimeoutNanos;
+    private final Duration sweepInterval;
+    private final Logger logger;
+    // Only touched from the sweep task, which runs on the main thread.
+    private final Map<String, Long> emptySince = new HashMap<>();
+
+    private Task sweepTask;
+
+    public InstanceLifecycleManager(DimensionService dimensionService, Logger logger) {
+        this(dimensionService, DEFAULT_IDLE_TIMEOUT, DEFAULT_SWEEP_INTERVAL, logger);
+    }
+
+    public InstanceLifecycleManager(DimensionService dimensionService,
+                                    Duration idleTimeout,
+                                    Duration sweepInterval,
+                                    Logger logger) {
+        this.dimensionService = Objects.requireNonNull(dimensionService, "dimensionService");
+        this.logger = Objects.requireNonNull(logger, "logger");
+        Objects.requireNonNull(idleTimeout, "idleTimeout");
+        this.sweepInterval = Objects.requireNonNull(sweepInterval, "sweepInterval");
+        if (idleTimeout.isNegative()) {
+            throw new IllegalArgumentException("idleTimeout must not be negative");
+        }
+        if (sweepInterval.isNegative() || sweepInterval.isZero()) {
+            throw new IllegalArgumentException("sweepInterval must be positive");
+        }
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+    }
+
+    public static Duration configuredIdleTimeout() {
+        return configuredDuration(IDLE_TIMEOUT_PROPERTY, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    public static Duration configuredSweepInterval() {
+        return configuredDuration(SWEEP_INTERVAL_PROPERTY, DEFAULT_SWEEP_INTERVAL);
+    }
+
+    private static Duration configuredDuration(String property, Duration fallback) {
+        String value = System.getProperty(property);
+        if (value == null || value.isBlank()) {
+            return fallback;
+        }
+        try {
+            return Duration.ofMillis(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + property + ": " + value, e);
+        }
+    }
+
+    public void start() {
+        if (sweepTask != null) {
+            return;
+        }
+        sweepTask = MinecraftServer.getSchedulerManager().buildTask(this::sweep)
+            .delay(TaskSchedule.duration(sweepInterval))
+            .repeat(TaskSchedule.duration(sweepInterval))
+            .schedule();
+        logger.info("[InstanceLifecycleManager] Unloading instances idle for {} s", idleTimeoutNanos / 1_000_000_000L);
+    }
+
+    public void stop() {
+        if (sweepTask != null) {
+            sweepTask.cancel();
+            sweepTask = null;
+        }
+        emptySince.clear();
+    }
+
+    void sweep() {
+        long now = System.nanoTime();
+        Map<String, InstanceContainer> loaded = dimensionService.loadedInstances();
+        emptySince.keySet().retainAll(loaded.keySet());
+        for (Map.Entry<String, InstanceContainer> entry : Map.copyOf(loaded).entrySet()) {
+            String dimensionId = entry.getKey();
+            InstanceContainer instance = entry.getValue();
+            if (!instance.getPlayers().isEmpty()) {
+                emptySince.remove(dimensionId);
+                continue;
+            }
+            // Handing an instance out counts as activity, so a teleport still in flight is not unloaded under it.
+            long idleFrom = Math.max(emptySince.computeIfAbsent(dimensionId, ignored -> now),
+                dimensionService.lastAccessNanos(dimensionId));
+            if (now - idleFrom < idleTimeoutNanos) {
+                continue;
+            }
+            emptySince.remove(dimensionId);
+            dimensionService.unloadInstance(dimensionId, instance);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.moud.endlessdimensions.generation;
+
+public record PackBuildStats(int queueDepth,
+                             int activeBuilds,
+                             long startedBuilds,
+                             long totalWaitNanos,
+                             long maxWaitNanos) {
+    public long averageWaitNanos() {
+        return startedBuilds == 0 ? 0 : totalWaitNanos / startedBuilds;
+    }
+}
@@ -6,38 +6,62 @@ import com.dfsek.terra.minestom.MinestomPlatform;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.ZipFile;
 
 public class PackFactory {
-    private final Path templatesRoot;
+    private static final String PACK_ID_PREFIX = "pack_";
+    private static final int PACK_ID_HEX_LENGTH = 32;
+    // Rough heap cost of a parsed pack relative to its YAML and schematic sources.
+    private static final long HEAP_BYTES_PER_SOURCE_BYTE = 8;
+
+    private final TemplateCache templates;
     private final Path packsRoot;
+    private final PackLayout layout;
+    private final ConfigPackCache packCache;
 
     public PackFactory(Path templatesRoot, Path packsRoot) {
-        this.templatesRoot = Objects.requireNonNull(templatesRoot, "templatesRoot");
+        this(new TemplateCache(templatesRoot), packsRoot, PackLayout.DIRECTORY);
+    }
+
+    public PackFactory(TemplateCache templates, Path packsRoot, PackLayout layout) {
+        this(templates, packsRoot, layout, new ConfigPackCache(ConfigPackCache.DEFAULT_BUDGET_BYTES));
+    }
+
+    public PackFactory(TemplateCache templates, Path packsRoot, PackLayout layout, ConfigPackCache packCache) {
+        this.templates = Objects.requireNonNull(templates, "templates");
         this.packsRoot = Objects.requireNonNull(packsRoot, "packsRoot");
+        this.layout = Objects.requireNonNull(layout, "layout");
+        this.packCache = Objects.requireNonNull(packCache, "packCache");
+    }
+
+    public PackLayout layout() {
+        return layout;
     }
 
     public Path createPack(DimensionDefinition definition) throws IOException {
         Objects.requireNonNull(definition, "definition");
-        String packId = packIdForDimension(definition.dimensionId());
-        return createPack(packId, definition.shellType(), definition.toSelectionsWithDefaults(), definition.palettes());
+        return createPack(packIdFor(definition), definition.shellType(), definition.toSelectionsWithDefaults(),
+            definition.palettes());
     }
 
     public Path createPack(String packId,
@@ -56,25 +80,53 @@ public class PackFactory {
             return packDir;
         }
 
-        copyTemplates(packDir);
-        updatePackConfig(packDir, safePackId, shellType);
-        applyShellOverrides(packDir, shellType);
-        writePaletteFiles(packDir.resolve("palettes"), palettes);
-        applyBiomeOverrides(packDir, biomes);
-        applyFeatureParameterOverrides(packDir);
-        applyTreePalettes(packDir, biomes, palettes);
-        applySurfaceBlockOverrides(packDir, palettes);
-
+        // Files that differ from the templates are rendered; everything else is copied from the cached templates.
+        PackWorkspace workspace = assemble(safePackId, shellType, biomes, palettes);
+        try {
+            workspace.materialize(packDir);
+        } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+            // Another build of the same content won the move; its pack is identical.
+            if (!Files.isDirectory(packDir)) {
+                throw e;
+            }
+        }
         return packDir;
     }
 
-    private void updatePackConfig(Path packDir, String packId, ShellType shellType) throws IOException {
-        Path packFile = packDir.resolve("pack.yml");
-        if (!Files.exists(packFile)) {
-            throw new IOException("Missing pack.yml in " + packDir);
-        }
-
-        String content = Files.readString(packFile, StandardCharsets.UTF_8);
+    public Path createPackArchive(DimensionDefinition definition) throws IOException {
+        Objects.requireNonNull(definition, "definition");
+        String safePackId = packIdFor(definition);
+        Path archive = packsRoot.resolve(safePackId + ".zip");
+        if (Files.exists(archive)) {
+            return archive;
+        }
+        assemble(safePackId, definition.shellType(), definition.toSelectionsWithDefaults(), definition.palettes())
+            .writeArchive(archive);
+        return archive;
+    }
+
+    private PackWorkspace assemble(String safePackId,
+                                   ShellType shellType,
+                                   List<BiomeTemplateSelection> biomes,
+                                   Map<Integer, PaletteDefinition> palettes) throws IOException {
+        PackWorkspace workspace = new PackWorkspace(templates);
+        updatePackConfig(workspace, safePackId, shellType);
+        applyShellOverrides(workspace, shellType);
+        writePaletteFiles(workspace, "palettes", palettes);
+        applyBiomeOverrides(workspace, biomes);
+        applyFeatureParameterOverrides(workspace);
+        applyTreePalettes(workspace, biomes, palettes);
+        applySurfaceBlockOverrides(workspace, palettes);
+        return workspace;
+    }
+
+    private void updatePackConfig(PackWorkspace workspace, String packId, ShellType shellType) throws IOException {
+        String packFile = "pack.yml";
+        if (!workspace.exists(packFile)) {
+            throw new IOException("Missing pack.yml in " + templates.templatesRoot());
+        }
+
+        String content = workspace.read(packFile);
         String lineSeparator = content.contains("\r\n") ? "\r\n" : "\n";
         String[] lines = content.split("\\R", -1);
         boolean replacedId = false;
@@ -113,20 +165,101 @@ public class PackFactory {
             output.add(biomeLine);
         }
 
-        Files.writeString(packFile, String.join(lineSeparator, output), StandardCharsets.UTF_8);
+        workspace.write(packFile, String.join(lineSeparator, output));
     }
 
     private String sanitizePackId(String packId) {
         return packId.replace(':', '_');
     }
 
-    private String packIdForDimension(String dimensionId) {
-        return sanitizePackId(dimensionId);
+    // Pack content depends only on the templates, shell, biome selections and palettes, never on the
+    // dimension id or seed, so dimensions that differ only by seed resolve to the same pack.
+    public String packIdFor(DimensionDefinition definition) {
+        Objects.requireNonNull(definition, "definition");
+        StringBuilder canonical = new StringBuilder(512);
+        canonical.append("templates=").append(templates.fingerprint()).append('\n');
+        canonical.append("shell=").append(definition.shellType().name()).append('\n');
+        for (BiomeTemplateSelection selection : definition.toSelectionsWithDefaults()) {
+            TreePaletteProfile tree = selection.treePalette();
+            canonical.append("biome=").append(selection.templateId().name())
+                .append('|').append(selection.overlayId() != null ? selection.overlayId().name() : "-")
+                .append('|').append(selection.paletteSlot())
+                .append('|').append(tree.kind().name())
+                .append('|').append(tree.enabled())
+                .append('|').append(tree.log())
+                .append('|').append(tree.logX())
+                .append('|').append(tree.logY())
+                .append('|').append(tree.logZ())
+                .append('|').append(tree.wood())
+                .append('|').append(tree.woodX())
+                .append('|').append(tree.woodZ())
+                .append('|').append(tree.leaves())
+                .append('\n');
+        }
+        for (Map.Entry<Integer, PaletteDefinition> entry : new TreeMap<>(definition.palettes()).entrySet()) {
+            PaletteDefinition palette = entry.getValue();
+            canonical.append("palette=").append(entry.getKey())
+                .append('|').append(palette.surfaceBlock())
+                .append('|').append(palette.subsurfaceBlock())
+                .append('|').append(palette.stoneBlock())
+                .append('|').append(palette.liquidBlock() != null ? palette.liquidBlock() : "-")
+                .append('\n');
+        }
+        byte[] digest = TemplateCache.sha256().digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+        return PACK_ID_PREFIX + HexFormat.of().formatHex(digest).substring(0, PACK_ID_HEX_LENGTH);
     }
 
+    // One ConfigPack per pack id is loaded and shared; each instance attaches it with its own seed.
+    // Cached packs skip both the build and Terra's config parsing.
     public ConfigPack buildPack(DimensionDefinition definition) throws IOException {
+        Objects.requireNonNull(definition, "definition");
+        String packId = packIdFor(definition);
+        return packCache.get(packId, () -> buildAndLoadPack(packId, definition));
+    }
+
+    public boolean isPackCached(DimensionDefinition definition) {
+        Objects.requireNonNull(definition, "definition");
+        return packCache.getIfPresent(packIdFor(definition)) != null;
+    }
+
+    public ConfigPackCacheStats packCacheStats() {
+        return packCache.stats();
+    }
+
+    private ConfigPackCache.Loaded buildAndLoadPack(String packId, DimensionDefinition definition) throws IOException {
+        if (layout == PackLayout.ARCHIVE) {
+            // A directory left by an earlier build is still a valid pack, so only new packs become archives.
+            Path packDir = packsRoot.resolve(packId);
+            if (!Files.exists(packDir)) {
+                Path archive = createPackArchive(definition);
+                return new ConfigPackCache.Loaded(loadPackArchive(archive), estimateArchiveWeight(archive));
+            }
+        }
         Path packDir = createPack(definition);
-        return loadPack(packDir);
+        return new ConfigPackCache.Loaded(loadPack(packDir), estimateDirectoryWeight(packDir));
+    }
+
+    private long estimateDirectoryWeight(Path packDir) throws IOException {
+        long sourceBytes = 0;
+        try (var walk = Files.walk(packDir)) {
+            for (Path path : walk.toList()) {
+                if (Files.isRegularFile(path)) {
+                    sourceBytes += Files.size(path);
+                }
+            }
+        }
+        return sourceBytes * HEAP_BYTES_PER_SOURCE_BYTE;
+    }
+
+    private long estimateArchiveWeight(Path archive) throws IOException {
+        long sourceBytes = 0;
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            var entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                sourceBytes += Math.max(0, entries.nextElement().getSize());
+            }
+        }
+        return sourceBytes * HEAP_BYTES_PER_SOURCE_BYTE;
     }
 
     public ConfigPack loadPack(Path packDir) throws IOException {
@@ -137,69 +270,50 @@ public class PackFactory {
         }
     }
 
-    private void copyTemplates(Path packDir) throws IOException {
-        if (!Files.exists(packDir)) {
-            Files.createDirectories(packDir);
-        }
-        try (var walk = Files.walk(templatesRoot)) {
-            walk.forEach(source -> {
-                try {
-                    Path relative = templatesRoot.relativize(source);
-                    Path target = packDir.resolve(relative);
-                    if (Files.isDirectory(source)) {
-                        Files.createDirectories(target);
-                    } else {
-                        Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
-                    }
-                } catch (IOException e) {
-                    throw new RuntimeException("Failed to copy template " + source, e);
-                }
-            });
+    public ConfigPack loadPackArchive(Path archive) throws IOException {
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            return new ConfigPackImpl(zip, MinestomPlatform.getInstance());
+        } catch (Exception e) {
+            throw new IOException("Failed to load ConfigPack from " + archive, e);
         }
     }
 
-    private void applyShellOverrides(Path packDir, ShellType shellType) throws IOException {
-        Path shellRoot = packDir.resolve(shellType.templateRoot());
-        if (!Files.exists(shellRoot)) {
-            return;
-        }
-        copyShellFile(shellRoot, packDir, "meta.yml");
-        copyShellFile(shellRoot, packDir, "options.yml");
+    private void applyShellOverrides(PackWorkspace workspace, ShellType shellType) throws IOException {
+        String shellRoot = shellType.templateRoot();
+        copyShellFile(workspace, shellRoot, "meta.yml");
+        copyShellFile(workspace, shellRoot, "options.yml");
     }
 
-    private void copyShellFile(Path shellRoot, Path packDir, String fileName) throws IOException {
-        Path source = shellRoot.resolve(fileName);
-        if (!Files.exists(source)) {
+    private void copyShellFile(PackWorkspace workspace, String shellRoot, String fileName) throws IOException {
+        String source = PackWorkspace.join(shellRoot, fileName);
+        if (!workspace.exists(source)) {
             return;
         }
-        Files.copy(source, packDir.resolve(fileName), StandardCopyOption.REPLACE_EXISTING);
+        workspace.write(fileName, workspace.read(source));
     }
 
-    private void writePaletteFiles(Path palettesDir, Map<Integer, PaletteDefinition> palettes) throws IOException {
-        if (!Files.exists(palettesDir)) {
-            Files.createDirectories(palettesDir);
-        }
+    private void writePaletteFiles(PackWorkspace workspace, String palettesDir, Map<Integer, PaletteDefinition> palettes) {
         for (Map.Entry<Integer, PaletteDefinition> entry : palettes.entrySet()) {
             int slot = entry.getKey();
             PaletteDefinition palette = entry.getValue();
-            writePalette(palettesDir.resolve("DIM_PAL_" + slot + ".yml"),
+            writePalette(workspace, PackWorkspace.join(palettesDir, "DIM_PAL_" + slot + ".yml"),
                 "DIM_PAL_" + slot,
                 palette.surfaceBlock());
-            writePalette(palettesDir.resolve("DIM_PAL_" + slot + "_SUBSURFACE.yml"),
+            writePalette(workspace, PackWorkspace.join(palettesDir, "DIM_PAL_" + slot + "_SUBSURFACE.yml"),
                 "DIM_PAL_" + slot + "_SUBSURFACE",
                 palette.subsurfaceBlock());
-            writePalette(palettesDir.resolve("DIM_PAL_" + slot + "_STONE.yml"),
+            writePalette(workspace, PackWorkspace.join(palettesDir, "DIM_PAL_" + slot + "_STONE.yml"),
                 "DIM_PAL_" + slot + "_STONE",
                 palette.stoneBlock());
             if (palette.liquidBlock() != null && !palette.liquidBlock().isBlank()) {
-                writePalette(palettesDir.resolve("DIM_OCEAN_" + slot + ".yml"),
+                writePalette(workspace, PackWorkspace.join(palettesDir, "DIM_OCEAN_" + slot + ".yml"),
                     "DIM_OCEAN_" + slot,
                     palette.liquidBlock());
             }
         }
     }
 
-    private void writePalette(Path file, String id, String block) throws IOException {
+    private void writePalette(PackWorkspace workspace, String file, String id, String block) {
         String content = String.join("\n",
             "id: " + id,
             "type: PALETTE",
@@ -210,37 +324,35 @@ public class PackFactory {
             "    layers: 1",
             ""
         );
-        Files.writeString(file, content, StandardCharsets.UTF_8);
+        workspace.write(file, content);
     }
 
-    private void applyBiomeOverrides(Path packDir, List<BiomeTemplateSelection> biomes) throws IOException {
-        Path biomesDir = packDir.resolve("biomes");
-        Path overlaysDir = packDir.resolve("biome_overlays");
+    private void applyBiomeOverrides(PackWorkspace workspace, List<BiomeTemplateSelection> biomes) throws IOException {
         for (BiomeTemplateSelection selection : biomes) {
             String biomeId = BiomeTemplateRegistry.terraBiomeId(selection.templateId());
-            Path biomePath = biomesDir.resolve(biomeId + ".yml");
-            if (!Files.exists(biomePath)) {
+            String biomePath = "biomes/" + biomeId + ".yml";
+            if (!workspace.exists(biomePath)) {
                 throw new IOException("Missing biome template: " + biomePath);
             }
 
-            String template = Files.readString(biomePath, StandardCharsets.UTF_8);
             if (selection.overlayId() != null) {
+                String template = workspace.read(biomePath);
                 String overlayId = BiomeTemplateRegistry.terraOverlayId(selection.overlayId());
-                Path overlayPath = overlaysDir.resolve(overlayId + ".yml");
-                if (!Files.exists(overlayPath)) {
+                String overlayPath = "biome_overlays/" + overlayId + ".yml";
+                if (!workspace.exists(overlayPath)) {
                     throw new IOException("Missing biome overlay: " + overlayPath);
                 }
-                String overlay = Files.readString(overlayPath, StandardCharsets.UTF_8);
-                template = mergeBiomeFeatures(template, overlay);
+                String overlay = workspace.read(overlayPath);
+                workspace.write(biomePath, mergeBiomeFeatures(template, overlay));
             }
-            template = template.replace("DIM_PAL_SLOT", "DIM_PAL_" + selection.paletteSlot());
-            template = template.replace("DIM_PAL_SLOT_STONE", "DIM_PAL_" + selection.paletteSlot() + "_STONE");
-
-            Files.writeString(biomePath, template, StandardCharsets.UTF_8);
+            workspace.bind(biomePath, Map.of(
+                "DIM_PAL_SLOT", "DIM_PAL_" + selection.paletteSlot(),
+                "DIM_PAL_SLOT_STONE", "DIM_PAL_" + selection.paletteSlot() + "_STONE"
+            ));
         }
     }
 
-    private void applyFeatureParameterOverrides(Path packDir) throws IOException {
+    private void applyFeatureParameterOverrides(PackWorkspace workspace) {
         Map<String, String> placeholders = new LinkedHashMap<>();
         placeholders.put("DIM_BETWEEN_GRID_WIDTH", "32");
         placeholders.put("DIM_BETWEEN_GRID_PADDING", "12");
@@ -253,24 +365,14 @@ public class PackFactory {
         placeholders.put("DIM_SHAPES_WEIGHT_SPHERE", "2");
         placeholders.put("DIM_SHAPES_WEIGHT_DIAMOND", "2");
 
-        applyPlaceholders(packDir.resolve("features").resolve("special").resolve("between_end_ships.yml"), placeholders);
-        applyPlaceholders(packDir.resolve("features").resolve("special").resolve("shapes_scatter.yml"), placeholders);
+        workspace.bind("features/special/between_end_ships.yml", placeholders);
+        workspace.bind("features/special/shapes_scatter.yml", placeholders);
     }
 
-    private void applyPlaceholders(Path file, Map<String, String> placeholders) throws IOException {
-        if (!Files.exists(file)) {
-            return;
-        }
-        String content = Files.readString(file, StandardCharsets.UTF_8);
-        String updated = replacePlaceholders(content, placeholders);
-        if (!updated.equals(content)) {
-            Files.writeString(file, updated, StandardCharsets.UTF_8);
-        }
-    }
-
-    private void applySurfaceBlockOverrides(Path packDir, Map<Integer, PaletteDefinition> palettes) throws IOException {
+    private void applySurfaceBlockOverrides(PackWorkspace workspace, Map<Integer, PaletteDefinition> palettes) {
         Set<String> surfaceBlocks = new LinkedHashSet<>();
-        for (PaletteDefinition palette : palettes.values()) {
+        // Slot order keeps the surface list, and so the pack content, independent of map iteration order.
+        for (PaletteDefinition palette : new TreeMap<>(palettes).values()) {
             if (palette.surfaceBlock() != null && !palette.surfaceBlock().isBlank()) {
                 surfaceBlocks.add(palette.surfaceBlock());
             }
@@ -280,30 +382,13 @@ public class PackFactory {
             blocks = List.of("minecraft:grass_block");
         }
 
-        try (var walk = Files.walk(packDir)) {
-            for (Path file : walk.toList()) {
-                if (Files.isDirectory(file)) {
-                    continue;
-                }
-                String name = file.getFileName().toString();
-                if (!name.endsWith(".yml") && !name.endsWith(".yaml") && !name.endsWith(".tesf")) {
-                    continue;
-                }
-                String content = Files.readString(file, StandardCharsets.UTF_8);
-                if (!content.contains("DIM_SURFACE_BLOCK")) {
-                    continue;
-                }
-                content = replaceSurfaceBlocks(content, blocks);
-                Files.writeString(file, content, StandardCharsets.UTF_8);
-            }
-        }
+        workspace.bindList("DIM_SURFACE_BLOCK", blocks);
     }
 
-    private void applyTreePalettes(Path packDir, List<BiomeTemplateSelection> biomes, Map<Integer, PaletteDefinition> palettes)
+    private void applyTreePalettes(PackWorkspace workspace, List<BiomeTemplateSelection> biomes, Map<Integer, PaletteDefinition> palettes)
         throws IOException {
-        Path biomesDir = packDir.resolve("biomes");
-        Map<String, Path> featureIndex = indexFeatureFiles(packDir.resolve("features"));
-        Map<String, Path> structureIndex = indexStructureFiles(packDir.resolve("structures"));
+        Map<String, String> featureIndex = new HashMap<>(templates.featureIds());
+        Map<String, String> structureIndex = new HashMap<>(templates.structureIds());
         Set<String> structureIds = new HashSet<>(structureIndex.keySet());
         Map<String, String> featureCopies = new HashMap<>();
         Map<String, String> structureCopies = new HashMap<>();
@@ -311,15 +396,15 @@ public class PackFactory {
 
         for (BiomeTemplateSelection selection : biomes) {
             String biomeId = BiomeTemplateRegistry.terraBiomeId(selection.templateId());
-            Path biomePath = biomesDir.resolve(biomeId + ".yml");
-            if (!Files.exists(biomePath)) {
+            String biomePath = "biomes/" + biomeId + ".yml";
+            if (!workspace.exists(biomePath)) {
                 throw new IOException("Missing biome template: " + biomePath);
             }
 
-            String biomeTemplate = Files.readString(biomePath, StandardCharsets.UTF_8);
+            String biomeTemplate = workspace.read(biomePath);
             if (!selection.treePalette().enabled()) {
                 biomeTemplate = removeTreeFeatures(biomeTemplate);
-                Files.writeString(biomePath, biomeTemplate, StandardCharsets.UTF_8);
+                workspace.write(biomePath, biomeTemplate);
                 continue;
             }
 
@@ -339,14 +424,17 @@ public class PackFactory {
                 && !paletteDefinition.surfaceBlock().isBlank()
                 ? paletteDefinition.surfaceBlock()
                 : "minecraft:grass_block";
+            // Tree copies take the slot's own surface block rather than the pack-wide list.
+            Map<String, String> treeBindings = new HashMap<>(paletteProfile.placeholderMap());
+            treeBindings.put("DIM_SURFACE_BLOCK", surfaceBlock);
 
             Set<String> referencedStructures = new LinkedHashSet<>();
             for (String featureId : treeFeatures) {
-                Path featurePath = featureIndex.get(featureId);
+                String featurePath = featureIndex.get(featureId);
                 if (featurePath == null) {
                     throw new IOException("Missing tree feature template: " + featureId);
                 }
-                String featureContent = Files.readString(featurePath, StandardCharsets.UTF_8);
+                String featureContent = workspace.read(featurePath);
                 referencedStructures.addAll(extractStructureIdsFromFeature(featureContent));
             }
 
@@ -359,11 +447,11 @@ public class PackFactory {
                     if (!visited.add(structureId)) {
                         continue;
                     }
-                    Path structurePath = structureIndex.get(structureId);
+                    String structurePath = structureIndex.get(structureId);
                     if (structurePath == null) {
                         continue;
                     }
-                    String structureContent = Files.readString(structurePath, StandardCharsets.UTF_8);
+                    String structureContent = workspace.read(structurePath);
                     if (containsTreePlaceholders(structureContent)) {
                         structureDupMap.put(structureId, structureId + "_slot" + selection.paletteSlot());
                     }
@@ -382,17 +470,15 @@ public class PackFactory {
                 if (structureCopies.containsKey(copyKey)) {
                     continue;
                 }
-                Path originalPath = structureIndex.get(originalId);
+                String originalPath = structureIndex.get(originalId);
                 if (originalPath == null) {
                     continue;
                 }
-                Path newPath = originalPath.resolveSibling(newId + fileExtension(originalPath));
-                if (!Files.exists(newPath)) {
-                    String content = Files.readString(originalPath, StandardCharsets.UTF_8);
-                    content = replaceStructureReferencesInScript(content, structureDupMap);
-                    content = replacePlaceholders(content, paletteProfile.placeholderMap());
-                    content = content.replace("DIM_SURFACE_BLOCK", surfaceBlock);
-                    Files.writeString(newPath, content, StandardCharsets.UTF_8);
+                String newPath = PackWorkspace.sibling(originalPath, newId + fileExtension(originalPath));
+                if (!workspace.exists(newPath)) {
+                    String content = workspace.read(originalPath);
+                    workspace.write(newPath, replaceStructureReferencesInScript(content, structureDupMap));
+                    workspace.bind(newPath, treeBindings);
                 }
                 structureCopies.put(copyKey, newId);
                 structureIndex.put(newId, newPath);
@@ -406,47 +492,25 @@ public class PackFactory {
                 if (newFeatureId == null) {
                     newFeatureId = featureId + "_SLOT" + selection.paletteSlot();
                     featureCopies.put(copyKey, newFeatureId);
-                    Path featurePath = featureIndex.get(featureId);
+                    String featurePath = featureIndex.get(featureId);
                     if (featurePath == null) {
                         throw new IOException("Missing tree feature template: " + featureId);
                     }
-                    Path newPath = featurePath.resolveSibling(fileNameWithSuffix(featurePath, "_slot" + selection.paletteSlot()));
-                    String content = Files.readString(featurePath, StandardCharsets.UTF_8);
+                    String newPath = PackWorkspace.sibling(featurePath, fileNameWithSuffix(featurePath, "_slot" + selection.paletteSlot()));
+                    String content = workspace.read(featurePath);
                     content = replaceYamlId(content, newFeatureId);
-                    content = replaceStructureReferencesInFeature(content, structureDupMap);
-                    content = replacePlaceholders(content, paletteProfile.placeholderMap());
-                    content = content.replace("DIM_SURFACE_BLOCK", surfaceBlock);
-                    Files.writeString(newPath, content, StandardCharsets.UTF_8);
+                    workspace.write(newPath, replaceStructureReferencesInFeature(content, structureDupMap));
+                    workspace.bind(newPath, treeBindings);
                     featureIndex.put(newFeatureId, newPath);
                 }
                 updatedTreeFeatures.add(newFeatureId);
             }
 
             biomeTemplate = replaceTreeFeatures(biomeTemplate, updatedTreeFeatures);
-            Files.writeString(biomePath, biomeTemplate, StandardCharsets.UTF_8);
+            workspace.write(biomePath, biomeTemplate);
         }
     }
 
-    private String replaceSurfaceBlocks(String content, List<String> blocks) {
-        String lineSeparator = content.contains("\r\n") ? "\r\n" : "\n";
-        String[] lines = content.split("\\R", -1);
-        List<String> output = new ArrayList<>(lines.length);
-
-        for (String line : lines) {
-            String trimmed = line.trim();
-            if ("- DIM_SURFACE_BLOCK".equals(trimmed)) {
-                String indent = line.substring(0, line.indexOf('-'));
-                for (String block : blocks) {
-                    output.add(indent + "- " + block);
-                }
-                continue;
-            }
-            output.add(line.replace("DIM_SURFACE_BLOCK", blocks.get(0)));
-        }
-
-        return String.join(lineSeparator, output);
-    }
-
     private String mergeBiomeFeatures(String baseTemplate, String overlayTemplate) {
         Map<String, List<String>> overlayFeatures = extractBiomeFeatures(overlayTemplate);
         if (overlayFeatures.isEmpty()) {
@@ -562,62 +626,6 @@ public class PackFactory {
         return output;
     }
 
-    private Map<String, Path> indexFeatureFiles(Path featuresDir) throws IOException {
-        Map<String, Path> index = new HashMap<>();
-        if (!Files.exists(featuresDir)) {
-            return index;
-        }
-        try (var walk = Files.walk(featuresDir)) {
-            for (Path file : walk.toList()) {
-                if (Files.isDirectory(file)) {
-                    continue;
-                }
-                String name = file.getFileName().toString();
-                if (!name.endsWith(".yml") && !name.endsWith(".yaml")) {
-                    continue;
-                }
-                String id = readYamlId(file);
-                if (id != null && !id.isBlank()) {
-                    index.put(id, file);
-                }
-            }
-        }
-        return index;
-    }
-
-    private Map<String, Path> indexStructureFiles(Path structuresDir) throws IOException {
-        Map<String, Path> index = new HashMap<>();
-        if (!Files.exists(structuresDir)) {
-            return index;
-        }
-        try (var walk = Files.walk(structuresDir)) {
-            for (Path file : walk.toList()) {
-                if (Files.isDirectory(file)) {
-                    continue;
-                }
-                String name = file.getFileName().toString();
-                int dot = name.lastIndexOf('.');
-                if (dot <= 0) {
-                    continue;
-                }
-                String id = name.substring(0, dot);
-                index.put(id, file);
-            }
-        }
-        return index;
-    }
-
-    private String readYamlId(Path file) throws IOException {
-        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
-        for (String line : lines) {
-            String trimmed = line.trim();
-            if (trimmed.startsWith("id:")) {
-                return trimmed.substring("id:".length()).trim();
-            }
-        }
-        return null;
-    }
-
     private List<String> extractTreeFeatures(String template) {
         List<String> features = new ArrayList<>();
         String[] lines = template.split("\\R", -1);
@@ -778,27 +786,14 @@ public class PackFactory {
         return String.join(lineSeparator, lines);
     }
 
-    private String replacePlaceholders(String content, Map<String, String> placeholders) {
-        if (placeholders.isEmpty()) {
-            return content;
-        }
-        List<String> keys = new ArrayList<>(placeholders.keySet());
-        keys.sort(Comparator.comparingInt(String::length).reversed());
-        String updated = content;
-        for (String key : keys) {
-            updated = updated.replace(key, placeholders.get(key));
-        }
-        return updated;
-    }
-
-    private String fileExtension(Path file) {
-        String name = file.getFileName().toString();
+    private String fileExtension(String file) {
+        String name = PackWorkspace.fileName(file);
         int dot = name.lastIndexOf('.');
         return dot >= 0 ? name.substring(dot) : "";
     }
 
-    private String fileNameWithSuffix(Path file, String suffix) {
-        String name = file.getFileName().toString();
+    private String fileNameWithSuffix(String file, String suffix) {
+        String name = PackWorkspace.fileName(file);
         int dot = name.lastIndexOf('.');
         if (dot < 0) {
             return name + suffix;
@@ -0,0 +1,26 @@
+package com.moud.endlessdimensions.generation;
+
+import java.util.Locale;
+
+public enum PackLayout {
+    // Unpacked pack directory under terra-packs; unchanged templates are copied in.
+    DIRECTORY,
+    // Single zip streamed from memory and handed to Terra as an archive.
+    ARCHIVE;
+
+    public static final String PROPERTY = "endless.pack.layout";
+
+    public static PackLayout fromId(String id) {
+        return switch (id.trim().toLowerCase(Locale.ROOT)) {
+            case "directory", "dir" -> DIRECTORY;
+            case "archive", "zip" -> ARCHIVE;
+            default -> throw new IllegalArgumentException("Unknown pack layout: " + id);
+        };
+    }
+
+    // -Dendless.pack.layout=archive builds new packs as zip archives; directories stay the default.
+    public static PackLayout configured() {
+        String value = System.getProperty(PROPERTY);
+        return value == null || value.isBlank() ? DIRECTORY : fromId(value);
+    }
+}
@@ -0,0 +1,204 @@
+package com.moud.endlessdimensions.generation;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Pack under construction: the shared templates plus the files this build has rewritten or added.
+ * Placeholder values are only bound here and substituted once, when each file is written out.
+ */
+final class PackWorkspace {
+    private final TemplateCache templates;
+    private final Map<String, String> overrides = new TreeMap<>();
+    private final Map<String, Map<String, String>> bindings = new HashMap<>();
+    private final Map<String, List<String>> listBindings = new HashMap<>();
+
+    PackWorkspace(TemplateCache templates) {
+        this.templates = Objects.requireNonNull(templates, "templates");
+    }
+
+    boolean exists(String path) {
+        return overrides.containsKey(path) || templates.get(path) != null;
+    }
+
+    String read(String path) throws IOException {
+        String override = overrides.get(path);
+        if (override != null) {
+            return override;
+        }
+        TemplateCache.TemplateFile template = templates.get(path);
+        if (template == null) {
+            throw new IOException("Missing pack file: " + path);
+        }
+        if (template.text() == null) {
+            throw new IOException("Pack file is not UTF-8 text: " + path);
+        }
+        return template.text();
+    }
+
+    void write(String path, String content) {
+        Objects.requireNonNull(content, "content");
+        overrides.put(path, content);
+    }
+
+    // The first value bound to a placeholder in a file wins, as it did when files were rewritten in place.
+    void bind(String path, Map<String, String> values) {
+        Map<String, String> fileBindings = bindings.computeIfAbsent(path, ignored -> new HashMap<>());
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            fileBindings.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+    }
+
+    // List values apply to every YAML/TESF file; a "- NAME" list line expands to one entry per value.
+    void bindList(String name, List<String> values) {
+        listBindings.put(name, List.copyOf(values));
+    }
+
+    // Returns the final text of a file, or null when the template can be used byte for byte.
+    String render(String path) throws IOException {
+        String override = overrides.get(path);
+        PlaceholderTemplate template = override != null
+            ? PlaceholderTemplate.compile(override)
+            : templates.compiled(path);
+        if (template == null) {
+            return override;
+        }
+        Map<String, String> values = bindings.getOrDefault(path, Map.of());
+        Map<String, List<String>> lists = isPlaceholderFile(path) ? listBindings : Map.of();
+        boolean applies = template.hasSlots()
+            && (template.usesAny(values.keySet()) || template.usesAny(lists.keySet()));
+        if (!applies) {
+            return override;
+        }
+        return template.render(values, lists);
+    }
+
+    void materialize(Path packDir) throws IOException {
+        Path parent = packDir.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        // Build beside the target and move it into place, so a crash never leaves a half-written pack behind.
+        Path staging = Files.createTempDirectory(parent, "." + packDir.getFileName() + "-");
+        try {
+            for (String directory : templates.directories()) {
+                Files.createDirectories(resolve(staging, directory));
+            }
+            for (String path : paths()) {
+                Path target = resolve(staging, path);
+                String content = render(path);
+                if (content == null) {
+                    copyTemplate(templates.get(path), target);
+                    continue;
+                }
+                Files.createDirectories(target.getParent());
+                Files.writeString(target, content, StandardCharsets.UTF_8);
+            }
+            try {
+                Files.move(staging, packDir, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(staging, packDir);
+            }
+        } catch (IOException | RuntimeException e) {
+            deleteRecursively(staging);
+            throw e;
+        }
+    }
+
+    void writeArchive(Path archive) throws IOException {
+        Path parent = archive.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        // Every entry comes from memory, so the archive is the only file this build writes.
+        Path staging = Files.createTempFile(parent, "." + archive.getFileName() + "-", ".tmp");
+        try {
+            try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(staging));
+                 ZipOutputStream zip = new ZipOutputStream(output)) {
+                zip.setLevel(Deflater.BEST_SPEED);
+                for (String path : paths()) {
+                    String content = render(path);
+                    zip.putNextEntry(new ZipEntry(path));
+                    zip.write(content != null
+                        ? content.getBytes(StandardCharsets.UTF_8)
+                        : templates.get(path).content());
+                    zip.closeEntry();
+                }
+            }
+            try {
+                Files.move(staging, archive, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(staging, archive, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(staging);
+            throw e;
+        }
+    }
+
+    private TreeSet<String> paths() {
+        TreeSet<String> paths = new TreeSet<>(templates.files().keySet());
+        paths.addAll(overrides.keySet());
+        return paths;
+    }
+
+    private static boolean isPlaceholderFile(String path) {
+        return path.endsWith(".yml") || path.endsWith(".yaml") || path.endsWith(".tesf");
+    }
+
+    // Written from the cached bytes rather than hard-linked: a linked file shares its inode with the template,
+    // so anything that edited a pack in place would silently edit the template for every later build.
+    private void copyTemplate(TemplateCache.TemplateFile template, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Files.write(target, template.content());
+    }
+
+    static Path resolve(Path root, String path) {
+        Path resolved = root;
+        for (String part : path.split("/")) {
+            resolved = resolved.resolve(part);
+        }
+        return resolved;
+    }
+
+    static String join(String parent, String child) {
+        if (parent.isEmpty()) {
+            return child;
+        }
+        return parent.endsWith("/") ? parent + child : parent + "/" + child;
+    }
+
+    static String fileName(String path) {
+        int slash = path.lastIndexOf('/');
+        return slash >= 0 ? path.substring(slash + 1) : path;
+    }
+
+    static String sibling(String path, String fileName) {
+        int slash = path.lastIndexOf('/');
+        return slash >= 0 ? path.substring(0, slash + 1) + fileName : fileName;
+    }
+
+    private static void deleteRecursively(Path root) {
+        if (!Files.exists(root)) {
+            return;
+        }
+        try (var walk = Files.walk(root)) {
+            for (Path path : walk.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException ignored) {
+            // Leftover staging directories are hidden and harmless.
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.moud.endlessdimensions.generation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Template text split once into literal segments and placeholder slots, rendered with a single append pass.
+ */
+final class PlaceholderTemplate {
+    private static final String PREFIX = "DIM_";
+    // Longest names first so DIM_TREE_LOG_X wins over DIM_TREE_LOG, matching the old longest-key-first replace.
+    private static final List<String> NAMES = sortedByLength(List.of(
+        "DIM_PAL_SLOT",
+        "DIM_PAL_SLOT_STONE",
+        "DIM_SURFACE_BLOCK",
+        "DIM_TREE_LOG",
+        "DIM_TREE_LOG_X",
+        "DIM_TREE_LOG_Y",
+        "DIM_TREE_LOG_Z",
+        "DIM_TREE_WOOD",
+        "DIM_TREE_WOOD_X",
+        "DIM_TREE_WOOD_Z",
+        "DIM_TREE_LEAVES",
+        "DIM_BETWEEN_GRID_WIDTH",
+        "DIM_BETWEEN_GRID_PADDING",
+        "DIM_BETWEEN_AMOUNT",
+        "DIM_BETWEEN_SHIP_STRUCTURE",
+        "DIM_SHAPES_GRID_WIDTH",
+        "DIM_SHAPES_GRID_PADDING",
+        "DIM_SHAPES_AMOUNT",
+        "DIM_SHAPES_WEIGHT_CUBE",
+        "DIM_SHAPES_WEIGHT_SPHERE",
+        "DIM_SHAPES_WEIGHT_DIAMOND"
+    ));
+
+    private final int sourceLength;
+    private final String[] literals;
+    private final String[] names;
+    private final String[] listIndents;
+    private final String[] listTrailing;
+    private final String lineSeparator;
+
+    private PlaceholderTemplate(int sourceLength,
+                                String[] literals,
+                                String[] names,
+                                String[] listIndents,
+                                String[] listTrailing,
+                                String lineSeparator) {
+        this.sourceLength = sourceLength;
+        this.literals = literals;
+        this.names = names;
+        this.listIndents = listIndents;
+        this.listTrailing = listTrailing;
+        this.lineSeparator = lineSeparator;
+    }
+
+    static PlaceholderTemplate compile(String text) {
+        Objects.requireNonNull(text, "text");
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<String> listIndents = new ArrayList<>();
+        List<String> listTrailing = new ArrayList<>();
+
+        int literalStart = 0;
+        int cursor = text.indexOf(PREFIX);
+        while (cursor >= 0) {
+            String name = matchName(text, cursor);
+            if (name == null) {
+                cursor = text.indexOf(PREFIX, cursor + PREFIX.length());
+                continue;
+            }
+            int end = cursor + name.length();
+            int lineStart = text.lastIndexOf('\n', cursor - 1) + 1;
+            int dash = listItemDash(text, lineStart, cursor);
+            int trailingEnd = end;
+            while (trailingEnd < text.length() && (text.charAt(trailingEnd) == ' ' || text.charAt(trailingEnd) == '\t')) {
+                trailingEnd++;
+            }
+            boolean lineEnds = trailingEnd == text.length() || text.charAt(trailingEnd) == '\n'
+                || text.charAt(trailingEnd) == '\r';
+            if (dash >= 0 && lineEnds) {
+                // A "- NAME" list line can expand into one list entry per value.
+                literals.add(text.substring(literalStart, dash));
+                listIndents.add(text.substring(lineStart, dash));
+                listTrailing.add(text.substring(end, trailingEnd));
+                end = trailingEnd;
+            } else {
+                literals.add(text.substring(literalStart, cursor));
+                listIndents.add(null);
+                listTrailing.add(null);
+            }
+            names.add(name);
+            literalStart = end;
+            cursor = text.indexOf(PREFIX, end);
+        }
+        literals.add(text.substring(literalStart));
+
+        return new PlaceholderTemplate(text.length(),
+            literals.toArray(String[]::new),
+            names.toArray(String[]::new),
+            listIndents.toArray(String[]::new),
+            listTrailing.toArray(String[]::new),
+            text.contains("\r\n") ? "\r\n" : "\n");
+    }
+
+    boolean hasSlots() {
+        return names.length > 0;
+    }
+
+    boolean uses(String name) {
+        for (String slot : names) {
+            if (slot.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean usesAny(Iterable<String> candidates) {
+        for (String candidate : candidates) {
+            if (uses(candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Scalar values win over list values; a name with neither is left in place.
+    String render(Map<String, String> values, Map<String, List<String>> listValues) {
+        StringBuilder builder = new StringBuilder(sourceLength + names.length * 16);
+        for (int i = 0; i < names.length; i++) {
+            builder.append(literals[i]);
+            String name = names[i];
+            String value = values.get(name);
+            List<String> list = value == null ? listValues.get(name) : null;
+            if (list != null && list.isEmpty()) {
+                list = null;
+            }
+            String indent = listIndents[i];
+            if (indent == null) {
+                builder.append(value != null ? value : list != null ? list.get(0) : name);
+                continue;
+            }
+            if (list == null) {
+                builder.append("- ").append(value != null ? value : name).append(listTrailing[i]);
+                continue;
+            }
+            for (int item = 0; item < list.size(); item++) {
+                if (item > 0) {
+                    builder.append(lineSeparator).append(indent);
+                }
+                builder.append("- ").append(list.get(item));
+            }
+        }
+        builder.append(literals[names.length]);
+        return builder.toString();
+    }
+
+    private static String matchName(String text, int offset) {
+        for (String name : NAMES) {
+            if (text.startsWith(name, offset)) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    private static int listItemDash(String text, int lineStart, int nameStart) {
+        int index = lineStart;
+        while (index < nameStart && text.charAt(index) <= ' ') {
+            index++;
+        }
+        if (nameStart - index != 2 || text.charAt(index) != '-' || text.charAt(index + 1) != ' ') {
+            return -1;
+        }
+        return index;
+    }
+
+    private static List<String> sortedByLength(List<String> names) {
+        List<String> sorted = new ArrayList<>(names);
+        sorted.sort(Comparator.comparingInt(String::length).reversed());
+        return List.copyOf(sorted);
+    }
+}
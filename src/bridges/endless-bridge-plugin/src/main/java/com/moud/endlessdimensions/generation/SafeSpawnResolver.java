@@ -0,0 +1,106 @@
+package com.moud.endlessdimensions.generation;
+
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.instance.Chunk;
+import net.minestom.server.instance.Section;
+import net.minestom.server.instance.block.Block;
+import net.minestom.server.instance.palette.Palette;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Finds the first standable spot at or below a target in one block column. The snapshot is taken on the
+ * tick thread; resolving it touches only copied palettes, so it can run anywhere.
+ */
+public final class SafeSpawnResolver {
+    private SafeSpawnResolver() {
+    }
+
+    // Main thread only: heightmaps and live palettes are not safe to read concurrently.
+    public static ColumnSnapshot snapshot(Chunk chunk, Pos target, int minY, int maxY) {
+        Objects.requireNonNull(chunk, "chunk");
+        Objects.requireNonNull(target, "target");
+        int localX = target.blockX() & 15;
+        int localZ = target.blockZ() & 15;
+        int startY = startY(target, minY, maxY);
+        int surfaceY = chunk.motionBlockingHeightmap().getHeight(localX, localZ);
+
+        // Only sections the downward scan can reach are copied: minY up to the head block at startY.
+        int minSection = chunk.getMinSection();
+        List<Section> sections = chunk.getSections();
+        int topIndex = Math.min(sections.size() - 1, Math.floorDiv(startY + 1, 16) - minSection);
+        Palette[] palettes = new Palette[Math.max(0, topIndex + 1)];
+        for (int index = 0; index <= topIndex; index++) {
+            Palette palette = sections.get(index).blockPalette();
+            // An all-air section needs no copy; null marks it for the scan to skip.
+            palettes[index] = palette.count() == 0 ? null : palette.clone();
+        }
+        return new ColumnSnapshot(localX, localZ, minSection, palettes, surfaceY, startY);
+    }
+
+    public static Pos resolve(ColumnSnapshot column, Pos target, int minY, int maxY) {
+        Objects.requireNonNull(column, "column");
+        Objects.requireNonNull(target, "target");
+        int startY = column.startY();
+
+        // Above the motion-blocking surface there is only open air, so when the surface is at or below
+        // the start the downward scan would stop right on top of it.
+        int surfaceY = column.surfaceY();
+        if (surfaceY <= startY && surfaceY >= minY + 1 && isStandable(column, surfaceY)) {
+            return new Pos(target.x(), surfaceY, target.z());
+        }
+
+        int y = startY;
+        while (y >= minY + 1) {
+            int sectionBottom = Math.floorDiv(y, 16) << 4;
+            if (column.isAirSection(y) && column.isAirSection(y + 1) && y > sectionBottom) {
+                // Body and head sit in open air until the section's bottom row, whose floor lies below it.
+                y = sectionBottom;
+                continue;
+            }
+            if (isStandable(column, y)) {
+                return new Pos(target.x(), y, target.z());
+            }
+            y--;
+        }
+
+        return resolveUnloaded(target, minY, maxY);
+    }
+
+    // Used when nothing standable is found, or the column could not be read at all.
+    public static Pos resolveUnloaded(Pos target, int minY, int maxY) {
+        double fallbackY = Math.max(minY + 1, Math.min(target.y(), maxY - 2));
+        return new Pos(target.x(), fallbackY, target.z());
+    }
+
+    private static int startY(Pos target, int minY, int maxY) {
+        return Math.min(maxY - 2, Math.max(minY + 1, (int) Math.round(target.y())));
+    }
+
+    private static boolean isStandable(ColumnSnapshot column, int y) {
+        return Block.fromStateId(column.stateAt(y - 1)).isSolid()
+            && Block.fromStateId(column.stateAt(y)).isAir()
+            && Block.fromStateId(column.stateAt(y + 1)).isAir();
+    }
+
+    public record ColumnSnapshot(int localX,
+                                 int localZ,
+                                 int minSection,
+                                 Palette[] palettes,
+                                 int surfaceY,
+                                 int startY) {
+        int stateAt(int y) {
+            int index = Math.floorDiv(y, 16) - minSection;
+            if (index < 0 || index >= palettes.length || palettes[index] == null) {
+                return Block.AIR.stateId();
+            }
+            return palettes[index].get(localX, y & 15, localZ);
+        }
+
+        boolean isAirSection(int y) {
+            int index = Math.floorDiv(y, 16) - minSection;
+            return index < 0 || index >= palettes.length || palettes[index] == null;
+        }
+    }
+}
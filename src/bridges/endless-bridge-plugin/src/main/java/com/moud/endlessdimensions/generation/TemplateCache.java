@@ -0,0 +1,211 @@
+package com.moud.endlessdimensions.generation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-only snapshot of the pack templates, loaded once and shared by every pack build.
+ */
+public final class TemplateCache {
+    private final Path templatesRoot;
+    private final Map<String, PlaceholderTemplate> compiled = new ConcurrentHashMap<>();
+    private volatile Snapshot snapshot;
+
+    public TemplateCache(Path templatesRoot) {
+        this.templatesRoot = Objects.requireNonNull(templatesRoot, "templatesRoot");
+    }
+
+    public Path templatesRoot() {
+        return templatesRoot;
+    }
+
+    public int size() {
+        return snapshot().files.size();
+    }
+
+    TemplateFile get(String path) {
+        return snapshot().files.get(path);
+    }
+
+    Map<String, TemplateFile> files() {
+        return snapshot().files;
+    }
+
+    List<String> directories() {
+        return snapshot().directories;
+    }
+
+    // Digest of every template path and body; pack ids include it so edited templates never reuse an old pack.
+    String fingerprint() {
+        return snapshot().fingerprint;
+    }
+
+    Map<String, String> featureIds() {
+        return snapshot().featureIds;
+    }
+
+    Map<String, String> structureIds() {
+        return snapshot().structureIds;
+    }
+
+    // Templates are tokenised on first use and the result is shared by every later build.
+    PlaceholderTemplate compiled(String path) {
+        TemplateFile file = get(path);
+        if (file == null || file.text() == null) {
+            return null;
+        }
+        return compiled.computeIfAbsent(path, ignored -> PlaceholderTemplate.compile(file.text()));
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                try {
+                    snapshot = load();
+                } catch (IOException e) {
+                    throw new IllegalStateException("Failed to load templates from " + templatesRoot, e);
+                }
+            }
+            return snapshot;
+        }
+    }
+
+    private Snapshot load() throws IOException {
+        Map<String, TemplateFile> files = new TreeMap<>();
+        List<String> directories = new ArrayList<>();
+        Map<String, String> interned = new HashMap<>();
+        Map<String, byte[]> contents = new TreeMap<>();
+        try (var walk = Files.walk(templatesRoot)) {
+            for (Path source : walk.toList()) {
+                String path = relativePath(source);
+                if (path.isEmpty()) {
+                    continue;
+                }
+                if (Files.isDirectory(source)) {
+                    directories.add(path);
+                    continue;
+                }
+                byte[] bytes = Files.readAllBytes(source);
+                contents.put(path, bytes);
+                String text = decode(bytes);
+                if (text != null) {
+                    // Several templates are verbatim copies of each other; keep one string per distinct body.
+                    text = interned.computeIfAbsent(text, key -> key);
+                    bytes = null;
+                }
+                files.put(path, new TemplateFile(path, bytes, text));
+            }
+        }
+
+        Map<String, String> featureIds = new HashMap<>();
+        Map<String, String> structureIds = new HashMap<>();
+        for (TemplateFile file : files.values()) {
+            String path = file.path();
+            String name = PackWorkspace.fileName(path);
+            if (path.startsWith("features/") && file.text() != null
+                && (name.endsWith(".yml") || name.endsWith(".yaml"))) {
+                String id = readYamlId(file.text());
+                if (id != null && !id.isBlank()) {
+                    featureIds.put(id, path);
+                }
+            } else if (path.startsWith("structures/")) {
+                int dot = name.lastIndexOf('.');
+                if (dot > 0) {
+                    structureIds.put(name.substring(0, dot), path);
+                }
+            }
+        }
+
+        return new Snapshot(Collections.unmodifiableMap(files),
+            fingerprint(contents),
+            List.copyOf(directories),
+            Map.copyOf(featureIds),
+            Map.copyOf(structureIds));
+    }
+
+    private static String fingerprint(Map<String, byte[]> contents) {
+        MessageDigest digest = sha256();
+        for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+            digest.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(entry.getValue());
+            digest.update((byte) 0);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private String relativePath(Path source) {
+        Path relative = templatesRoot.relativize(source);
+        StringBuilder builder = new StringBuilder();
+        for (Path part : relative) {
+            if (!builder.isEmpty()) {
+                builder.append('/');
+            }
+            builder.append(part);
+        }
+        return builder.toString();
+    }
+
+    private static String decode(byte[] bytes) {
+        try {
+            return StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT)
+                .decode(ByteBuffer.wrap(bytes))
+                .toString();
+        } catch (CharacterCodingException e) {
+            return null;
+        }
+    }
+
+    private static String readYamlId(String content) {
+        for (String line : content.split("\\R", -1)) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith("id:")) {
+                return trimmed.substring("id:".length()).trim();
+            }
+        }
+        return null;
+    }
+
+    record TemplateFile(String path, byte[] bytes, String text) {
+        byte[] content() {
+            return text != null ? text.getBytes(StandardCharsets.UTF_8) : bytes;
+        }
+    }
+
+    private record Snapshot(Map<String, TemplateFile> files,
+                            String fingerprint,
+                            List<String> directories,
+                            Map<String, String> featureIds,
+                            Map<String, String> structureIds) {
+    }
+}
@@ -0,0 +1,47 @@
+package com.moud.endlessdimensions.portal;
+
+import net.minestom.server.instance.Instance;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Block changes collected between ticks, grouped by instance and chunk. Repeated changes to one position
+ * collapse, so a burst such as an explosion is handled once, against the blocks as they ended up.
+ */
+final class BlockUpdateQueue {
+    private final Object lock = new Object();
+    private Map<Instance, LongObjectHashMap<LongHashSet>> pending = new HashMap<>();
+
+    // Block updates can fire off the tick thread, so additions and drains share a lock.
+    void add(Instance instance, int x, int y, int z) {
+        long chunkKey = PortalIndex.chunkKey(PortalIndex.chunkCoord(x), PortalIndex.chunkCoord(z));
+        synchronized (lock) {
+            LongObjectHashMap<LongHashSet> byChunk = pending.computeIfAbsent(instance,
+                ignored -> new LongObjectHashMap<>(16));
+            LongHashSet positions = byChunk.get(chunkKey);
+            if (positions == null) {
+                positions = new LongHashSet(16);
+                byChunk.put(chunkKey, positions);
+            }
+            positions.add(PackedBlockPos.pack(x, y, z));
+        }
+    }
+
+    Map<Instance, LongObjectHashMap<LongHashSet>> drain() {
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return Map.of();
+            }
+            Map<Instance, LongObjectHashMap<LongHashSet>> drained = pending;
+            pending = new HashMap<>();
+            return drained;
+        }
+    }
+
+    void clear() {
+        synchronized (lock) {
+            pending.clear();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.moud.endlessdimensions.portal;
+
+import com.moud.endlessdimensions.dimension.DimensionKey;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Small int ids for dimension keys, so columnar tables store an int per dimension reference and
+ * views hand back one shared DimensionKey instance per id.
+ */
+final class DimensionInterner {
+    private final Map<DimensionKey, Integer> ids = new ConcurrentHashMap<>();
+    private volatile DimensionKey[] keys = new DimensionKey[8];
+    private int size;
+
+    int intern(DimensionKey dimension) {
+        Integer id = ids.get(Objects.requireNonNull(dimension, "dimension"));
+        return id != null ? id : register(dimension);
+    }
+
+    // -1 when the dimension was never interned; lookups use this so they do not grow the table.
+    int idOf(DimensionKey dimension) {
+        Integer id = ids.get(Objects.requireNonNull(dimension, "dimension"));
+        return id != null ? id : -1;
+    }
+
+    DimensionKey key(int id) {
+        return keys[id];
+    }
+
+    private synchronized int register(DimensionKey dimension) {
+        Integer existing = ids.get(dimension);
+        if (existing != null) {
+            return existing;
+        }
+        int id = size++;
+        DimensionKey[] grown = keys.length > id ? keys : Arrays.copyOf(keys, keys.length << 1);
+        grown[id] = dimension;
+        // Publish the key before the id, so any reader holding the id can resolve it.
+        keys = grown;
+        ids.put(dimension, id);
+        return id;
+    }
+}
@@ -0,0 +1,53 @@
+package com.moud.endlessdimensions.portal;
+
+import java.util.NoSuchElementException;
+
+final class LongArrayQueue {
+    private long[] elements;
+    private int head;
+    private int size;
+
+    LongArrayQueue(int initialCapacity) {
+        elements = new long[Math.max(4, Integer.highestOneBit(Math.max(1, initialCapacity - 1)) << 1)];
+    }
+
+    void add(long value) {
+        if (size == elements.length) {
+            grow();
+        }
+        elements[(head + size) & (elements.length - 1)] = value;
+        size++;
+    }
+
+    long poll() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        long value = elements[head];
+        head = (head + 1) & (elements.length - 1);
+        size--;
+        return value;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    private void grow() {
+        long[] grown = new long[elements.length << 1];
+        int firstPart = Math.min(size, elements.length - head);
+        System.arraycopy(elements, head, grown, 0, firstPart);
+        System.arraycopy(elements, 0, grown, firstPart, size - firstPart);
+        elements = grown;
+        head = 0;
+    }
+}
@@ -0,0 +1,108 @@
+package com.moud.endlessdimensions.portal;
+
+import java.util.Arrays;
+
+final class LongHashSet {
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private boolean containsZero;
+    private int size;
+    private int mask;
+    private int resizeAt;
+
+    LongHashSet(int expectedSize) {
+        int capacity = tableSize(expectedSize);
+        keys = new long[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    boolean add(long key) {
+        if (key == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int slot = LongHashing.mix(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        if (++size >= resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+
+    boolean contains(long key) {
+        if (key == 0) {
+            return containsZero;
+        }
+        int slot = LongHashing.mix(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        if (size == 0) {
+            return;
+        }
+        Arrays.fill(keys, 0L);
+        containsZero = false;
+        size = 0;
+    }
+
+    void forEach(LongConsumer consumer) {
+        if (containsZero) {
+            consumer.accept(0L);
+        }
+        for (long key : keys) {
+            if (key != 0) {
+                consumer.accept(key);
+            }
+        }
+    }
+
+    private void rehash(int capacity) {
+        long[] old = keys;
+        keys = new long[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+        for (long key : old) {
+            if (key == 0) {
+                continue;
+            }
+            int slot = LongHashing.mix(key) & mask;
+            while (keys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+        }
+    }
+
+    private static int tableSize(int expectedSize) {
+        int needed = (int) Math.ceil(Math.max(2, expectedSize) / LOAD_FACTOR);
+        return Integer.highestOneBit(needed - 1) << 1;
+    }
+
+    @FunctionalInterface
+    interface LongConsumer {
+        void accept(long value);
+    }
+}
@@ -0,0 +1,11 @@
+package com.moud.endlessdimensions.portal;
+
+final class LongHashing {
+    private LongHashing() {
+    }
+
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,22 @@
+package com.moud.endlessdimensions.portal;
+
+final class PackedBlockPos {
+    private PackedBlockPos() {
+    }
+
+    static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    static int x(long packed) {
+        return (int) (packed >> 38);
+    }
+
+    static int y(long packed) {
+        return (int) (packed << 52 >> 52);
+    }
+
+    static int z(long packed) {
+        return (int) (packed << 26 >> 38);
+    }
+}
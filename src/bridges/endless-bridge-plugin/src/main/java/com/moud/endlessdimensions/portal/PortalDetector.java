@@ -2,97 +2,227 @@ package com.moud.endlessdimensions.portal;
 
 import com.moud.endlessdimensions.dimension.DimensionKey;
 import net.minestom.server.coordinate.Point;
-import net.minestom.server.instance.Instance;
 import net.minestom.server.instance.block.Block;
 
-import java.util.ArrayDeque;
-import java.util.HashSet;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Queue;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class PortalDetector {
-    private static final String NETHER_PORTAL = "minecraft:nether_portal";
+    private static final int NETHER_PORTAL_ID = Block.NETHER_PORTAL.id();
+    private static final int INITIAL_SCRATCH_CAPACITY = 64;
+    // Cached portal blocks per dimension; past this the dimension's cache is dropped and refilled on demand.
+    private static final int MAX_CACHED_BLOCKS = 1 << 14;
 
-    public PortalKey detectPortalKey(Instance instance, Point start, DimensionKey dimensionKey) {
-        Objects.requireNonNull(instance, "instance");
+    // Flood fill buffers are reused per thread so a detection only allocates the resulting PortalKey.
+    private static final ThreadLocal<FloodScratch> SCRATCH = ThreadLocal.withInitial(FloodScratch::new);
+
+    private final Map<DimensionKey, ShapeCache> shapeCache = new ConcurrentHashMap<>();
+
+    public PortalKey detectPortalKey(Block.Getter blocks, Point start, DimensionKey dimensionKey) {
+        Objects.requireNonNull(blocks, "blocks");
         Objects.requireNonNull(start, "start");
         Objects.requireNonNull(dimensionKey, "dimensionKey");
 
-        if (!isPortalBlock(instance, start.blockX(), start.blockY(), start.blockZ())) {
+        int startX = start.blockX();
+        int startY = start.blockY();
+        int startZ = start.blockZ();
+        if (!isPortalBlock(blocks, startX, startY, startZ)) {
             return null;
         }
 
-        PortalAxis axis = detectAxis(instance, start.blockX(), start.blockY(), start.blockZ());
-        Vec3i min = new Vec3i(start.blockX(), start.blockY(), start.blockZ());
-        Vec3i max = min;
+        ShapeCache cached = shapeCache.computeIfAbsent(dimensionKey, ignored -> new ShapeCache());
+        long startPacked = PackedBlockPos.pack(startX, startY, startZ);
+        long version;
+        PortalKey hit;
+        synchronized (cached) {
+            hit = cached.shapes.get(startPacked);
+            version = cached.version;
+        }
+        if (hit != null) {
+            if (stillMatches(blocks, hit)) {
+                return hit;
+            }
+            // Changed without an update reaching invalidate (e.g. a chunk reloaded from storage).
+            synchronized (cached) {
+                evict(cached.shapes, hit);
+                version = ++cached.version;
+            }
+        }
 
-        Queue<Vec3i> queue = new ArrayDeque<>();
-        Set<Vec3i> visited = new HashSet<>();
-        queue.add(min);
-        visited.add(min);
+        PortalAxis axis = detectAxis(blocks, startX, startY, startZ);
+        FloodScratch scratch = SCRATCH.get();
+        LongArrayQueue queue = scratch.queue;
+        LongHashSet visited = scratch.visited;
+        queue.clear();
+        visited.clear();
+        queue.add(startPacked);
+        visited.add(startPacked);
 
+        int minX = startX;
+        int minY = startY;
+        int minZ = startZ;
+        int maxX = startX;
+        int maxY = startY;
+        int maxZ = startZ;
         while (!queue.isEmpty()) {
-            Vec3i current = queue.poll();
-            min = new Vec3i(
-                Math.min(min.x(), current.x()),
-                Math.min(min.y(), current.y()),
-                Math.min(min.z(), current.z())
-            );
-            max = new Vec3i(
-                Math.max(max.x(), current.x()),
-                Math.max(max.y(), current.y()),
-                Math.max(max.z(), current.z())
-            );
-
-            for (Vec3i neighbor : neighbors(current, axis)) {
-                if (visited.contains(neighbor)) {
-                    continue;
+            long current = queue.poll();
+            int x = PackedBlockPos.x(current);
+            int y = PackedBlockPos.y(current);
+            int z = PackedBlockPos.z(current);
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            minZ = Math.min(minZ, z);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            maxZ = Math.max(maxZ, z);
+
+            if (axis == PortalAxis.Z) {
+                visit(blocks, queue, visited, x + 1, y, z);
+                visit(blocks, queue, visited, x - 1, y, z);
+            } else {
+                visit(blocks, queue, visited, x, y, z + 1);
+                visit(blocks, queue, visited, x, y, z - 1);
+            }
+            visit(blocks, queue, visited, x, y + 1, z);
+            visit(blocks, queue, visited, x, y - 1, z);
+        }
+
+        PortalKey portalKey = new PortalKey(dimensionKey, axis,
+            new Vec3i(minX, minY, minZ),
+            new Vec3i(maxX, maxY, maxZ));
+        long area = (long) (maxX - minX + maxZ - minZ + 1) * (maxY - minY + 1);
+        synchronized (cached) {
+            // An invalidation that ran during the flood may have changed blocks it read; keep the result uncached.
+            // Only full rectangles are cached, since stillMatches revalidates a hit against its whole box.
+            if (cached.version == version && visited.size() == area) {
+                if (cached.shapes.size() + visited.size() > MAX_CACHED_BLOCKS) {
+                    cached.shapes = new LongObjectHashMap<>(INITIAL_SCRATCH_CAPACITY);
                 }
-                if (!isPortalBlock(instance, neighbor.x(), neighbor.y(), neighbor.z())) {
-                    continue;
+                scratch.cacheTarget = cached.shapes;
+                scratch.cacheValue = portalKey;
+                visited.forEach(scratch);
+                scratch.cacheTarget = null;
+                scratch.cacheValue = null;
+            }
+        }
+        return portalKey;
+    }
+
+    public void invalidate(DimensionKey dimensionKey, int x, int y, int z) {
+        Objects.requireNonNull(dimensionKey, "dimensionKey");
+        ShapeCache cached = shapeCache.get(dimensionKey);
+        if (cached == null) {
+            return;
+        }
+        synchronized (cached) {
+            cached.version++;
+            LongObjectHashMap<PortalKey> shapes = cached.shapes;
+            if (shapes.isEmpty()) {
+                return;
+            }
+            // A changed frame block sits next to the portal it bounds, so check the neighbours too.
+            evict(shapes, shapes.get(PackedBlockPos.pack(x, y, z)));
+            evict(shapes, shapes.get(PackedBlockPos.pack(x + 1, y, z)));
+            evict(shapes, shapes.get(PackedBlockPos.pack(x - 1, y, z)));
+            evict(shapes, shapes.get(PackedBlockPos.pack(x, y + 1, z)));
+            evict(shapes, shapes.get(PackedBlockPos.pack(x, y - 1, z)));
+            evict(shapes, shapes.get(PackedBlockPos.pack(x, y, z + 1)));
+            evict(shapes, shapes.get(PackedBlockPos.pack(x, y, z - 1)));
+        }
+    }
+
+    // Drops everything cached for a dimension whose instance was unloaded.
+    public void invalidateDimension(DimensionKey dimensionKey) {
+        Objects.requireNonNull(dimensionKey, "dimensionKey");
+        shapeCache.remove(dimensionKey);
+    }
+
+    private void visit(Block.Getter blocks, LongArrayQueue queue, LongHashSet visited, int x, int y, int z) {
+        long packed = PackedBlockPos.pack(x, y, z);
+        if (visited.contains(packed)) {
+            return;
+        }
+        if (!isPortalBlock(blocks, x, y, z)) {
+            return;
+        }
+        visited.add(packed);
+        queue.add(packed);
+    }
+
+    private void evict(LongObjectHashMap<PortalKey> cached, PortalKey portalKey) {
+        if (portalKey == null) {
+            return;
+        }
+        Vec3i min = portalKey.min();
+        Vec3i max = portalKey.max();
+        for (int x = min.x(); x <= max.x(); x++) {
+            for (int y = min.y(); y <= max.y(); y++) {
+                for (int z = min.z(); z <= max.z(); z++) {
+                    cached.remove(PackedBlockPos.pack(x, y, z), portalKey);
                 }
-                visited.add(neighbor);
-                queue.add(neighbor);
             }
         }
+    }
 
-        return PortalKey.normalize(dimensionKey, axis, min, max);
+    // Every cell of the cached rectangle must still be a portal block and no cell of the ring around it may
+    // be one, or the portal changed shape. That is the same reads as the flood, without its queue and set.
+    private boolean stillMatches(Block.Getter blocks, PortalKey portalKey) {
+        Vec3i min = portalKey.min();
+        Vec3i max = portalKey.max();
+        int stepX = portalKey.axis() == PortalAxis.Z ? 1 : 0;
+        int stepZ = 1 - stepX;
+        int span = stepX == 1 ? max.x() - min.x() : max.z() - min.z();
+        for (int i = -1; i <= span + 1; i++) {
+            int x = min.x() + i * stepX;
+            int z = min.z() + i * stepZ;
+            boolean inside = i >= 0 && i <= span;
+            if (isPortalBlock(blocks, x, min.y() - 1, z) || isPortalBlock(blocks, x, max.y() + 1, z)) {
+                return false;
+            }
+            for (int y = min.y(); y <= max.y(); y++) {
+                if (isPortalBlock(blocks, x, y, z) != inside) {
+                    return false;
+                }
+            }
+        }
+        return true;
     }
 
-    private PortalAxis detectAxis(Instance instance, int x, int y, int z) {
-        if (isPortalBlock(instance, x + 1, y, z) || isPortalBlock(instance, x - 1, y, z)) {
+    private PortalAxis detectAxis(Block.Getter blocks, int x, int y, int z) {
+        if (isPortalBlock(blocks, x + 1, y, z) || isPortalBlock(blocks, x - 1, y, z)) {
             return PortalAxis.Z;
         }
-        if (isPortalBlock(instance, x, y, z + 1) || isPortalBlock(instance, x, y, z - 1)) {
+        if (isPortalBlock(blocks, x, y, z + 1) || isPortalBlock(blocks, x, y, z - 1)) {
             return PortalAxis.X;
         }
         return PortalAxis.Z;
     }
 
-    private Iterable<Vec3i> neighbors(Vec3i current, PortalAxis axis) {
-        if (axis == PortalAxis.Z) {
-            return java.util.List.of(
-                new Vec3i(current.x() + 1, current.y(), current.z()),
-                new Vec3i(current.x() - 1, current.y(), current.z()),
-                new Vec3i(current.x(), current.y() + 1, current.z()),
-                new Vec3i(current.x(), current.y() - 1, current.z())
-            );
-        }
-        return java.util.List.of(
-            new Vec3i(current.x(), current.y(), current.z() + 1),
-            new Vec3i(current.x(), current.y(), current.z() - 1),
-            new Vec3i(current.x(), current.y() + 1, current.z()),
-            new Vec3i(current.x(), current.y() - 1, current.z())
-        );
-    }
-
-    private boolean isPortalBlock(Instance instance, int x, int y, int z) {
+    private boolean isPortalBlock(Block.Getter blocks, int x, int y, int z) {
         try {
-            Block block = instance.getBlock(x, y, z);
-            return NETHER_PORTAL.equals(block.key().asString());
+            Block block = blocks.getBlock(x, y, z);
+            return block.id() == NETHER_PORTAL_ID;
         } catch (Exception ignored) {
             return false;
         }
     }
+
+    private static final class ShapeCache {
+        private LongObjectHashMap<PortalKey> shapes = new LongObjectHashMap<>(INITIAL_SCRATCH_CAPACITY);
+        // Bumped by every invalidation, so a flood that raced one does not cache what it saw.
+        private long version;
+    }
+
+    private static final class FloodScratch implements LongHashSet.LongConsumer {
+        private final LongArrayQueue queue = new LongArrayQueue(INITIAL_SCRATCH_CAPACITY);
+        private final LongHashSet visited = new LongHashSet(INITIAL_SCRATCH_CAPACITY);
+        private LongObjectHashMap<PortalKey> cacheTarget;
+        private PortalKey cacheValue;
+
+        @Override
+        public void accept(long packed) {
+            cacheTarget.put(packed, cacheValue);
+        }
+    }
 }
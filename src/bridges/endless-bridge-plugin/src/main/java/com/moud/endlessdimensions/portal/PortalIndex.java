@@ -2,79 +2,159 @@ package com.moud.endlessdimensions.portal;
 
 import com.moud.endlessdimensions.dimension.DimensionKey;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Portals by the chunks they cover. Each dimension's chunk table is split into stripes of primitive
+ * long-keyed maps that are copied on write and never mutated once published, so lookups take no lock
+ * and hand out the stored bucket instead of a copy.
+ */
 public final class PortalIndex {
-    private final Map<DimensionKey, Map<Long, Set<PortalKey>>> portalsByChunk = new ConcurrentHashMap<>();
+    private static final int STRIPE_BITS = 6;
+    private static final int STRIPES = 1 << STRIPE_BITS;
 
+    private final Map<DimensionKey, Stripe[]> tables = new ConcurrentHashMap<>();
+
+    // Detection re-indexes the same portal on every visit; a portal already in every bucket costs only the probes.
     public void index(PortalKey portalKey) {
         Objects.requireNonNull(portalKey, "portalKey");
-        Map<Long, Set<PortalKey>> byChunk = portalsByChunk.computeIfAbsent(portalKey.dimension(),
-            ignored -> new ConcurrentHashMap<>());
-        for (long chunkKey : portalChunkKeys(portalKey)) {
-            byChunk.computeIfAbsent(chunkKey, ignored -> ConcurrentHashMap.newKeySet()).add(portalKey);
+        if (isIndexed(portalKey)) {
+            return;
         }
+        indexAll(List.of(portalKey));
     }
 
+    // Keys are grouped by stripe first, so bulk loads copy each stripe once rather than once per portal.
     public void indexAll(Collection<PortalKey> portalKeys) {
         Objects.requireNonNull(portalKeys, "portalKeys");
+        Map<DimensionKey, Map<Integer, List<Placement>>> grouped = new HashMap<>();
         for (PortalKey portalKey : portalKeys) {
-            index(portalKey);
+            Map<Integer, List<Placement>> byStripe = grouped.computeIfAbsent(portalKey.dimension(),
+                ignored -> new HashMap<>());
+            forEachChunk(portalKey, chunkKey -> byStripe.computeIfAbsent(stripeOf(chunkKey),
+                ignored -> new ArrayList<>()).add(new Placement(chunkKey, portalKey)));
         }
+        grouped.forEach((dimensionKey, byStripe) -> {
+            Stripe[] stripes = tables.computeIfAbsent(dimensionKey, ignored -> newStripes());
+            byStripe.forEach((stripe, placements) -> stripes[stripe].add(placements));
+        });
     }
 
     public void remove(PortalKey portalKey) {
         Objects.requireNonNull(portalKey, "portalKey");
-        Map<Long, Set<PortalKey>> byChunk = portalsByChunk.get(portalKey.dimension());
-        if (byChunk == null) {
+        Stripe[] stripes = tables.get(portalKey.dimension());
+        if (stripes == null) {
             return;
         }
-        for (long chunkKey : portalChunkKeys(portalKey)) {
-            Set<PortalKey> portals = byChunk.get(chunkKey);
-            if (portals == null) {
-                continue;
-            }
-            portals.remove(portalKey);
-            if (portals.isEmpty()) {
-                byChunk.remove(chunkKey);
+        forEachChunk(portalKey, chunkKey -> stripes[stripeOf(chunkKey)].remove(chunkKey, portalKey));
+    }
+
+    // Forgets every portal of the dimension; lookups find nothing until portals are indexed again.
+    public void removeDimension(DimensionKey dimensionKey) {
+        Objects.requireNonNull(dimensionKey, "dimensionKey");
+        tables.remove(dimensionKey);
+    }
+
+    public boolean hasPortals(DimensionKey dimensionKey, long chunkKey) {
+        return !get(dimensionKey, chunkKey).isEmpty();
+    }
+
+    public boolean hasPortalNear(DimensionKey dimensionKey, int x, int y, int z, int radius) {
+        Objects.requireNonNull(dimensionKey, "dimensionKey");
+        Stripe[] stripes = tables.get(dimensionKey);
+        if (stripes == null) {
+            return false;
+        }
+        for (int chunkX = chunkCoord(x - radius); chunkX <= chunkCoord(x + radius); chunkX++) {
+            for (int chunkZ = chunkCoord(z - radius); chunkZ <= chunkCoord(z + radius); chunkZ++) {
+                long chunkKey = chunkKey(chunkX, chunkZ);
+                List<PortalKey> portals = stripes[stripeOf(chunkKey)].get(chunkKey);
+                for (int i = 0; i < portals.size(); i++) {
+                    if (distanceToBox(portals.get(i), x, y, z) <= radius) {
+                        return true;
+                    }
+                }
             }
         }
-        if (byChunk.isEmpty()) {
-            portalsByChunk.remove(portalKey.dimension());
+        return false;
+    }
+
+    // Portals are at most a few chunks wide and never overlap, so the block's own chunk bucket holds
+    // every candidate; the lookup is one stripe probe plus a scan of that short bucket.
+    public PortalKey findContaining(DimensionKey dimensionKey, int x, int y, int z) {
+        List<PortalKey> portals = get(dimensionKey, chunkKey(chunkCoord(x), chunkCoord(z)));
+        for (int i = 0; i < portals.size(); i++) {
+            PortalKey portal = portals.get(i);
+            if (portal.containsBlock(x, y, z)) {
+                return portal;
+            }
         }
+        return null;
     }
 
-    public Set<PortalKey> get(DimensionKey dimensionKey, long chunkKey) {
+    // The returned list is the index's own immutable bucket; later changes publish a new one instead.
+    public List<PortalKey> get(DimensionKey dimensionKey, long chunkKey) {
         Objects.requireNonNull(dimensionKey, "dimensionKey");
-        Map<Long, Set<PortalKey>> byChunk = portalsByChunk.get(dimensionKey);
-        if (byChunk == null) {
-            return Collections.emptySet();
+        Stripe[] stripes = tables.get(dimensionKey);
+        if (stripes == null) {
+            return List.of();
         }
-        Set<PortalKey> portals = byChunk.get(chunkKey);
-        if (portals == null || portals.isEmpty()) {
-            return Collections.emptySet();
+        return stripes[stripeOf(chunkKey)].get(chunkKey);
+    }
+
+    private boolean isIndexed(PortalKey portalKey) {
+        Stripe[] stripes = tables.get(portalKey.dimension());
+        if (stripes == null) {
+            return false;
         }
-        return new HashSet<>(portals);
+        for (int chunkX = chunkCoord(portalKey.min().x()); chunkX <= chunkCoord(portalKey.max().x()); chunkX++) {
+            for (int chunkZ = chunkCoord(portalKey.min().z()); chunkZ <= chunkCoord(portalKey.max().z()); chunkZ++) {
+                long chunkKey = chunkKey(chunkX, chunkZ);
+                if (!stripes[stripeOf(chunkKey)].get(chunkKey).contains(portalKey)) {
+                    return false;
+                }
+            }
+        }
+        return true;
     }
 
-    private Iterable<Long> portalChunkKeys(PortalKey portalKey) {
+    private static void forEachChunk(PortalKey portalKey, LongHashSet.LongConsumer consumer) {
         int minChunkX = chunkCoord(portalKey.min().x());
         int maxChunkX = chunkCoord(portalKey.max().x());
         int minChunkZ = chunkCoord(portalKey.min().z());
         int maxChunkZ = chunkCoord(portalKey.max().z());
-        Set<Long> keys = new HashSet<>();
         for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
             for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
-                keys.add(chunkKey(chunkX, chunkZ));
+                consumer.accept(chunkKey(chunkX, chunkZ));
             }
         }
-        return keys;
+    }
+
+    // Chebyshev distance from a block to the portal's bounding box; 0 when inside it.
+    private static int distanceToBox(PortalKey portal, int x, int y, int z) {
+        int dx = Math.max(0, Math.max(portal.min().x() - x, x - portal.max().x()));
+        int dy = Math.max(0, Math.max(portal.min().y() - y, y - portal.max().y()));
+        int dz = Math.max(0, Math.max(portal.min().z() - z, z - portal.max().z()));
+        return Math.max(dx, Math.max(dy, dz));
+    }
+
+    // High hash bits pick the stripe; the stripe's table probes with the low bits.
+    private static int stripeOf(long chunkKey) {
+        return LongHashing.mix(chunkKey) >>> (Integer.SIZE - STRIPE_BITS);
+    }
+
+    private static Stripe[] newStripes() {
+        Stripe[] stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        return stripes;
     }
 
     public static int chunkCoord(int blockCoord) {
@@ -84,4 +164,61 @@ public final class PortalIndex {
     public static long chunkKey(int chunkX, int chunkZ) {
         return ((long) chunkX << 32) | (chunkZ & 0xffffffffL);
     }
+
+    private record Placement(long chunkKey, PortalKey portalKey) {
+    }
+
+    private static final class Stripe {
+        // Published tables are read-only; writers copy, modify and swap under the stripe's monitor.
+        private volatile LongObjectHashMap<List<PortalKey>> table = new LongObjectHashMap<>(4);
+
+        List<PortalKey> get(long chunkKey) {
+            List<PortalKey> portals = table.get(chunkKey);
+            return portals != null ? portals : List.of();
+        }
+
+        synchronized void add(List<Placement> placements) {
+            if (containsAll(placements)) {
+                return;
+            }
+            LongObjectHashMap<List<PortalKey>> copy = new LongObjectHashMap<>(table);
+            for (Placement placement : placements) {
+                List<PortalKey> current = copy.get(placement.chunkKey());
+                if (current == null) {
+                    copy.put(placement.chunkKey(), List.of(placement.portalKey()));
+                } else if (!current.contains(placement.portalKey())) {
+                    List<PortalKey> grown = new ArrayList<>(current.size() + 1);
+                    grown.addAll(current);
+                    grown.add(placement.portalKey());
+                    copy.put(placement.chunkKey(), List.copyOf(grown));
+                }
+            }
+            table = copy;
+        }
+
+        private boolean containsAll(List<Placement> placements) {
+            for (Placement placement : placements) {
+                if (!get(placement.chunkKey()).contains(placement.portalKey())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        synchronized void remove(long chunkKey, PortalKey portalKey) {
+            List<PortalKey> current = table.get(chunkKey);
+            if (current == null || !current.contains(portalKey)) {
+                return;
+            }
+            LongObjectHashMap<List<PortalKey>> copy = new LongObjectHashMap<>(table);
+            if (current.size() == 1) {
+                copy.remove(chunkKey);
+            } else {
+                List<PortalKey> shrunk = new ArrayList<>(current);
+                shrunk.remove(portalKey);
+                copy.put(chunkKey, List.copyOf(shrunk));
+            }
+            table = copy;
+        }
+    }
 }
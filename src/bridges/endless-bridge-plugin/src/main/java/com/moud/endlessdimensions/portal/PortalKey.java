@@ -22,6 +22,17 @@ public record PortalKey(DimensionKey dimension, PortalAxis axis, Vec3i min, Vec3
         return new PortalKey(dimension, axis, new Vec3i(minX, minY, minZ), new Vec3i(maxX, maxY, maxZ));
     }
 
+    // True for blocks of the portal plane itself, not its frame.
+    public boolean containsBlock(int x, int y, int z) {
+        if (y < min.y() || y > max.y()) {
+            return false;
+        }
+        if (axis == PortalAxis.Z) {
+            return z == min.z() && x >= min.x() && x <= max.x();
+        }
+        return x == min.x() && z >= min.z() && z <= max.z();
+    }
+
     public int legacyX() {
         return min.x();
     }
@@ -0,0 +1,397 @@
+package com.moud.endlessdimensions.portal;
+
+import com.moud.endlessdimensions.dimension.DimensionKey;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Portal links stored column by column in primitive arrays: dimensions are interned ids, block positions
+ * are packed longs and link ids are two longs. PortalKey and PortalLink records are only built as views
+ * when a row is read. Rows are located through an open-addressing table of row numbers hashed over the
+ * key columns, so no key objects are retained either.
+ */
+final class PortalLinkTable {
+    private static final float LOAD_FACTOR = 0.5f;
+    private static final byte NO_PORTAL = -1;
+    private static final PortalAxis[] AXES = PortalAxis.values();
+    private static final LinkType[] LINK_TYPES = LinkType.values();
+
+    private final DimensionInterner dimensions;
+
+    private int[] keyDimension;
+    private byte[] keyAxis;
+    private long[] keyMin;
+    private long[] keyMax;
+    private byte[] linkType;
+    private long[] linkIdMost;
+    private long[] linkIdLeast;
+    private int[] destDimension;
+    private double[] destX;
+    private double[] destY;
+    private double[] destZ;
+    private float[] destYaw;
+    private float[] destPitch;
+    private byte[] destAxis;
+    private long[] destMin;
+    private long[] destMax;
+    private int rows;
+
+    // Row number + 1 per slot; 0 marks an empty slot.
+    private int[] slots;
+    private int mask;
+    private int resizeAt;
+
+    PortalLinkTable(DimensionInterner dimensions, int expectedSize) {
+        this.dimensions = Objects.requireNonNull(dimensions, "dimensions");
+        allocateColumns(Math.max(4, expectedSize));
+        int needed = (int) Math.ceil(Math.max(2, expectedSize) / LOAD_FACTOR);
+        allocateSlots(Integer.highestOneBit(needed - 1) << 1);
+    }
+
+    private PortalLinkTable(PortalLinkTable source) {
+        dimensions = source.dimensions;
+        int length = Math.max(4, source.rows);
+        keyDimension = Arrays.copyOf(source.keyDimension, length);
+        keyAxis = Arrays.copyOf(source.keyAxis, length);
+        keyMin = Arrays.copyOf(source.keyMin, length);
+        keyMax = Arrays.copyOf(source.keyMax, length);
+        linkType = Arrays.copyOf(source.linkType, length);
+        linkIdMost = Arrays.copyOf(source.linkIdMost, length);
+        linkIdLeast = Arrays.copyOf(source.linkIdLeast, length);
+        destDimension = Arrays.copyOf(source.destDimension, length);
+        destX = Arrays.copyOf(source.destX, length);
+        destY = Arrays.copyOf(source.destY, length);
+        destZ = Arrays.copyOf(source.destZ, length);
+        destYaw = Arrays.copyOf(source.destYaw, length);
+        destPitch = Arrays.copyOf(source.destPitch, length);
+        destAxis = Arrays.copyOf(source.destAxis, length);
+        destMin = Arrays.copyOf(source.destMin, length);
+        destMax = Arrays.copyOf(source.destMax, length);
+        rows = source.rows;
+        slots = source.slots.clone();
+        mask = source.mask;
+        resizeAt = source.resizeAt;
+    }
+
+    synchronized int size() {
+        return rows;
+    }
+
+    synchronized PortalLink get(PortalKey key) {
+        int row = find(key);
+        return row < 0 ? null : linkAt(row);
+    }
+
+    // Both portals are validated before anything is written, so a rejected put leaves the table unchanged.
+    synchronized void put(PortalKey key, PortalLink link) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(link, "link");
+        checkPackable(key);
+        PortalKey destinationPortal = link.destination().portalKey();
+        if (destinationPortal != null) {
+            checkPackable(destinationPortal);
+        }
+        int row = find(key);
+        if (row < 0) {
+            if (rows == keyMin.length) {
+                growColumns(rows + (rows >> 1));
+            }
+            row = rows++;
+            writeKey(row, key);
+            insertSlot(row);
+            if (rows >= resizeAt) {
+                allocateSlots(slots.length << 1);
+                for (int i = 0; i < rows; i++) {
+                    insertSlot(i);
+                }
+            }
+        }
+        writeLink(row, link);
+    }
+
+    // The last row moves into the freed one, so the columns stay dense.
+    synchronized boolean remove(PortalKey key) {
+        int row = find(key);
+        if (row < 0) {
+            return false;
+        }
+        removeSlot(slotOf(row));
+        int last = --rows;
+        if (row != last) {
+            slots[slotOf(last)] = row + 1;
+            copyRow(last, row);
+        }
+        return true;
+    }
+
+    // A detached copy that later writes to this table do not affect; copying is a handful of array clones.
+    synchronized PortalLinkTable snapshot() {
+        return new PortalLinkTable(this);
+    }
+
+    // Read-only view, not safe against concurrent writes; iterate a snapshot() from other threads.
+    Map<PortalKey, PortalLink> asMap() {
+        return new MapView();
+    }
+
+    PortalKey keyAt(int row) {
+        return new PortalKey(dimensions.key(keyDimension[row]), AXES[keyAxis[row]], unpack(keyMin[row]),
+            unpack(keyMax[row]));
+    }
+
+    PortalLink linkAt(int row) {
+        DimensionKey dimension = dimensions.key(destDimension[row]);
+        PortalKey portal = destAxis[row] == NO_PORTAL ? null
+            : new PortalKey(dimension, AXES[destAxis[row]], unpack(destMin[row]), unpack(destMax[row]));
+        DestinationRef destination = new DestinationRef(dimension, destX[row], destY[row], destZ[row],
+            destYaw[row], destPitch[row], portal);
+        return new PortalLink(LINK_TYPES[linkType[row]], new UUID(linkIdMost[row], linkIdLeast[row]), destination);
+    }
+
+    private int find(PortalKey key) {
+        Objects.requireNonNull(key, "key");
+        int dimension = dimensions.idOf(key.dimension());
+        if (dimension < 0) {
+            return -1;
+        }
+        if (!packable(key.min()) || !packable(key.max())) {
+            return -1;
+        }
+        byte axis = (byte) key.axis().ordinal();
+        long min = pack(key.min());
+        long max = pack(key.max());
+        int slot = hash(dimension, axis, min, max) & mask;
+        while (slots[slot] != 0) {
+            int row = slots[slot] - 1;
+            if (keyMin[row] == min && keyMax[row] == max && keyAxis[row] == axis && keyDimension[row] == dimension) {
+                return row;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void writeKey(int row, PortalKey key) {
+        keyDimension[row] = dimensions.intern(key.dimension());
+        keyAxis[row] = (byte) key.axis().ordinal();
+        keyMin[row] = pack(key.min());
+        keyMax[row] = pack(key.max());
+    }
+
+    private void writeLink(int row, PortalLink link) {
+        DestinationRef destination = link.destination();
+        linkType[row] = (byte) link.type().ordinal();
+        linkIdMost[row] = link.linkId().getMostSignificantBits();
+        linkIdLeast[row] = link.linkId().getLeastSignificantBits();
+        destDimension[row] = dimensions.intern(destination.dimension());
+        destX[row] = destination.x();
+        destY[row] = destination.y();
+        destZ[row] = destination.z();
+        destYaw[row] = destination.yaw();
+        destPitch[row] = destination.pitch();
+        PortalKey portal = destination.portalKey();
+        if (portal == null) {
+            destAxis[row] = NO_PORTAL;
+            destMin[row] = 0L;
+            destMax[row] = 0L;
+        } else {
+            destAxis[row] = (byte) portal.axis().ordinal();
+            destMin[row] = pack(portal.min());
+            destMax[row] = pack(portal.max());
+        }
+    }
+
+    private void copyRow(int from, int to) {
+        keyDimension[to] = keyDimension[from];
+        keyAxis[to] = keyAxis[from];
+        keyMin[to] = keyMin[from];
+        keyMax[to] = keyMax[from];
+        linkType[to] = linkType[from];
+        linkIdMost[to] = linkIdMost[from];
+        linkIdLeast[to] = linkIdLeast[from];
+        destDimension[to] = destDimension[from];
+        destX[to] = destX[from];
+        destY[to] = destY[from];
+        destZ[to] = destZ[from];
+        destYaw[to] = destYaw[from];
+        destPitch[to] = destPitch[from];
+        destAxis[to] = destAxis[from];
+        destMin[to] = destMin[from];
+        destMax[to] = destMax[from];
+    }
+
+    private int rowHash(int row) {
+        return hash(keyDimension[row], keyAxis[row], keyMin[row], keyMax[row]);
+    }
+
+    private static int hash(int dimension, byte axis, long min, long max) {
+        return LongHashing.mix(min * 31 + max + ((long) dimension << 1 | axis));
+    }
+
+    private void insertSlot(int row) {
+        int slot = rowHash(row) & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = row + 1;
+    }
+
+    private int slotOf(int row) {
+        int slot = rowHash(row) & mask;
+        while (slots[slot] != row + 1) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // Backward-shift deletion, as in LongObjectHashMap.
+    private void removeSlot(int slot) {
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (slots[next] != 0) {
+            int ideal = rowHash(slots[next] - 1) & mask;
+            if (((next - ideal) & mask) >= ((next - gap) & mask)) {
+                slots[gap] = slots[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        slots[gap] = 0;
+    }
+
+    private void allocateSlots(int capacity) {
+        slots = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void allocateColumns(int capacity) {
+        keyDimension = new int[capacity];
+        keyAxis = new byte[capacity];
+        keyMin = new long[capacity];
+        keyMax = new long[capacity];
+        linkType = new byte[capacity];
+        linkIdMost = new long[capacity];
+        linkIdLeast = new long[capacity];
+        destDimension = new int[capacity];
+        destX = new double[capacity];
+        destY = new double[capacity];
+        destZ = new double[capacity];
+        destYaw = new float[capacity];
+        destPitch = new float[capacity];
+        destAxis = new byte[capacity];
+        destMin = new long[capacity];
+        destMax = new long[capacity];
+    }
+
+    private void growColumns(int capacity) {
+        keyDimension = Arrays.copyOf(keyDimension, capacity);
+        keyAxis = Arrays.copyOf(keyAxis, capacity);
+        keyMin = Arrays.copyOf(keyMin, capacity);
+        keyMax = Arrays.copyOf(keyMax, capacity);
+        linkType = Arrays.copyOf(linkType, capacity);
+        linkIdMost = Arrays.copyOf(linkIdMost, capacity);
+        linkIdLeast = Arrays.copyOf(linkIdLeast, capacity);
+        destDimension = Arrays.copyOf(destDimension, capacity);
+        destX = Arrays.copyOf(destX, capacity);
+        destY = Arrays.copyOf(destY, capacity);
+        destZ = Arrays.copyOf(destZ, capacity);
+        destYaw = Arrays.copyOf(destYaw, capacity);
+        destPitch = Arrays.copyOf(destPitch, capacity);
+        destAxis = Arrays.copyOf(destAxis, capacity);
+        destMin = Arrays.copyOf(destMin, capacity);
+        destMax = Arrays.copyOf(destMax, capacity);
+    }
+
+    // PackedBlockPos keeps 26 bits for x and z and 12 for y, which covers every valid world position.
+    private static long pack(Vec3i position) {
+        if (!packable(position)) {
+            throw new IllegalArgumentException("Portal position out of range: " + position);
+        }
+        return PackedBlockPos.pack(position.x(), position.y(), position.z());
+    }
+
+    // Whether put() would take this entry; entries read from disk are checked with this instead of throwing.
+    static boolean accepts(PortalKey key, PortalLink link) {
+        PortalKey destinationPortal = link.destination().portalKey();
+        return packable(key.min()) && packable(key.max())
+            && (destinationPortal == null || packable(destinationPortal.min()) && packable(destinationPortal.max()));
+    }
+
+    private static void checkPackable(PortalKey portal) {
+        if (!packable(portal.min()) || !packable(portal.max())) {
+            throw new IllegalArgumentException("Portal position out of range: " + portal);
+        }
+    }
+
+    private static boolean packable(Vec3i position) {
+        long packed = PackedBlockPos.pack(position.x(), position.y(), position.z());
+        return PackedBlockPos.x(packed) == position.x() && PackedBlockPos.y(packed) == position.y()
+            && PackedBlockPos.z(packed) == position.z();
+    }
+
+    private static Vec3i unpack(long packed) {
+        return new Vec3i(PackedBlockPos.x(packed), PackedBlockPos.y(packed), PackedBlockPos.z(packed));
+    }
+
+    private final class MapView extends AbstractMap<PortalKey, PortalLink> {
+        @Override
+        public int size() {
+            return rows;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof PortalKey portalKey && find(portalKey) >= 0;
+        }
+
+        @Override
+        public PortalLink get(Object key) {
+            if (!(key instanceof PortalKey portalKey)) {
+                return null;
+            }
+            int row = find(portalKey);
+            return row < 0 ? null : linkAt(row);
+        }
+
+        @Override
+        public Set<Entry<PortalKey, PortalLink>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return rows;
+                }
+
+                @Override
+                public Iterator<Entry<PortalKey, PortalLink>> iterator() {
+                    return new Iterator<>() {
+                        private int row;
+
+                        @Override
+                        public boolean hasNext() {
+                            return row < rows;
+                        }
+
+                        @Override
+                        public Entry<PortalKey, PortalLink> next() {
+                            if (row >= rows) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<PortalKey, PortalLink> entry = Map.entry(keyAt(row), linkAt(row));
+                            row++;
+                            return entry;
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
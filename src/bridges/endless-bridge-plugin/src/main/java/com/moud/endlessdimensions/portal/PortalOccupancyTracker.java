@@ -0,0 +1,100 @@
+package com.moud.endlessdimensions.portal;
+
+import com.moud.endlessdimensions.dimension.DimensionKey;
+import net.minestom.server.coordinate.Point;
+import net.minestom.server.entity.Entity;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.instance.block.Block;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Limits portal detection to entities that entered a new block, so idle or far-away entities cost nothing.
+ */
+public final class PortalOccupancyTracker {
+    private static final int NETHER_PORTAL_ID = Block.NETHER_PORTAL.id();
+
+    private final PortalIndex portalIndex;
+    private final Map<UUID, Entity> watched = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> lastBlocks = new ConcurrentHashMap<>();
+
+    public PortalOccupancyTracker(PortalIndex portalIndex) {
+        this.portalIndex = Objects.requireNonNull(portalIndex, "portalIndex");
+    }
+
+    public void watch(Entity entity) {
+        Objects.requireNonNull(entity, "entity");
+        watched.put(entity.getUuid(), entity);
+    }
+
+    public void retry(Entity entity) {
+        Objects.requireNonNull(entity, "entity");
+        watched.put(entity.getUuid(), entity);
+        lastBlocks.remove(entity.getUuid());
+    }
+
+    // Tests the entity's current block on the next tick; spawning or teleporting into a portal moves no block.
+    public void seed(Entity entity) {
+        retry(entity);
+    }
+
+    public void forget(UUID uuid) {
+        watched.remove(uuid);
+        lastBlocks.remove(uuid);
+    }
+
+    public Collection<Entity> watched() {
+        return watched.values();
+    }
+
+    public void clear() {
+        watched.clear();
+        lastBlocks.clear();
+    }
+
+    public boolean blockChanged(Point from, Point to) {
+        return from.blockX() != to.blockX() || from.blockY() != to.blockY() || from.blockZ() != to.blockZ();
+    }
+
+    public boolean shouldTest(Entity entity, Instance instance, DimensionKey dimensionKey) {
+        Point position = entity.getPosition();
+        long packed = PackedBlockPos.pack(position.blockX(), position.blockY(), position.blockZ());
+        Long previous = lastBlocks.put(entity.getUuid(), packed);
+        if (previous != null && previous == packed) {
+            return false;
+        }
+        return isPortalCandidate(instance, dimensionKey, position);
+    }
+
+    // Resting outside a portal block, the entity cannot enter a portal until a velocity change, a teleport
+    // or a portal lit around it, all of which watch it again.
+    public boolean isAtRest(Entity entity, Instance instance) {
+        if (!entity.isOnGround() || entity.hasVelocity()) {
+            return false;
+        }
+        Point position = entity.getPosition();
+        try {
+            return instance.getBlock(position.blockX(), position.blockY(), position.blockZ()).id() != NETHER_PORTAL_ID;
+        } catch (Exception ignored) {
+            return true;
+        }
+    }
+
+    public boolean isPortalCandidate(Instance instance, DimensionKey dimensionKey, Point position) {
+        long chunkKey = PortalIndex.chunkKey(PortalIndex.chunkCoord(position.blockX()),
+            PortalIndex.chunkCoord(position.blockZ()));
+        if (portalIndex.hasPortals(dimensionKey, chunkKey)) {
+            return true;
+        }
+        try {
+            Block block = instance.getBlock(position.blockX(), position.blockY(), position.blockZ());
+            return block.id() == NETHER_PORTAL_ID;
+        } catch (Exception ignored) {
+            return false;
+        }
+    }
+}
@@ -1,60 +1,389 @@
 package com.moud.endlessdimensions.portal;
 
+import com.moud.endlessdimensions.codec.StorageFormat;
+import com.moud.endlessdimensions.dimension.DimensionKey;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
+/**
+ * Portal links sharded by source dimension. A dimension's segment is read and indexed the first time
+ * the dimension is used and dropped again when it unloads, so only bindings for active dimensions are
+ * resident, and resident links are kept in a columnar PortalLinkTable rather than as records.
+ */
 public final class PortalRegistry {
-    private final PortalRegistryStore store;
-    private final Map<PortalKey, PortalLink> links = new ConcurrentHashMap<>();
-    private final Map<LegacyKey, LegacyLink> legacyLinks = new ConcurrentHashMap<>();
+    public static final Duration DEFAULT_SAVE_WINDOW = Duration.ofSeconds(2);
+    public static final String SAVE_WINDOW_PROPERTY = "endless.portal.saveWindowMs";
+    public static final long DEFAULT_COMPACTION_THRESHOLD_BYTES = 1L << 20;
+
+    private final Path segmentsDir;
+    private final boolean journaled;
+    private final StorageFormat format;
+    private final PortalRegistryStore combinedStore;
+    private final PortalRegistrySaver saver;
+    private final long compactionThresholdBytes;
+    private final PortalIndex index;
+    private final Logger logger;
+    private final Map<DimensionKey, Segment> segments = new ConcurrentHashMap<>();
+    private final Map<DimensionKey, CompletableFuture<Segment>> loading = new ConcurrentHashMap<>();
+    private final DimensionInterner dimensions = new DimensionInterner();
+    private final ExecutorService segmentLoader = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("endless-portal-segment-loader-", 0).factory());
+
+    public PortalRegistry(Path segmentsDir, boolean journaled, Duration saveWindow, PortalIndex index, Logger logger) {
+        this(segmentsDir, journaled, null, saveWindow, DEFAULT_COMPACTION_THRESHOLD_BYTES, index, logger);
+    }
+
+    public PortalRegistry(Path segmentsDir,
+                          boolean journaled,
+                          PortalRegistryStore combinedStore,
+                          Duration saveWindow,
+                          long compactionThresholdBytes,
+                          PortalIndex index,
+                          Logger logger) {
+        this(segmentsDir, journaled, StorageFormat.JSON, combinedStore, saveWindow, compactionThresholdBytes, index, logger);
+    }
 
-    public PortalRegistry(PortalRegistryStore store) {
-        this.store = Objects.requireNonNull(store, "store");
+    // combinedStore is the pre-sharding single bindings file; when present it is split into segments on load.
+    // format selects how segment snapshots are written; both formats are read.
+    public PortalRegistry(Path segmentsDir,
+                          boolean journaled,
+                          StorageFormat format,
+                          PortalRegistryStore combinedStore,
+                          Duration saveWindow,
+                          long compactionThresholdBytes,
+                          PortalIndex index,
+                          Logger logger) {
+        this.segmentsDir = Objects.requireNonNull(segmentsDir, "segmentsDir");
+        this.journaled = journaled;
+        this.format = Objects.requireNonNull(format, "format");
+        this.combinedStore = combinedStore;
+        this.compactionThresholdBytes = compactionThresholdBytes;
+        this.index = Objects.requireNonNull(index, "index");
+        this.logger = Objects.requireNonNull(logger, "logger");
+        this.saver = new PortalRegistrySaver(this::writeSegments, saveWindow, logger);
+    }
+
+    // -Dendless.portal.saveWindowMs=N sets how long save requests are coalesced; unset keeps DEFAULT_SAVE_WINDOW.
+    public static Duration configuredSaveWindow() {
+        String value = System.getProperty(SAVE_WINDOW_PROPERTY);
+        if (value == null || value.isBlank()) {
+            return DEFAULT_SAVE_WINDOW;
+        }
+        try {
+            return Duration.ofMillis(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + SAVE_WINDOW_PROPERTY + ": " + value, e);
+        }
     }
 
     public void load() {
-        PortalRegistrySnapshot snapshot = store.load();
-        links.clear();
-        legacyLinks.clear();
-        links.putAll(snapshot.links());
-        legacyLinks.putAll(snapshot.legacyLinks());
+        migrateCombinedStore();
+        saver.start();
+    }
+
+    // Reads and indexes the dimension's segment off the calling thread; called when its instance appears.
+    // A lookup that arrives first waits for the same read.
+    public CompletableFuture<Void> loadDimension(DimensionKey dimension) {
+        Objects.requireNonNull(dimension, "dimension");
+        return loadSegment(dimension)
+            .thenAccept(segment -> segment.evictWhenWritten = false)
+            .exceptionally(error -> {
+                logger.warn("[PortalRegistry] Failed to load bindings for {}", dimension.id(), error);
+                return null;
+            });
+    }
+
+    // Tick-thread callers check this and retry later rather than wait for a segment read.
+    public boolean isLoaded(DimensionKey dimension) {
+        return segments.containsKey(Objects.requireNonNull(dimension, "dimension"));
+    }
+
+    // Drops the dimension's segment and its index entries; called when its instance goes away. A segment
+    // with changes still to write stays until the saver has written it.
+    public void unloadDimension(DimensionKey dimension) {
+        Objects.requireNonNull(dimension, "dimension");
+        Segment segment = segments.get(dimension);
+        if (segment == null) {
+            return;
+        }
+        if (segment.needsWrite()) {
+            segment.evictWhenWritten = true;
+            saver.requestSave();
+            return;
+        }
+        evict(dimension, segment);
+    }
+
+    public Set<DimensionKey> loadedDimensions() {
+        return Collections.unmodifiableSet(segments.keySet());
     }
 
     public void save() {
-        store.save(links, legacyLinks);
+        for (Segment segment : segments.values()) {
+            if (segment.needsWrite()) {
+                saver.requestSave();
+                return;
+            }
+        }
+    }
+
+    public void close() {
+        segmentLoader.shutdown();
+        saver.close();
+        segments.values().forEach(segment -> segment.store.close());
+    }
+
+    public PortalRegistrySaveStats saveStats() {
+        return saver.stats();
     }
 
     public PortalLink getLink(PortalKey key) {
-        return links.get(key);
+        Segment segment = segment(key.dimension());
+        PortalLink link = segment.links.get(key);
+        return link != null || segment.outOfRange.isEmpty() ? link : segment.outOfRange.get(key);
     }
 
     public LegacyLink getLegacy(LegacyKey key) {
-        return legacyLinks.get(key);
+        return segment(new DimensionKey(key.dimension())).legacyLinks.get(key);
     }
 
     public void putLink(PortalKey key, PortalLink link) {
-        links.put(key, link);
+        Segment segment = segment(key.dimension());
+        segment.links.put(key, link);
+        if (!segment.outOfRange.isEmpty()) {
+            segment.outOfRange.remove(key);
+        }
+        index.index(key);
+        segment.store.appendPut(key, link);
+        appended(segment);
     }
 
     public void removeLink(PortalKey key) {
-        links.remove(key);
+        Segment segment = segment(key.dimension());
+        if (segment.links.remove(key) | segment.outOfRange.remove(key) != null) {
+            index.remove(key);
+            segment.store.appendRemove(key);
+            appended(segment);
+        }
     }
 
     public void putLegacy(LegacyKey key, LegacyLink link) {
-        legacyLinks.put(key, link);
+        Segment segment = segment(new DimensionKey(key.dimension()));
+        segment.legacyLinks.put(key, link);
+        segment.store.appendPutLegacy(key, link);
+        appended(segment);
     }
 
     public void removeLegacy(LegacyKey key) {
-        legacyLinks.remove(key);
+        Segment segment = segment(new DimensionKey(key.dimension()));
+        if (segment.legacyLinks.remove(key) != null) {
+            segment.store.appendRemoveLegacy(key);
+            appended(segment);
+        }
     }
 
+    // Only resident segments are included.
     public Map<PortalKey, PortalLink> links() {
-        return Collections.unmodifiableMap(links);
+        Map<PortalKey, PortalLink> loaded = new HashMap<>();
+        segments.values().forEach(segment -> loaded.putAll(segment.linksSnapshot()));
+        return Collections.unmodifiableMap(loaded);
     }
 
     public Map<LegacyKey, LegacyLink> legacyLinks() {
-        return Collections.unmodifiableMap(legacyLinks);
+        Map<LegacyKey, LegacyLink> loaded = new HashMap<>();
+        segments.values().forEach(segment -> loaded.putAll(segment.legacyLinks));
+        return Collections.unmodifiableMap(loaded);
+    }
+
+    // A segment that is not resident is read on the loader, never on the calling thread; the caller waits.
+    private Segment segment(DimensionKey dimension) {
+        Objects.requireNonNull(dimension, "dimension");
+        Segment existing = segments.get(dimension);
+        return existing != null ? existing : loadSegment(dimension).join();
+    }
+
+    // The only path that opens a segment, so concurrent loads and lookups share one read and one store.
+    private CompletableFuture<Segment> loadSegment(DimensionKey dimension) {
+        Segment existing = segments.get(dimension);
+        if (existing != null) {
+            return CompletableFuture.completedFuture(existing);
+        }
+        CompletableFuture<Segment> created = new CompletableFuture<>();
+        CompletableFuture<Segment> pending = loading.putIfAbsent(dimension, created);
+        if (pending != null) {
+            return pending;
+        }
+        try {
+            segmentLoader.execute(() -> {
+                try {
+                    created.complete(segments.computeIfAbsent(dimension, this::openSegment));
+                } catch (Throwable e) {
+                    created.completeExceptionally(e);
+                } finally {
+                    loading.remove(dimension, created);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            loading.remove(dimension, created);
+            created.completeExceptionally(e);
+        }
+        return created;
+    }
+
+    // A mutation that raced an eviction reopened the evicted store's journal to append; close it again.
+    private void appended(Segment segment) {
+        segment.dirty = true;
+        if (segment.evicted) {
+            segment.store.close();
+        }
+    }
+
+    private Segment openSegment(DimensionKey dimension) {
+        long started = System.nanoTime();
+        PortalRegistryStore store = PortalRegistryStore.forSegment(segmentsDir, dimension, journaled, format, logger);
+        PortalRegistrySnapshot snapshot = store.load();
+        Segment segment = new Segment(store, snapshot.links().size());
+        snapshot.links().forEach((key, link) -> {
+            if (PortalLinkTable.accepts(key, link)) {
+                segment.links.put(key, link);
+            } else {
+                segment.outOfRange.put(key, link);
+            }
+        });
+        if (!segment.outOfRange.isEmpty()) {
+            // Positions the table cannot pack; kept as records so the segment still opens and they are saved back.
+            logger.warn("[PortalRegistry] {} bindings for {} have out-of-range positions", segment.outOfRange.size(),
+                dimension.id());
+        }
+        segment.legacyLinks.putAll(snapshot.legacyLinks());
+        index.indexAll(snapshot.links().keySet());
+        // Leftover journal records stay on disk until a save rotates them and writes a snapshot taken after
+        // the rotation; marking the segment dirty makes the next save do that.
+        segment.dirty = store.journaled() && store.journalBytes() > 0;
+        if (!snapshot.links().isEmpty() || !snapshot.legacyLinks().isEmpty()) {
+            logger.debug("[PortalRegistry] Loaded {} links for {} in {} us", snapshot.links().size(), dimension.id(),
+                (System.nanoTime() - started) / 1_000L);
+        }
+        return segment;
+    }
+
+    private long writeSegments() {
+        long written = 0;
+        for (Map.Entry<DimensionKey, Segment> entry : segments.entrySet()) {
+            Segment segment = entry.getValue();
+            if (segment.needsWrite()) {
+                segment.dirty = false;
+                // The store rotates its journal before asking for the contents; a snapshot taken earlier would
+                // miss a mutation appended to the journal being rotated, which is then deleted.
+                long bytes = segment.store.save(() -> new PortalRegistrySnapshot(segment.linksSnapshot(),
+                    Map.copyOf(segment.legacyLinks)));
+                if (bytes < 0) {
+                    segment.dirty = true;
+                    return -1;
+                }
+                written += bytes;
+            }
+            if (segment.evictWhenWritten) {
+                evict(entry.getKey(), segment);
+            }
+        }
+        return written;
+    }
+
+    // A mutation racing the eviction still reaches the journal; appended() closes what the append reopened.
+    private void evict(DimensionKey dimension, Segment segment) {
+        if (!segments.remove(dimension, segment)) {
+            return;
+        }
+        segment.evicted = true;
+        index.removeDimension(dimension);
+        segment.store.close();
+        logger.debug("[PortalRegistry] Unloaded {} links for {}", segment.links.size(), dimension.id());
+    }
+
+    // Each segment is written straight to disk and left unloaded, so migrating keeps nothing resident.
+    private void migrateCombinedStore() {
+        if (combinedStore == null || !combinedStore.exists()) {
+            return;
+        }
+        PortalRegistrySnapshot combined = combinedStore.load();
+        Map<DimensionKey, PortalRegistrySnapshot> split = new HashMap<>();
+        combined.links().forEach((key, link) -> split.computeIfAbsent(key.dimension(), PortalRegistry::emptySnapshot)
+            .links().put(key, link));
+        combined.legacyLinks().forEach((key, link) -> split.computeIfAbsent(new DimensionKey(key.dimension()),
+            PortalRegistry::emptySnapshot).legacyLinks().put(key, link));
+
+        for (Map.Entry<DimensionKey, PortalRegistrySnapshot> entry : split.entrySet()) {
+            PortalRegistryStore store = PortalRegistryStore.forSegment(segmentsDir, entry.getKey(), journaled, format,
+                logger);
+            PortalRegistrySnapshot existing = store.load();
+            existing.links().forEach(entry.getValue().links()::putIfAbsent);
+            existing.legacyLinks().forEach(entry.getValue().legacyLinks()::putIfAbsent);
+            long written = store.save(entry.getValue().links(), entry.getValue().legacyLinks());
+            store.close();
+            if (written < 0) {
+                logger.warn("[PortalRegistry] Keeping combined bindings; segment for {} could not be written",
+                    entry.getKey().id());
+                return;
+            }
+        }
+        try {
+            combinedStore.retire();
+        } catch (IOException e) {
+            logger.warn("[PortalRegistry] Failed to retire combined bindings after migration", e);
+        }
+        logger.info("[PortalRegistry] Split {} links into {} dimension segments",
+            combined.links().size(), split.size());
+    }
+
+    private static PortalRegistrySnapshot emptySnapshot(DimensionKey ignored) {
+        return new PortalRegistrySnapshot(new HashMap<>(), new HashMap<>());
+    }
+
+    private final class Segment {
+        private final PortalRegistryStore store;
+        private final PortalLinkTable links;
+        private final Map<LegacyKey, LegacyLink> legacyLinks = new ConcurrentHashMap<>();
+        private final Map<PortalKey, PortalLink> outOfRange = new ConcurrentHashMap<>();
+        private volatile boolean dirty;
+        private volatile boolean evictWhenWritten;
+        private volatile boolean evicted;
+
+        private Segment(PortalRegistryStore store, int expectedLinks) {
+            this.store = store;
+            this.links = new PortalLinkTable(dimensions, expectedLinks);
+        }
+
+        private Map<PortalKey, PortalLink> linksSnapshot() {
+            Map<PortalKey, PortalLink> snapshot = links.snapshot().asMap();
+            if (outOfRange.isEmpty()) {
+                return snapshot;
+            }
+            Map<PortalKey, PortalLink> merged = new HashMap<>(snapshot);
+            merged.putAll(outOfRange);
+            return merged;
+        }
+
+        // Journal appends are forced to disk, so the snapshot is only rewritten to compact the journal or to
+        // cover a mutation whose append failed.
+        private boolean needsWrite() {
+            if (!dirty) {
+                return false;
+            }
+            return !store.journaled() || store.appendFailed() || store.journalBytes() >= compactionThresholdBytes;
+        }
     }
 }
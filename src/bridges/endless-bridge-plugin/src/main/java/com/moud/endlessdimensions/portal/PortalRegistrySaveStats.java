@@ -0,0 +1,10 @@
+package com.moud.endlessdimensions.portal;
+
+public record PortalRegistrySaveStats(long requests,
+                                      long flushes,
+                                      long failures,
+                                      long bytesWritten,
+                                      long lastBytesWritten,
+                                      long lastFlushNanos,
+                                      long maxFlushNanos) {
+}
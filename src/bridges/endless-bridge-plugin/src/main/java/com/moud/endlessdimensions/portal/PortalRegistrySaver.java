@@ -0,0 +1,155 @@
+package com.moud.endlessdimensions.portal;
+
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Write-behind saver: save requests mark the registry dirty and a background thread writes once per window.
+ */
+public final class PortalRegistrySaver {
+    private static final String THREAD_NAME = "endless-portal-saver";
+    private static final long CLOSE_TIMEOUT_MS = 10_000;
+
+    private final LongSupplier writer;
+    private final long windowNanos;
+    private final Logger logger;
+    private final Object lock = new Object();
+
+    private Thread thread;
+    private boolean dirty;
+    private boolean closing;
+    private long requests;
+    private long flushes;
+    private long failures;
+    private long bytesWritten;
+    private long lastBytesWritten;
+    private long lastFlushNanos;
+    private long maxFlushNanos;
+
+    public PortalRegistrySaver(LongSupplier writer, Duration window, Logger logger) {
+        this.writer = Objects.requireNonNull(writer, "writer");
+        this.logger = Objects.requireNonNull(logger, "logger");
+        Objects.requireNonNull(window, "window");
+        if (window.isNegative()) {
+            throw new IllegalArgumentException("window must not be negative");
+        }
+        this.windowNanos = window.toNanos();
+    }
+
+    public void start() {
+        synchronized (lock) {
+            if (thread != null) {
+                return;
+            }
+            closing = false;
+            thread = new Thread(this::run, THREAD_NAME);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    public void requestSave() {
+        boolean inline;
+        synchronized (lock) {
+            requests++;
+            inline = thread == null;
+            if (!inline) {
+                dirty = true;
+                lock.notifyAll();
+            }
+        }
+        if (inline) {
+            flushNow();
+        }
+    }
+
+    public void close() {
+        Thread current;
+        synchronized (lock) {
+            current = thread;
+            if (current == null) {
+                return;
+            }
+            closing = true;
+            lock.notifyAll();
+        }
+        try {
+            current.join(CLOSE_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        boolean pending;
+        synchronized (lock) {
+            thread = null;
+            pending = dirty;
+            dirty = false;
+        }
+        if (current.isAlive()) {
+            logger.warn("[PortalRegistrySaver] Saver thread did not stop within {} ms", CLOSE_TIMEOUT_MS);
+        }
+        if (pending) {
+            flushNow();
+        }
+    }
+
+    public PortalRegistrySaveStats stats() {
+        synchronized (lock) {
+            return new PortalRegistrySaveStats(requests, flushes, failures, bytesWritten,
+                lastBytesWritten, lastFlushNanos, maxFlushNanos);
+        }
+    }
+
+    private void run() {
+        while (true) {
+            synchronized (lock) {
+                try {
+                    while (!dirty && !closing) {
+                        lock.wait();
+                    }
+                    if (!dirty) {
+                        return;
+                    }
+                    // Hold the write back for the window so a burst of portal events becomes one rewrite.
+                    long deadline = System.nanoTime() + windowNanos;
+                    long remaining;
+                    while (!closing && (remaining = deadline - System.nanoTime()) > 0) {
+                        TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                dirty = false;
+            }
+            flushNow();
+        }
+    }
+
+    private void flushNow() {
+        long started = System.nanoTime();
+        long written;
+        try {
+            written = writer.getAsLong();
+        } catch (RuntimeException e) {
+            logger.warn("[PortalRegistrySaver] Failed to save portal registry", e);
+            written = -1;
+        }
+        long elapsed = System.nanoTime() - started;
+        synchronized (lock) {
+            lastFlushNanos = elapsed;
+            maxFlushNanos = Math.max(maxFlushNanos, elapsed);
+            if (written < 0) {
+                failures++;
+                return;
+            }
+            flushes++;
+            bytesWritten += written;
+            lastBytesWritten = written;
+        }
+        logger.debug("[PortalRegistrySaver] Saved {} bytes in {} us", written, TimeUnit.NANOSECONDS.toMicros(elapsed));
+    }
+}
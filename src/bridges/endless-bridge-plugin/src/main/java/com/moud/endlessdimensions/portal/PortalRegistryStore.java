@@ -5,117 +5,603 @@ import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.moud.endlessdimensions.codec.BinaryInput;
+import com.moud.endlessdimensions.codec.BinaryOutput;
+import com.moud.endlessdimensions.codec.StorageFormat;
 import com.moud.endlessdimensions.dimension.DimensionKey;
 import org.slf4j.Logger;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 public final class PortalRegistryStore {
     private static final int CURRENT_VERSION = 2;
+    private static final String OP_PUT = "put";
+    private static final String OP_REMOVE = "remove";
+    private static final String OP_PUT_LEGACY = "put_legacy";
+    private static final String OP_REMOVE_LEGACY = "remove_legacy";
+    private static final String SEGMENT_EXTENSION = ".json";
+    private static final String RETIRED_SUFFIX = ".migrated";
+    private static final byte[] BINARY_MAGIC = {'E', 'D', 'P', 'B'};
+    private static final int MAX_BINARY_ENTRIES = 1 << 26;
 
     private final Path file;
     private final Logger logger;
     private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private final Gson journalGson = new Gson();
+    private final boolean journaled;
+    private final StorageFormat format;
+    private final Path journalFile;
+    private final Path compactingFile;
+    private final Object journalLock = new Object();
+    private FileChannel journalChannel;
+    private long journalBytes;
+    private boolean appendFailed;
 
     public PortalRegistryStore(Path file, Logger logger) {
+        this(file, false, logger);
+    }
+
+    // In journaled mode mutations are appended as NDJSON records and the snapshot is only rewritten on compaction.
+    public PortalRegistryStore(Path file, boolean journaled, Logger logger) {
+        this(file, journaled, StorageFormat.JSON, logger);
+    }
+
+    // file names the JSON snapshot; a binary snapshot sits beside it as .bin. Either is read, format picks
+    // which one is written. Journals stay NDJSON in both cases.
+    public PortalRegistryStore(Path file, boolean journaled, StorageFormat format, Logger logger) {
         this.file = Objects.requireNonNull(file, "file");
         this.logger = Objects.requireNonNull(logger, "logger");
+        this.format = Objects.requireNonNull(format, "format");
+        this.journaled = journaled;
+        this.journalFile = file.resolveSibling(file.getFileName() + ".journal");
+        this.compactingFile = file.resolveSibling(file.getFileName() + ".journal.compacting");
+    }
+
+    // One segment per source dimension: <segmentsDir>/<dimension id>.json plus its own journal.
+    public static PortalRegistryStore forSegment(Path segmentsDir, DimensionKey dimension, boolean journaled, Logger logger) {
+        return forSegment(segmentsDir, dimension, journaled, StorageFormat.JSON, logger);
+    }
+
+    public static PortalRegistryStore forSegment(Path segmentsDir,
+                                                 DimensionKey dimension,
+                                                 boolean journaled,
+                                                 StorageFormat format,
+                                                 Logger logger) {
+        Objects.requireNonNull(segmentsDir, "segmentsDir");
+        Objects.requireNonNull(dimension, "dimension");
+        return new PortalRegistryStore(segmentsDir.resolve(segmentName(dimension.id()) + SEGMENT_EXTENSION),
+            journaled, format, logger);
+    }
+
+    public boolean exists() {
+        return Files.exists(file) || Files.exists(snapshotPath(StorageFormat.BINARY)) || Files.exists(journalFile)
+            || Files.exists(compactingFile) || Files.exists(legacyPath());
+    }
+
+    // Renames the file and its journals aside once their bindings have been copied into segments.
+    public void retire() throws IOException {
+        close();
+        for (Path path : new Path[] {file, snapshotPath(StorageFormat.BINARY), journalFile, compactingFile, legacyPath()}) {
+            if (Files.exists(path)) {
+                Files.move(path, path.resolveSibling(path.getFileName() + RETIRED_SUFFIX),
+                    StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    public boolean journaled() {
+        return journaled;
+    }
+
+    public long journalBytes() {
+        synchronized (journalLock) {
+            return journalBytes;
+        }
+    }
+
+    // True once an append has failed; that mutation is only in memory until the next snapshot is written.
+    public boolean appendFailed() {
+        synchronized (journalLock) {
+            return appendFailed;
+        }
     }
 
     public PortalRegistrySnapshot load() {
         Map<PortalKey, PortalLink> links = new LinkedHashMap<>();
         Map<LegacyKey, LegacyLink> legacyLinks = new LinkedHashMap<>();
 
-        Path source = file;
+        // The configured format's snapshot first; the other one is only there if the format was switched
+        // and nothing has been saved since.
+        Path source = snapshotPath(format);
         if (!Files.exists(source)) {
-            Path legacyPath = file.getParent().resolve("plugin-data").resolve(file.getFileName());
-            if (Files.exists(legacyPath)) {
+            Path otherFormat = snapshotPath(format == StorageFormat.JSON ? StorageFormat.BINARY : StorageFormat.JSON);
+            Path legacyPath = legacyPath();
+            if (Files.exists(otherFormat)) {
+                source = otherFormat;
+            } else if (Files.exists(legacyPath)) {
                 source = legacyPath;
                 logger.info("[PortalRegistryStore] Loading legacy bindings from {}", legacyPath);
             } else {
-                return new PortalRegistrySnapshot(links, legacyLinks);
+                source = null;
             }
         }
 
-        try {
-            String json = Files.readString(source, StandardCharsets.UTF_8);
-            JsonObject root = gson.fromJson(json, JsonObject.class);
-            if (root == null) {
-                return new PortalRegistrySnapshot(links, legacyLinks);
+        if (source != null) {
+            loadSnapshot(source, links, legacyLinks);
+        }
+        if (journaled) {
+            // A leftover compacting journal predates the live one, so it is replayed first.
+            long replayed = replayJournal(compactingFile, links, legacyLinks) + replayJournal(journalFile, links, legacyLinks);
+            synchronized (journalLock) {
+                journalBytes = sizeOf(compactingFile) + sizeOf(journalFile);
+            }
+            if (replayed > 0) {
+                logger.info("[PortalRegistryStore] Replayed {} journal records for {}", replayed, file);
             }
+        }
+        return new PortalRegistrySnapshot(links, legacyLinks);
+    }
 
-            int version = root.has("version") ? root.get("version").getAsInt() : 1;
-            JsonArray bindings = root.getAsJsonArray("bindings");
-            if (bindings != null) {
-                for (JsonElement element : bindings) {
-                    if (!element.isJsonObject()) {
-                        continue;
-                    }
-                    JsonObject binding = element.getAsJsonObject();
-                    if (version >= 2 && binding.has("from") && binding.getAsJsonObject("from").has("axis")) {
-                        PortalKey key = parsePortalKey(binding.getAsJsonObject("from"));
-                        PortalLink link = parsePortalLink(binding);
-                        if (key != null && link != null) {
-                            links.put(key, link);
-                        }
-                    } else {
-                        parseLegacyBinding(binding, legacyLinks);
+    private void loadSnapshot(Path source, Map<PortalKey, PortalLink> links, Map<LegacyKey, LegacyLink> legacyLinks) {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(source))) {
+            // Read into scratch maps so a file that fails halfway contributes nothing, as a bad JSON file does.
+            PortalRegistrySnapshot snapshot = read(in);
+            links.putAll(snapshot.links());
+            legacyLinks.putAll(snapshot.legacyLinks());
+        } catch (Exception e) {
+            logger.warn("[PortalRegistryStore] Failed to load {}", source, e);
+        }
+    }
+
+    // Reads a snapshot in either format from a stream; used by load() and by the format converter.
+    public PortalRegistrySnapshot read(InputStream in) throws IOException {
+        Map<PortalKey, PortalLink> links = new LinkedHashMap<>();
+        Map<LegacyKey, LegacyLink> legacyLinks = new LinkedHashMap<>();
+        readSnapshot(in.markSupported() ? in : new BufferedInputStream(in), links, legacyLinks);
+        return new PortalRegistrySnapshot(links, legacyLinks);
+    }
+
+    public void write(Map<PortalKey, PortalLink> links,
+                      Map<LegacyKey, LegacyLink> legacyLinks,
+                      StorageFormat format,
+                      OutputStream out) throws IOException {
+        Objects.requireNonNull(format, "format");
+        if (format == StorageFormat.BINARY) {
+            writeBinary(links, legacyLinks, out);
+        } else {
+            writeJson(links, legacyLinks, out);
+        }
+    }
+
+    private void readSnapshot(InputStream in, Map<PortalKey, PortalLink> links, Map<LegacyKey, LegacyLink> legacyLinks)
+        throws IOException {
+        if (StorageFormat.detect(in, BINARY_MAGIC) == StorageFormat.BINARY) {
+            readBinary(in, links, legacyLinks);
+            return;
+        }
+        JsonObject root = gson.fromJson(new InputStreamReader(in, StandardCharsets.UTF_8), JsonObject.class);
+        if (root == null) {
+            return;
+        }
+        int version = root.has("version") ? root.get("version").getAsInt() : 1;
+        JsonArray bindings = root.getAsJsonArray("bindings");
+        if (bindings != null) {
+            for (JsonElement element : bindings) {
+                if (!element.isJsonObject()) {
+                    continue;
+                }
+                JsonObject binding = element.getAsJsonObject();
+                if (version >= 2 && binding.has("from") && binding.getAsJsonObject("from").has("axis")) {
+                    PortalKey key = parsePortalKey(binding.getAsJsonObject("from"));
+                    PortalLink link = parsePortalLink(binding);
+                    if (key != null && link != null) {
+                        links.put(key, link);
                     }
+                } else {
+                    parseLegacyBinding(binding, legacyLinks);
                 }
             }
+        }
 
-            JsonArray legacy = root.getAsJsonArray("legacy");
-            if (legacy != null) {
-                for (JsonElement element : legacy) {
-                    if (!element.isJsonObject()) {
-                        continue;
-                    }
-                    parseLegacyBinding(element.getAsJsonObject(), legacyLinks);
+        JsonArray legacy = root.getAsJsonArray("legacy");
+        if (legacy != null) {
+            for (JsonElement element : legacy) {
+                if (!element.isJsonObject()) {
+                    continue;
                 }
+                parseLegacyBinding(element.getAsJsonObject(), legacyLinks);
             }
-        } catch (Exception e) {
-            logger.warn("[PortalRegistryStore] Failed to load {}", file, e);
         }
+    }
 
-        return new PortalRegistrySnapshot(links, legacyLinks);
+    public long save(Map<PortalKey, PortalLink> links, Map<LegacyKey, LegacyLink> legacyLinks) {
+        Objects.requireNonNull(links, "links");
+        Objects.requireNonNull(legacyLinks, "legacyLinks");
+        return save(() -> new PortalRegistrySnapshot(links, legacyLinks));
     }
 
-    public void save(Map<PortalKey, PortalLink> links, Map<LegacyKey, LegacyLink> legacyLinks) {
+    // contents is called after the journal has been rotated. Callers apply a mutation to their maps before
+    // appending it, so every record in the rotated journal is reflected in the snapshot taken here.
+    public long save(Supplier<PortalRegistrySnapshot> contents) {
+        Objects.requireNonNull(contents, "contents");
+        Path target = snapshotPath(format);
         try {
             Files.createDirectories(file.getParent());
-
-            JsonObject root = new JsonObject();
-            root.addProperty("version", CURRENT_VERSION);
-            JsonArray bindings = new JsonArray();
-            for (Map.Entry<PortalKey, PortalLink> entry : links.entrySet()) {
-                bindings.add(serializeBinding(entry.getKey(), entry.getValue()));
+            if (journaled) {
+                rotateJournal();
             }
-            root.add("bindings", bindings);
 
-            if (!legacyLinks.isEmpty()) {
-                JsonArray legacy = new JsonArray();
-                for (Map.Entry<LegacyKey, LegacyLink> entry : legacyLinks.entrySet()) {
-                    legacy.add(serializeLegacyBinding(entry.getKey(), entry.getValue()));
-                }
-                root.add("legacy", legacy);
+            PortalRegistrySnapshot snapshot = contents.get();
+            Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                write(snapshot.links(), snapshot.legacyLinks(), format, out);
             }
-
-            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
-            Files.writeString(temp, gson.toJson(root), StandardCharsets.UTF_8);
+            long written = Files.size(temp);
             try {
-                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
             } catch (Exception e) {
-                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            // After a format switch the old snapshot is stale; load() would otherwise fall back to it.
+            Files.deleteIfExists(snapshotPath(format == StorageFormat.JSON ? StorageFormat.BINARY : StorageFormat.JSON));
+            if (journaled) {
+                // The snapshot was taken after the rotation, so it covers every record in the rotated journal.
+                Files.deleteIfExists(compactingFile);
             }
+            return written;
         } catch (Exception e) {
-            logger.warn("[PortalRegistryStore] Failed to save {}", file, e);
+            logger.warn("[PortalRegistryStore] Failed to save {}", target, e);
+            return -1;
+        }
+    }
+
+    private void writeJson(Map<PortalKey, PortalLink> links, Map<LegacyKey, LegacyLink> legacyLinks, OutputStream out)
+        throws IOException {
+        JsonObject root = new JsonObject();
+        root.addProperty("version", CURRENT_VERSION);
+        JsonArray bindings = new JsonArray();
+        for (Map.Entry<PortalKey, PortalLink> entry : links.entrySet()) {
+            bindings.add(serializeBinding(entry.getKey(), entry.getValue()));
+        }
+        root.add("bindings", bindings);
+
+        if (!legacyLinks.isEmpty()) {
+            JsonArray legacy = new JsonArray();
+            for (Map.Entry<LegacyKey, LegacyLink> entry : legacyLinks.entrySet()) {
+                legacy.add(serializeLegacyBinding(entry.getKey(), entry.getValue()));
+            }
+            root.add("legacy", legacy);
+        }
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        gson.toJson(root, writer);
+        writer.flush();
+    }
+
+    // Binary layout, version CURRENT_VERSION: binding count, bindings, legacy count, legacy bindings.
+    // Positions are zigzag varints with max stored relative to min; dimension ids, axes and link types go
+    // through the string table. Bindings are written one at a time, no intermediate tree is built.
+    private void writeBinary(Map<PortalKey, PortalLink> links, Map<LegacyKey, LegacyLink> legacyLinks, OutputStream out)
+        throws IOException {
+        BinaryOutput output = new BinaryOutput(out);
+        output.writeHeader(BINARY_MAGIC, CURRENT_VERSION);
+        output.writeVarInt(links.size());
+        int written = 0;
+        for (Map.Entry<PortalKey, PortalLink> entry : links.entrySet()) {
+            written++;
+            PortalKey key = entry.getKey();
+            PortalLink link = entry.getValue();
+            output.writeString(key.dimension().id());
+            writeBinaryPortalKey(output, key);
+            output.writeString(link.type().name());
+            output.writeLong(link.linkId().getMostSignificantBits());
+            output.writeLong(link.linkId().getLeastSignificantBits());
+
+            DestinationRef destination = link.destination();
+            output.writeString(destination.dimension().id());
+            output.writeDouble(destination.x());
+            output.writeDouble(destination.y());
+            output.writeDouble(destination.z());
+            output.writeFloat(destination.yaw());
+            output.writeFloat(destination.pitch());
+            output.writeBoolean(destination.portalKey() != null);
+            if (destination.portalKey() != null) {
+                writeBinaryPortalKey(output, destination.portalKey());
+            }
+        }
+        if (written != links.size()) {
+            // The count is written up front; a map that changed underneath would leave a corrupt file.
+            throw new IOException("Bindings changed while being written");
+        }
+
+        List<Map.Entry<LegacyKey, LegacyLink>> legacy = List.copyOf(legacyLinks.entrySet());
+        output.writeVarInt(legacy.size());
+        for (Map.Entry<LegacyKey, LegacyLink> entry : legacy) {
+            output.writeString(entry.getKey().dimension());
+            output.writeSignedVarInt(entry.getKey().x());
+            output.writeSignedVarInt(entry.getKey().z());
+            output.writeString(entry.getValue().toDimension());
+        }
+        output.flush();
+    }
+
+    private void readBinary(InputStream in, Map<PortalKey, PortalLink> links, Map<LegacyKey, LegacyLink> legacyLinks)
+        throws IOException {
+        BinaryInput input = new BinaryInput(in);
+        int version = input.readHeader(BINARY_MAGIC);
+        if (version != CURRENT_VERSION) {
+            // The binary layout starts at version 2; a newer file needs a newer reader.
+            throw new IOException("Unsupported binary portal bindings version: " + version);
+        }
+        // Each distinct id decodes to one shared DimensionKey.
+        Map<String, DimensionKey> dimensions = new HashMap<>();
+        int count = input.readCount(MAX_BINARY_ENTRIES);
+        for (int i = 0; i < count; i++) {
+            DimensionKey dimension = dimensions.computeIfAbsent(input.readRequiredString("dimension"), DimensionKey::new);
+            PortalKey key = readBinaryPortalKey(input, dimension);
+            LinkType type = LinkType.valueOf(input.readRequiredString("type"));
+            UUID linkId = new UUID(input.readLong(), input.readLong());
+
+            DimensionKey destinationDimension = dimensions.computeIfAbsent(input.readRequiredString("to.dimension"),
+                DimensionKey::new);
+            double x = input.readDouble();
+            double y = input.readDouble();
+            double z = input.readDouble();
+            float yaw = input.readFloat();
+            float pitch = input.readFloat();
+            PortalKey destinationPortal = input.readBoolean() ? readBinaryPortalKey(input, destinationDimension) : null;
+            links.put(key, new PortalLink(type, linkId,
+                new DestinationRef(destinationDimension, x, y, z, yaw, pitch, destinationPortal)));
+        }
+
+        int legacyCount = input.readCount(MAX_BINARY_ENTRIES);
+        for (int i = 0; i < legacyCount; i++) {
+            String dimension = input.readRequiredString("dimension");
+            int x = input.readSignedVarInt();
+            int z = input.readSignedVarInt();
+            legacyLinks.put(new LegacyKey(dimension, x, z), new LegacyLink(input.readRequiredString("toDimension")));
+        }
+    }
+
+    private static void writeBinaryPortalKey(BinaryOutput output, PortalKey key) throws IOException {
+        output.writeString(key.axis().name());
+        output.writeSignedVarInt(key.min().x());
+        output.writeSignedVarInt(key.min().y());
+        output.writeSignedVarInt(key.min().z());
+        output.writeSignedVarInt(key.max().x() - key.min().x());
+        output.writeSignedVarInt(key.max().y() - key.min().y());
+        output.writeSignedVarInt(key.max().z() - key.min().z());
+    }
+
+    private static PortalKey readBinaryPortalKey(BinaryInput input, DimensionKey dimension) throws IOException {
+        PortalAxis axis = PortalAxis.valueOf(input.readRequiredString("axis"));
+        int minX = input.readSignedVarInt();
+        int minY = input.readSignedVarInt();
+        int minZ = input.readSignedVarInt();
+        Vec3i min = new Vec3i(minX, minY, minZ);
+        Vec3i max = new Vec3i(minX + input.readSignedVarInt(), minY + input.readSignedVarInt(),
+            minZ + input.readSignedVarInt());
+        return PortalKey.normalize(dimension, axis, min, max);
+    }
+
+    public void appendPut(PortalKey key, PortalLink link) {
+        if (!journaled) {
+            return;
+        }
+        JsonObject record = serializeBinding(key, link);
+        record.addProperty("op", OP_PUT);
+        appendRecord(record);
+    }
+
+    public void appendRemove(PortalKey key) {
+        if (!journaled) {
+            return;
+        }
+        JsonObject record = new JsonObject();
+        record.addProperty("op", OP_REMOVE);
+        record.add("from", serializePortalKey(key));
+        appendRecord(record);
+    }
+
+    public void appendPutLegacy(LegacyKey key, LegacyLink link) {
+        if (!journaled) {
+            return;
+        }
+        JsonObject record = serializeLegacyBinding(key, link);
+        record.addProperty("op", OP_PUT_LEGACY);
+        appendRecord(record);
+    }
+
+    public void appendRemoveLegacy(LegacyKey key) {
+        if (!journaled) {
+            return;
+        }
+        JsonObject record = new JsonObject();
+        record.addProperty("op", OP_REMOVE_LEGACY);
+        record.add("from", serializeLegacyKey(key));
+        appendRecord(record);
+    }
+
+    public void close() {
+        synchronized (journalLock) {
+            closeJournalWriter();
+        }
+    }
+
+    // Each record is forced to disk before returning, so an appended mutation survives a crash.
+    private void appendRecord(JsonObject record) {
+        byte[] line = (journalGson.toJson(record) + '\n').getBytes(StandardCharsets.UTF_8);
+        synchronized (journalLock) {
+            try {
+                if (journalChannel == null) {
+                    Files.createDirectories(journalFile.getParent());
+                    journalChannel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(line);
+                while (buffer.hasRemaining()) {
+                    journalChannel.write(buffer);
+                }
+                journalChannel.force(false);
+                journalBytes += line.length;
+            } catch (IOException e) {
+                logger.warn("[PortalRegistryStore] Failed to append to {}", journalFile, e);
+                appendFailed = true;
+                closeJournalWriter();
+            }
+        }
+    }
+
+    private void rotateJournal() throws IOException {
+        synchronized (journalLock) {
+            closeJournalWriter();
+            if (Files.exists(journalFile)) {
+                if (Files.exists(compactingFile)) {
+                    // An earlier compaction failed; keep its records ahead of the newer ones.
+                    Files.write(compactingFile, Files.readAllBytes(journalFile), StandardOpenOption.APPEND);
+                    Files.delete(journalFile);
+                } else {
+                    Files.move(journalFile, compactingFile, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            journalBytes = 0;
+            appendFailed = false;
+        }
+    }
+
+    private void closeJournalWriter() {
+        if (journalChannel == null) {
+            return;
+        }
+        try {
+            journalChannel.close();
+        } catch (IOException e) {
+            logger.warn("[PortalRegistryStore] Failed to close {}", journalFile, e);
+        }
+        journalChannel = null;
+    }
+
+    private long replayJournal(Path path, Map<PortalKey, PortalLink> links, Map<LegacyKey, LegacyLink> legacyLinks) {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        long applied = 0;
+        int lineNumber = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    if (applyJournalRecord(gson.fromJson(line, JsonObject.class), links, legacyLinks)) {
+                        applied++;
+                    }
+                } catch (Exception e) {
+                    logger.warn("[PortalRegistryStore] Skipping unreadable journal record {}:{}", path, lineNumber);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("[PortalRegistryStore] Failed to replay {}", path, e);
+        }
+        return applied;
+    }
+
+    private boolean applyJournalRecord(JsonObject record, Map<PortalKey, PortalLink> links, Map<LegacyKey, LegacyLink> legacyLinks) {
+        String op = record != null ? getString(record, "op") : null;
+        if (op == null) {
+            return false;
+        }
+        JsonObject from = record.getAsJsonObject("from");
+        switch (op) {
+            case OP_PUT -> {
+                PortalKey key = from != null ? parsePortalKey(from) : null;
+                PortalLink link = parsePortalLink(record);
+                if (key == null || link == null) {
+                    return false;
+                }
+                links.put(key, link);
+                return true;
+            }
+            case OP_REMOVE -> {
+                PortalKey key = from != null ? parsePortalKey(from) : null;
+                if (key == null) {
+                    return false;
+                }
+                links.remove(key);
+                return true;
+            }
+            case OP_PUT_LEGACY -> {
+                parseLegacyBinding(record, legacyLinks);
+                return true;
+            }
+            case OP_REMOVE_LEGACY -> {
+                String dimension = from != null ? getString(from, "dimension") : null;
+                Integer x = from != null ? getIntObj(from, "x") : null;
+                Integer z = from != null ? getIntObj(from, "z") : null;
+                if (dimension == null || x == null || z == null) {
+                    return false;
+                }
+                legacyLinks.remove(new LegacyKey(dimension, x, z));
+                return true;
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    private Path snapshotPath(StorageFormat snapshotFormat) {
+        if (snapshotFormat == StorageFormat.JSON) {
+            return file;
+        }
+        String name = file.getFileName().toString();
+        String base = name.endsWith(SEGMENT_EXTENSION) ? name.substring(0, name.length() - SEGMENT_EXTENSION.length()) : name;
+        return file.resolveSibling(base + snapshotFormat.extension());
+    }
+
+    private Path legacyPath() {
+        return file.getParent().resolve("plugin-data").resolve(file.getFileName());
+    }
+
+    private static String segmentName(String dimensionId) {
+        StringBuilder builder = new StringBuilder(dimensionId.length());
+        for (int i = 0; i < dimensionId.length(); i++) {
+            char c = dimensionId.charAt(i);
+            boolean safe = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '_' || c == '.';
+            builder.append(safe ? c : '_');
+        }
+        return builder.toString();
+    }
+
+    private long sizeOf(Path path) {
+        try {
+            return Files.exists(path) ? Files.size(path) : 0;
+        } catch (IOException e) {
+            return 0;
         }
     }
 
@@ -230,13 +716,17 @@ public final class PortalRegistryStore {
 
     private JsonObject serializeLegacyBinding(LegacyKey key, LegacyLink link) {
         JsonObject binding = new JsonObject();
+        binding.add("from", serializeLegacyKey(key));
+        binding.addProperty("toDimension", link.toDimension());
+        return binding;
+    }
+
+    private JsonObject serializeLegacyKey(LegacyKey key) {
         JsonObject from = new JsonObject();
         from.addProperty("dimension", key.dimension());
         from.addProperty("x", key.x());
         from.addProperty("z", key.z());
-        binding.add("from", from);
-        binding.addProperty("toDimension", link.toDimension());
-        return binding;
+        return from;
     }
 
     private JsonObject serializeVec(Vec3i vec) {
@@ -1,6 +1,7 @@
 package com.moud.endlessdimensions.portal;
 
 import com.moud.endlessdimensions.base.BaseWorldRegistry;
+import com.moud.endlessdimensions.codec.StorageFormat;
 import com.moud.endlessdimensions.dimension.DimensionKey;
 import com.moud.endlessdimensions.dimension.DimensionKeys;
 import com.moud.endlessdimensions.generation.BiomeSlot;
@@ -8,6 +9,7 @@ import com.moud.endlessdimensions.generation.BiomeSubsetPicker;
 import com.moud.endlessdimensions.generation.BiomeTemplateId;
 import com.moud.endlessdimensions.generation.BiomeTemplatePicker;
 import com.moud.endlessdimensions.generation.BiomeTemplateSelection;
+import com.moud.endlessdimensions.generation.ChunkPregenerator;
 import com.moud.endlessdimensions.generation.DimensionService;
 import com.moud.endlessdimensions.generation.PaletteDefinition;
 import com.moud.endlessdimensions.generation.ResolvedDimensionKey;
@@ -25,21 +27,34 @@ import net.minestom.server.entity.Player;
 import net.minestom.server.event.Event;
 import net.minestom.server.event.EventNode;
 import net.minestom.server.event.entity.EntityDespawnEvent;
-import net.minestom.server.event.entity.EntityTickEvent;
+import net.minestom.server.event.entity.EntitySpawnEvent;
+import net.minestom.server.event.entity.EntityTeleportEvent;
+import net.minestom.server.event.entity.EntityVelocityEvent;
 import net.minestom.server.event.instance.InstanceBlockUpdateEvent;
+import net.minestom.server.event.instance.InstanceRegisterEvent;
+import net.minestom.server.event.instance.InstanceUnregisterEvent;
+import net.minestom.server.event.player.PlayerMoveEvent;
+import net.minestom.server.event.player.PlayerSpawnEvent;
+import net.minestom.server.instance.Chunk;
 import net.minestom.server.instance.Instance;
 import net.minestom.server.instance.InstanceContainer;
 import net.minestom.server.instance.InstanceManager;
+import net.minestom.server.instance.Section;
+import net.minestom.server.instance.batch.AbsoluteBlockBatch;
 import net.minestom.server.instance.block.Block;
+import net.minestom.server.instance.palette.Palette;
 import net.minestom.server.item.ItemStack;
 import net.minestom.server.item.Material;
 import net.minestom.server.item.book.FilteredText;
 import net.minestom.server.item.component.WritableBookContent;
 import net.minestom.server.item.component.WrittenBookContent;
+import net.minestom.server.timer.Task;
+import net.minestom.server.timer.TaskSchedule;
 import net.minestom.server.world.DimensionType;
 import org.slf4j.Logger;
 
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -49,14 +64,24 @@ import java.util.Objects;
 import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 public final class PortalRouter {
     private static final String NODE_NAME = "endless-portal-router";
     private static final double PLAYER_SEARCH_RADIUS = 6.0;
+    // A thrown book lands a few blocks from where it spawned, so this covers a throw aimed at a portal.
+    private static final int SPECULATIVE_BUILD_RADIUS = 8;
     private static final long TELEPORT_COOLDOWN_MS = 3000;
-    private static final String NETHER_PORTAL = "minecraft:nether_portal";
+    private static final int ARRIVAL_WARMUP_RADIUS = ChunkPregenerator.DEFAULT_RADIUS;
+    // A slow warm-up delays the teleport at most this long; the rest keeps loading after arrival.
+    private static final long ARRIVAL_WARMUP_TIMEOUT_MS = 5000;
+    private static final int NETHER_PORTAL_ID = Block.NETHER_PORTAL.id();
+    private static final int PORTAL_STATE_X = Block.NETHER_PORTAL.withProperty("axis", "x").stateId();
+    private static final int PORTAL_STATE_Z = Block.NETHER_PORTAL.withProperty("axis", "z").stateId();
 
     private static final List<String> OVERWORLD_SURFACE = List.of(
         "minecraft:grass_block",
@@ -109,26 +134,52 @@ public final class PortalRouter {
     private final PortalDetector portalDetector;
     private final PortalRegistry portalRegistry;
     private final PortalIndex portalIndex;
+    private final PortalOccupancyTracker occupancyTracker;
     private final Logger logger;
     private final EventNode<Event> parentNode;
     private final EventNode<Event> node;
     private final Set<UUID> processedItems = ConcurrentHashMap.newKeySet();
     private final Map<UUID, Long> playerTeleportCooldowns = new ConcurrentHashMap<>();
+    private final Map<UUID, ChunkPregenerator.Job> arrivalWarmups = new ConcurrentHashMap<>();
+    // Portals whose blocks are being written by this router; updates inside their frames are our own.
+    private final Set<PortalKey> placingPortals = ConcurrentHashMap.newKeySet();
+    private final BlockUpdateQueue blockUpdates = new BlockUpdateQueue();
+    private Task watchTask;
     private boolean registered;
 
     public PortalRouter(EventNode<Event> parentNode,
                         DimensionService dimensionService,
                         Path dataDir,
                         Logger logger) {
+        this(parentNode, dimensionService, dataDir, PortalRegistry.DEFAULT_SAVE_WINDOW, logger);
+    }
+
+    public PortalRouter(EventNode<Event> parentNode,
+                        DimensionService dimensionService,
+                        Path dataDir,
+                        Duration registrySaveWindow,
+                        Logger logger) {
+        this(parentNode, dimensionService, dataDir, registrySaveWindow, StorageFormat.JSON, logger);
+    }
+
+    public PortalRouter(EventNode<Event> parentNode,
+                        DimensionService dimensionService,
+                        Path dataDir,
+                        Duration registrySaveWindow,
+                        StorageFormat storageFormat,
+                        Logger logger) {
         this.parentNode = Objects.requireNonNull(parentNode, "parentNode");
         this.dimensionService = Objects.requireNonNull(dimensionService, "dimensionService");
         this.logger = Objects.requireNonNull(logger, "logger");
         Objects.requireNonNull(dataDir, "dataDir");
         this.node = EventNode.all(NODE_NAME);
         this.portalDetector = new PortalDetector();
-        PortalRegistryStore store = new PortalRegistryStore(dataDir.resolve("portal-bindings.json"), logger);
-        this.portalRegistry = new PortalRegistry(store);
+        // Bindings used to live in one file; it is split into the per-dimension segments on first load.
+        PortalRegistryStore combinedStore = new PortalRegistryStore(dataDir.resolve("portal-bindings.json"), true, logger);
         this.portalIndex = new PortalIndex();
+        this.portalRegistry = new PortalRegistry(dataDir.resolve("portal-bindings"), true, storageFormat, combinedStore,
+            registrySaveWindow, PortalRegistry.DEFAULT_COMPACTION_THRESHOLD_BYTES, portalIndex, logger);
+        this.occupancyTracker = new PortalOccupancyTracker(portalIndex);
     }
 
     public void register() {
@@ -136,11 +187,23 @@ public final class PortalRouter {
             return;
         }
         parentNode.addChild(node);
-        node.addListener(EntityTickEvent.class, this::onEntityTick);
+        node.addListener(PlayerMoveEvent.class, this::onPlayerMove);
+        node.addListener(PlayerSpawnEvent.class, event -> occupancyTracker.seed(event.getPlayer()));
+        node.addListener(EntityTeleportEvent.class, this::onEntityTeleport);
+        node.addListener(EntityVelocityEvent.class, this::onEntityVelocity);
+        node.addListener(EntitySpawnEvent.class, this::onEntitySpawn);
         node.addListener(EntityDespawnEvent.class, this::onEntityDespawn);
         node.addListener(InstanceBlockUpdateEvent.class, this::onBlockUpdate);
+        node.addListener(InstanceRegisterEvent.class, this::onInstanceRegister);
+        node.addListener(InstanceUnregisterEvent.class, this::onInstanceUnregister);
         portalRegistry.load();
-        portalIndex.indexAll(portalRegistry.links().keySet());
+        // Segments for later instances load from onInstanceRegister; these already exist.
+        for (Instance instance : MinecraftServer.getInstanceManager().getInstances()) {
+            portalRegistry.loadDimension(DimensionKeys.fromInstance(instance));
+        }
+        watchTask = MinecraftServer.getSchedulerManager().buildTask(this::tick)
+            .repeat(TaskSchedule.nextTick())
+            .schedule();
         registered = true;
         logger.info("[PortalRouter] Registered portal listeners");
     }
@@ -149,45 +212,164 @@ public final class PortalRouter {
         if (!registered) {
             return;
         }
-        portalRegistry.save();
         parentNode.removeChild(node);
+        if (watchTask != null) {
+            watchTask.cancel();
+            watchTask = null;
+        }
+        occupancyTracker.clear();
+        placingPortals.clear();
+        blockUpdates.clear();
+        arrivalWarmups.values().forEach(ChunkPregenerator.Job::cancel);
+        arrivalWarmups.clear();
         processedItems.clear();
         playerTeleportCooldowns.clear();
+        portalRegistry.save();
+        portalRegistry.close();
         registered = false;
         logger.info("[PortalRouter] Unregistered portal listeners");
     }
 
+    public PortalRegistrySaveStats registrySaveStats() {
+        return portalRegistry.saveStats();
+    }
+
     private void onEntityDespawn(EntityDespawnEvent event) {
         UUID uuid = event.getEntity().getUuid();
         processedItems.remove(uuid);
         playerTeleportCooldowns.remove(uuid);
+        occupancyTracker.forget(uuid);
+        ChunkPregenerator.Job warmup = arrivalWarmups.remove(uuid);
+        if (warmup != null) {
+            warmup.cancel();
+        }
     }
 
-    private void onEntityTick(EntityTickEvent event) {
-        Entity entity = event.getEntity();
-        if (entity instanceof Player player) {
-            handlePlayerPortal(player);
+    private void onEntitySpawn(EntitySpawnEvent event) {
+        if (event.getEntity() instanceof ItemEntity itemEntity && isBook(itemEntity.getItemStack())) {
+            occupancyTracker.watch(itemEntity);
+            speculateBookBuild(itemEntity, event.getSpawnInstance());
+        }
+    }
+
+    // Starts the destination pack build while the book is still in the air; handleBookPortal later
+    // finds the pack cached or joins the build.
+    private void speculateBookBuild(ItemEntity itemEntity, Instance instance) {
+        DimensionKey dimensionKey = DimensionKeys.fromInstance(instance);
+        Pos position = itemEntity.getPosition();
+        if (!portalIndex.hasPortalNear(dimensionKey, position.blockX(), position.blockY(), position.blockZ(),
+            SPECULATIVE_BUILD_RADIUS)) {
+            return;
+        }
+        String bookText = buildBookText(itemEntity.getItemStack());
+        if (bookText.isBlank()) {
             return;
         }
-        if (entity instanceof ItemEntity itemEntity) {
-            handleBookPortal(itemEntity);
+        BookDestination plan = planBookDestination(bookText, dimensionKey);
+        dimensionService.prewarmPack(bookText, plan.shellType(), plan.biomes(), plan.palettes());
+    }
+
+    private void onEntityTeleport(EntityTeleportEvent event) {
+        if (event.getEntity() instanceof Player player) {
+            occupancyTracker.seed(player);
+        } else if (event.getEntity() instanceof ItemEntity itemEntity) {
+            rearmBook(itemEntity);
+        }
+    }
+
+    // A resting book is no longer polled; being pushed sets its velocity and watches it again.
+    private void onEntityVelocity(EntityVelocityEvent event) {
+        if (event.getEntity() instanceof ItemEntity itemEntity) {
+            rearmBook(itemEntity);
+        }
+    }
+
+    private void rearmBook(ItemEntity itemEntity) {
+        if (!processedItems.contains(itemEntity.getUuid()) && isBook(itemEntity.getItemStack())) {
+            occupancyTracker.seed(itemEntity);
+        }
+    }
+
+    // Books resting where a portal was just lit are no longer polled; the new portal watches them again.
+    private void rearmBooksInside(Instance instance, PortalKey portalKey) {
+        Vec3i min = portalKey.min();
+        Vec3i max = portalKey.max();
+        double range = Math.max(max.x() - min.x(), Math.max(max.y() - min.y(), max.z() - min.z())) + 2;
+        for (Entity entity : instance.getNearbyEntities(portalCenter(portalKey), range)) {
+            if (entity instanceof ItemEntity itemEntity) {
+                Pos position = itemEntity.getPosition();
+                if (portalKey.containsBlock(position.blockX(), position.blockY(), position.blockZ())) {
+                    rearmBook(itemEntity);
+                }
+            }
         }
     }
 
-    private void handlePlayerPortal(Player player) {
+    private void onPlayerMove(PlayerMoveEvent event) {
+        Player player = event.getPlayer();
+        Pos newPosition = event.getNewPosition();
+        if (!occupancyTracker.blockChanged(player.getPosition(), newPosition)) {
+            return;
+        }
         Instance instance = player.getInstance();
         if (instance == null) {
             return;
         }
+        DimensionKey dimensionKey = DimensionKeys.fromInstance(instance);
+        if (!occupancyTracker.isPortalCandidate(instance, dimensionKey, newPosition)) {
+            return;
+        }
+        handlePlayerPortal(player, instance, dimensionKey, newPosition);
+    }
+
+    private void tick() {
+        flushBlockUpdates();
+        tickWatchedEntities();
+    }
+
+    private void tickWatchedEntities() {
+        for (Entity entity : occupancyTracker.watched()) {
+            Instance instance = entity.getInstance();
+            if (entity.isRemoved() || instance == null) {
+                occupancyTracker.forget(entity.getUuid());
+                continue;
+            }
+            DimensionKey dimensionKey = DimensionKeys.fromInstance(instance);
+            if (!occupancyTracker.shouldTest(entity, instance, dimensionKey)) {
+                // Players are only polled after a spawn, teleport or cooldown; move events cover the rest.
+                // Items are dropped once they come to rest outside a portal.
+                if (entity instanceof Player || occupancyTracker.isAtRest(entity, instance)) {
+                    occupancyTracker.forget(entity.getUuid());
+                }
+                continue;
+            }
+            if (entity instanceof Player player) {
+                handlePlayerPortal(player, instance, dimensionKey, player.getPosition());
+            } else if (entity instanceof ItemEntity itemEntity) {
+                handleBookPortal(itemEntity, instance, dimensionKey);
+            }
+        }
+    }
+
+    private void handlePlayerPortal(Player player, Instance instance, DimensionKey dimensionKey, Point position) {
         if (isOnCooldown(player)) {
+            // Standing still in a portal produces no move events; keep polling until the cooldown ends.
+            occupancyTracker.retry(player);
             return;
         }
-        DimensionKey dimensionKey = DimensionKeys.fromInstance(instance);
-        PortalKey portalKey = portalDetector.detectPortalKey(instance, player.getPosition(), dimensionKey);
+        PortalKey portalKey = portalDetector.detectPortalKey(instance, position, dimensionKey);
         if (portalKey == null) {
+            occupancyTracker.forget(player.getUuid());
+            return;
+        }
+        if (!portalRegistry.isLoaded(dimensionKey)) {
+            // The dimension's bindings are still being read; try again next tick instead of waiting here.
+            portalRegistry.loadDimension(dimensionKey);
+            occupancyTracker.retry(player);
             return;
         }
         portalIndex.index(portalKey);
+        occupancyTracker.forget(player.getUuid());
 
         PortalLink link = portalRegistry.getLink(portalKey);
         if (link == null) {
@@ -203,68 +385,61 @@ public final class PortalRouter {
         routeDefault(player, portalKey);
     }
 
-    private void handleBookPortal(ItemEntity itemEntity) {
+    private void handleBookPortal(ItemEntity itemEntity, Instance instance, DimensionKey dimensionKey) {
         if (processedItems.contains(itemEntity.getUuid())) {
+            occupancyTracker.forget(itemEntity.getUuid());
             return;
         }
         ItemStack stack = itemEntity.getItemStack();
         if (!isBook(stack)) {
+            occupancyTracker.forget(itemEntity.getUuid());
             return;
         }
 
-        Instance instance = itemEntity.getInstance();
-        if (instance == null) {
-            return;
-        }
-        DimensionKey dimensionKey = DimensionKeys.fromInstance(instance);
         PortalKey portalKey = portalDetector.detectPortalKey(instance, itemEntity.getPosition(), dimensionKey);
         if (portalKey == null) {
             return;
         }
+        if (!portalRegistry.isLoaded(dimensionKey)) {
+            portalRegistry.loadDimension(dimensionKey);
+            occupancyTracker.retry(itemEntity);
+            return;
+        }
         portalIndex.index(portalKey);
 
         Player player = findNearestPlayer(instance, itemEntity.getPosition());
         if (player == null) {
+            occupancyTracker.retry(itemEntity);
             return;
         }
 
         String bookText = buildBookText(stack);
         if (bookText.isBlank()) {
+            occupancyTracker.forget(itemEntity.getUuid());
             return;
         }
 
         processedItems.add(itemEntity.getUuid());
+        occupancyTracker.forget(itemEntity.getUuid());
         itemEntity.remove();
 
-        List<BiomeSlot> biomes = new ArrayList<>();
-        Map<Integer, PaletteDefinition> palettes = new LinkedHashMap<>();
-        ShellType shellType = resolveShellType(dimensionKey);
-        ResolvedDimensionKey resolved = dimensionService.resolveKey(bookText);
-        long seed = resolved.seed();
+        BookDestination plan = planBookDestination(bookText, dimensionKey);
+        ResolvedDimensionKey resolved = plan.resolved();
         String dimensionId = resolved.dimensionId();
         DimensionKey destinationKey = new DimensionKey(dimensionId);
 
-        if (resolved.type() != ResolvedDimensionType.CUSTOM) {
-            List<BiomeTemplateId> chosen = BiomeSubsetPicker.pickSubset(shellType, seed);
-            Random random = new Random(seed ^ 0x9E3779B97F4A7C15L);
-            int slot = 1;
-            for (BiomeTemplateId template : chosen) {
-                BiomeTemplateSelection selection = BiomeTemplatePicker.resolveSelection(shellType, template, random, slot);
-                biomes.add(new BiomeSlot(selection.templateId(), selection.overlayId(), slot));
-                palettes.put(slot, buildPaletteForSlot(shellType, seed, slot));
-                slot++;
-            }
-        }
-
         UUID linkId = UUID.randomUUID();
         Pos sourceCenter = portalCenter(portalKey);
         CompletableFuture<InstanceContainer> instanceFuture = resolved.type() == ResolvedDimensionType.CUSTOM
             ? dimensionService.createOrResolveInstanceById(dimensionId)
-            : dimensionService.createOrResolveInstance(bookText, shellType, biomes, palettes);
+            : dimensionService.createOrResolveInstance(bookText, plan.shellType(), plan.biomes(), plan.palettes());
 
         instanceFuture
-            .thenCompose(destInstance -> ensureDestinationPortal(destInstance, destinationKey, sourceCenter,
-                portalKey.axis(), null, true))
+            .thenCompose(destInstance -> {
+                // Nobody is travelling yet; the warm-up just makes the first trip through the new link cheap.
+                dimensionService.pregenerate(destInstance, sourceCenter, ARRIVAL_WARMUP_RADIUS);
+                return ensureDestinationPortal(destInstance, destinationKey, sourceCenter, portalKey.axis(), null, true);
+            })
             .thenAccept(destinationPortal -> {
                 Pos destinationCenter = portalCenter(destinationPortal);
                 DestinationRef forwardDestination = new DestinationRef(destinationKey,
@@ -294,6 +469,27 @@ public final class PortalRouter {
             });
     }
 
+    private BookDestination planBookDestination(String bookText, DimensionKey sourceDimension) {
+        List<BiomeSlot> biomes = new ArrayList<>();
+        Map<Integer, PaletteDefinition> palettes = new LinkedHashMap<>();
+        ShellType shellType = resolveShellType(sourceDimension);
+        ResolvedDimensionKey resolved = dimensionService.resolveKey(bookText);
+        long seed = resolved.seed();
+
+        if (resolved.type() != ResolvedDimensionType.CUSTOM) {
+            List<BiomeTemplateId> chosen = BiomeSubsetPicker.pickSubset(shellType, seed);
+            Random random = new Random(seed ^ 0x9E3779B97F4A7C15L);
+            int slot = 1;
+            for (BiomeTemplateId template : chosen) {
+                BiomeTemplateSelection selection = BiomeTemplatePicker.resolveSelection(shellType, template, random, slot);
+                biomes.add(new BiomeSlot(selection.templateId(), selection.overlayId(), slot));
+                palettes.put(slot, buildPaletteForSlot(shellType, seed, slot));
+                slot++;
+            }
+        }
+        return new BookDestination(resolved, shellType, biomes, palettes);
+    }
+
     private PortalLink migrateLegacyBinding(PortalKey portalKey) {
         LegacyKey legacyKey = new LegacyKey(portalKey.dimension().id(), portalKey.legacyX(), portalKey.legacyZ());
         LegacyLink legacy = portalRegistry.getLegacy(legacyKey);
@@ -331,9 +527,14 @@ public final class PortalRouter {
         }
 
         instanceFuture
-            .thenCompose(instance -> ensureDestinationPortal(instance, destinationKey, preferredPos, axis,
-                destination.portalKey(), true)
-                .thenApply(portalKey -> new PortalTravel(instance, portalKey)))
+            .thenCompose(instance -> {
+                CompletableFuture<Void> warmed = DimensionKeys.isCustom(destinationKey)
+                    ? warmArrival(player, instance, preferredPos)
+                    : CompletableFuture.completedFuture(null);
+                return ensureDestinationPortal(instance, destinationKey, preferredPos, axis,
+                    destination.portalKey(), true)
+                    .thenCombine(warmed, (portalKey, ignored) -> new PortalTravel(instance, portalKey));
+            })
             .thenAccept(travel -> {
                 if (destination.portalKey() == null && travel.portalKey() != null) {
                     DestinationRef updatedDestination = new DestinationRef(destinationKey,
@@ -349,6 +550,14 @@ public final class PortalRouter {
                 teleportToPortal(player, travel.instance(), travel.portalKey(), destination);
             })
             .exceptionally(error -> {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause()
+                    : error;
+                if (cause instanceof CancellationException) {
+                    logger.debug("[PortalRouter] Portal travel to {} cancelled for {}", destinationKey.id(),
+                        player.getUsername());
+                    return null;
+                }
                 logger.error("[PortalRouter] Failed to resolve portal travel to {}",
                     destinationKey.id(), error);
                 return null;
@@ -377,7 +586,36 @@ public final class PortalRouter {
             });
     }
 
+    // Completes once the area around the arrival point is loaded, the timeout passes, or the player leaves.
+    private CompletableFuture<Void> warmArrival(Player player, InstanceContainer instance, Pos arrival) {
+        ChunkPregenerator.Job warmup = dimensionService.pregenerate(instance, arrival, ARRIVAL_WARMUP_RADIUS);
+        ChunkPregenerator.Job previous = arrivalWarmups.put(player.getUuid(), warmup);
+        if (previous != null) {
+            previous.cancel();
+        }
+        if (player.isRemoved()) {
+            // Left before the warm-up was registered, so the despawn listener could not cancel it.
+            arrivalWarmups.remove(player.getUuid(), warmup);
+            warmup.cancel();
+        }
+        return warmup.completion()
+            .handle((ignored, error) -> {
+                // A failed warm-up only means chunks load after arrival; a cancelled one means the trip is off.
+                if (warmup.completion().isCancelled()) {
+                    throw new CancellationException("Arrival warm-up cancelled");
+                }
+                return (Void) null;
+            })
+            .completeOnTimeout(null, ARRIVAL_WARMUP_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+            .whenComplete((ignored, error) -> arrivalWarmups.remove(player.getUuid(), warmup));
+    }
+
     private void teleportToPortal(Player player, InstanceContainer instance, PortalKey portalKey, DestinationRef destination) {
+        if (player.isRemoved()) {
+            return;
+        }
+        // The cooldown runs from arrival, not from entering the source portal, so a long build cannot use it up.
+        playerTeleportCooldowns.put(player.getUuid(), System.currentTimeMillis());
         Pos center = portalCenter(portalKey);
         float yaw = destination != null ? destination.yaw() : 0f;
         float pitch = destination != null ? destination.pitch() : 0f;
@@ -385,35 +623,96 @@ public final class PortalRouter {
         dimensionService.teleportToInstanceExact(instance, player, target);
     }
 
-    private void onBlockUpdate(InstanceBlockUpdateEvent event) {
+    // A dimension's bindings are read and indexed only once an instance for it exists.
+    private void onInstanceRegister(InstanceRegisterEvent event) {
+        portalRegistry.loadDimension(DimensionKeys.fromInstance(event.getInstance()));
+    }
+
+    // DimensionService unregisters idle instances; their cached portal shapes and bindings would otherwise
+    // stay resident. Bindings stay while another instance of the same dimension is still registered.
+    private void onInstanceUnregister(InstanceUnregisterEvent event) {
         Instance instance = event.getInstance();
         DimensionKey dimensionKey = DimensionKeys.fromInstance(instance);
+        portalDetector.invalidateDimension(dimensionKey);
+        for (Instance other : MinecraftServer.getInstanceManager().getInstances()) {
+            if (other != instance && dimensionKey.equals(DimensionKeys.fromInstance(other))) {
+                return;
+            }
+        }
+        portalRegistry.unloadDimension(dimensionKey);
+    }
+
+    // Only queues the position; flushBlockUpdates handles everything that changed since the last tick.
+    private void onBlockUpdate(InstanceBlockUpdateEvent event) {
+        Instance instance = event.getInstance();
         int x = event.getBlockPosition().blockX();
         int y = event.getBlockPosition().blockY();
         int z = event.getBlockPosition().blockZ();
-
-        Block updatedBlock = event.getBlock();
-        if (isPortalBlock(updatedBlock)) {
-            PortalKey portalKey = portalDetector.detectPortalKey(instance, event.getBlockPosition(), dimensionKey);
-            if (portalKey != null) {
-                portalIndex.index(portalKey);
-            }
+        if (isPlacingPortalAt(DimensionKeys.fromInstance(instance), x, y, z)) {
             return;
         }
+        blockUpdates.add(instance, x, y, z);
+    }
 
-        PortalKey candidate = findPortalKeyContainingBlock(dimensionKey, x, y, z);
-        if (candidate == null) {
-            return;
+    private void flushBlockUpdates() {
+        Map<Instance, LongObjectHashMap<LongHashSet>> drained = blockUpdates.drain();
+        boolean removedLinks = false;
+        for (Map.Entry<Instance, LongObjectHashMap<LongHashSet>> entry : drained.entrySet()) {
+            removedLinks |= flushInstanceUpdates(entry.getKey(), entry.getValue());
         }
-        if (portalExists(instance, candidate)) {
-            portalIndex.index(candidate);
-            return;
+        if (removedLinks) {
+            portalRegistry.save();
         }
-        portalRegistry.removeLink(candidate);
-        portalIndex.remove(candidate);
-        portalRegistry.save();
-        logger.info("[PortalRouter] Removed portal binding for {} at {} {} {}",
-            candidate.dimension().id(), candidate.min().x(), candidate.min().y(), candidate.min().z());
+    }
+
+    private boolean flushInstanceUpdates(Instance instance, LongObjectHashMap<LongHashSet> byChunk) {
+        DimensionKey dimensionKey = DimensionKeys.fromInstance(instance);
+        // Every changed position is invalidated before any detection, so no stale cached shape is reused.
+        byChunk.forEach((chunkKey, positions) -> positions.forEach(packed -> portalDetector.invalidate(dimensionKey,
+            PackedBlockPos.x(packed), PackedBlockPos.y(packed), PackedBlockPos.z(packed))));
+
+        LongHashSet detected = new LongHashSet(16);
+        Set<PortalKey> affected = new HashSet<>();
+        byChunk.forEach((chunkKey, positions) -> {
+            positions.forEach(packed -> {
+                int x = PackedBlockPos.x(packed);
+                int y = PackedBlockPos.y(packed);
+                int z = PackedBlockPos.z(packed);
+                if (isPortalBlock(instance, x, y, z)) {
+                    // One detection per portal, however many of its blocks changed.
+                    if (detected.contains(packed)) {
+                        return;
+                    }
+                    PortalKey portalKey = portalDetector.detectPortalKey(instance, new Pos(x, y, z), dimensionKey);
+                    if (portalKey == null) {
+                        detected.add(packed);
+                        return;
+                    }
+                    markPortalVisited(detected, portalKey);
+                    portalIndex.index(portalKey);
+                    rearmBooksInside(instance, portalKey);
+                    return;
+                }
+                PortalKey containing = portalIndex.findContaining(dimensionKey, x, y, z);
+                if (containing != null) {
+                    affected.add(containing);
+                }
+            });
+        });
+
+        boolean removedLinks = false;
+        for (PortalKey candidate : affected) {
+            if (portalExists(instance, candidate)) {
+                portalIndex.index(candidate);
+                continue;
+            }
+            portalRegistry.removeLink(candidate);
+            portalIndex.remove(candidate);
+            removedLinks = true;
+            logger.info("[PortalRouter] Removed portal binding for {} at {} {} {}",
+                candidate.dimension().id(), candidate.min().x(), candidate.min().y(), candidate.min().z());
+        }
+        return removedLinks;
     }
 
     private CompletableFuture<PortalKey> ensureDestinationPortal(InstanceContainer instance,
@@ -440,9 +739,14 @@ public final class PortalRouter {
                     result.complete(reusable);
                     return;
                 }
-                PortalKey created = createPortalAt(instance, dimensionKey, preferredPos, axis);
-                logger.info("[PortalRouter] Created destination portal {} in {}", created.axis(), dimensionKey.id());
-                result.complete(created);
+                createPortalAt(instance, dimensionKey, preferredPos, axis).whenComplete((created, placeError) -> {
+                    if (placeError != null) {
+                        result.completeExceptionally(placeError);
+                        return;
+                    }
+                    logger.info("[PortalRouter] Created destination portal {} in {}", created.axis(), dimensionKey.id());
+                    result.complete(created);
+                });
             });
         });
         return result;
@@ -459,12 +763,19 @@ public final class PortalRouter {
                 return;
             }
             MinecraftServer.getSchedulerManager().scheduleNextTick(() -> {
-                if (!portalExists(instance, portalKey)) {
-                    logger.info("[PortalRouter] Rebuilding missing portal in {}", portalKey.dimension().id());
-                    buildPortalFromKey(instance, portalKey);
+                if (portalExists(instance, portalKey)) {
+                    portalIndex.index(portalKey);
+                    result.complete(portalKey);
+                    return;
                 }
-                portalIndex.index(portalKey);
-                result.complete(portalKey);
+                logger.info("[PortalRouter] Rebuilding missing portal in {}", portalKey.dimension().id());
+                placePortal(instance, portalKey).whenComplete((placed, placeError) -> {
+                    if (placeError != null) {
+                        result.completeExceptionally(placeError);
+                    } else {
+                        result.complete(placed);
+                    }
+                });
             });
         });
         return result;
@@ -513,36 +824,61 @@ public final class PortalRouter {
             return indexed;
         }
 
-        DimensionType dimensionType = instance.getCachedDimensionType();
-        int minY = dimensionType != null ? dimensionType.minY() : DimensionType.VANILLA_MIN_Y;
-        int maxY = dimensionType != null ? dimensionType.maxY() : DimensionType.VANILLA_MAX_Y;
-        Set<Vec3i> visited = new HashSet<>();
+        // Only sections whose palette holds a portal state are scanned; everything else is skipped unread.
+        LongHashSet visited = new LongHashSet(64);
+        for (ChunkCoord coord : chunks) {
+            Chunk chunk = instance.getChunk(coord.x(), coord.z());
+            if (chunk == null) {
+                continue;
+            }
+            List<Section> sections = chunk.getSections();
+            int minSection = chunk.getMinSection();
+            for (int index = 0; index < sections.size(); index++) {
+                Palette palette = sections.get(index).blockPalette();
+                if (!palette.any(PORTAL_STATE_X) && !palette.any(PORTAL_STATE_Z)) {
+                    continue;
+                }
+                PortalKey key = scanSectionForReusablePortal(instance, dimensionKey, palette,
+                    coord.x() << 4, (minSection + index) << 4, coord.z() << 4, visited);
+                if (key != null) {
+                    logger.debug("[PortalRouter] Reuse candidate found via scan in {}", dimensionKey.id());
+                    return key;
+                }
+            }
+        }
+        return null;
+    }
 
-        for (ChunkCoord chunk : chunks) {
-            int startX = chunk.x() << 4;
-            int startZ = chunk.z() << 4;
-            for (int x = startX; x < startX + 16; x++) {
-                for (int z = startZ; z < startZ + 16; z++) {
-                    for (int y = minY; y <= maxY; y++) {
-                        Vec3i pos = new Vec3i(x, y, z);
-                        if (visited.contains(pos)) {
-                            continue;
-                        }
-                        if (!isPortalBlock(instance, x, y, z)) {
-                            continue;
-                        }
-                        PortalKey key = portalDetector.detectPortalKey(instance, new Pos(x, y, z), dimensionKey);
-                        if (key == null) {
-                            visited.add(pos);
-                            continue;
-                        }
-                        markPortalVisited(visited, key);
-                        portalIndex.index(key);
-                        PortalLink link = portalRegistry.getLink(key);
-                        if (link == null || link.type() == LinkType.DEFAULT) {
-                            logger.debug("[PortalRouter] Reuse candidate found via scan in {}", dimensionKey.id());
-                            return key;
-                        }
+    private PortalKey scanSectionForReusablePortal(Instance instance,
+                                                   DimensionKey dimensionKey,
+                                                   Palette palette,
+                                                   int originX,
+                                                   int originY,
+                                                   int originZ,
+                                                   LongHashSet visited) {
+        for (int localY = 0; localY < 16; localY++) {
+            for (int localZ = 0; localZ < 16; localZ++) {
+                for (int localX = 0; localX < 16; localX++) {
+                    int state = palette.get(localX, localY, localZ);
+                    if (state != PORTAL_STATE_X && state != PORTAL_STATE_Z) {
+                        continue;
+                    }
+                    int x = originX + localX;
+                    int y = originY + localY;
+                    int z = originZ + localZ;
+                    if (visited.contains(PackedBlockPos.pack(x, y, z))) {
+                        continue;
+                    }
+                    PortalKey key = portalDetector.detectPortalKey(instance, new Pos(x, y, z), dimensionKey);
+                    if (key == null) {
+                        visited.add(PackedBlockPos.pack(x, y, z));
+                        continue;
+                    }
+                    markPortalVisited(visited, key);
+                    portalIndex.index(key);
+                    PortalLink link = portalRegistry.getLink(key);
+                    if (link == null || link.type() == LinkType.DEFAULT) {
+                        return key;
                     }
                 }
             }
@@ -583,69 +919,34 @@ public final class PortalRouter {
 
     private boolean isPortalBlock(Instance instance, int x, int y, int z) {
         try {
-            return NETHER_PORTAL.equals(instance.getBlock(x, y, z).key().asString());
+            return instance.getBlock(x, y, z).id() == NETHER_PORTAL_ID;
         } catch (Exception ignored) {
             return false;
         }
     }
 
-    private boolean isPortalBlock(Block block) {
-        if (block == null) {
-            return false;
-        }
-        return NETHER_PORTAL.equals(block.key().asString());
-    }
-
-    private PortalKey findPortalKeyContainingBlock(DimensionKey dimensionKey, int x, int y, int z) {
-        long chunkKey = PortalIndex.chunkKey(PortalIndex.chunkCoord(x), PortalIndex.chunkCoord(z));
-        for (PortalKey key : portalIndex.get(dimensionKey, chunkKey)) {
-            if (containsPortalBlock(key, x, y, z)) {
-                return key;
-            }
-        }
-        for (PortalKey key : portalRegistry.links().keySet()) {
-            if (!key.dimension().equals(dimensionKey)) {
-                continue;
-            }
-            if (containsPortalBlock(key, x, y, z)) {
-                return key;
-            }
-        }
-        return null;
-    }
-
-    private boolean containsPortalBlock(PortalKey key, int x, int y, int z) {
-        Vec3i min = key.min();
-        Vec3i max = key.max();
-        if (key.axis() == PortalAxis.Z) {
-            return z == min.z()
-                && x >= min.x() && x <= max.x()
-                && y >= min.y() && y <= max.y();
-        }
-        return x == min.x()
-            && z >= min.z() && z <= max.z()
-            && y >= min.y() && y <= max.y();
-    }
-
-    private void markPortalVisited(Set<Vec3i> visited, PortalKey portalKey) {
+    private void markPortalVisited(LongHashSet visited, PortalKey portalKey) {
         Vec3i min = portalKey.min();
         Vec3i max = portalKey.max();
         if (portalKey.axis() == PortalAxis.Z) {
             for (int x = min.x(); x <= max.x(); x++) {
                 for (int y = min.y(); y <= max.y(); y++) {
-                    visited.add(new Vec3i(x, y, min.z()));
+                    visited.add(PackedBlockPos.pack(x, y, min.z()));
                 }
             }
             return;
         }
         for (int z = min.z(); z <= max.z(); z++) {
             for (int y = min.y(); y <= max.y(); y++) {
-                visited.add(new Vec3i(min.x(), y, z));
+                visited.add(PackedBlockPos.pack(min.x(), y, z));
             }
         }
     }
 
-    private PortalKey createPortalAt(InstanceContainer instance, DimensionKey dimensionKey, Pos preferredPos, PortalAxis axis) {
+    private CompletableFuture<PortalKey> createPortalAt(InstanceContainer instance,
+                                                        DimensionKey dimensionKey,
+                                                        Pos preferredPos,
+                                                        PortalAxis axis) {
         DimensionType dimensionType = instance.getCachedDimensionType();
         int minY = dimensionType != null ? dimensionType.minY() : DimensionType.VANILLA_MIN_Y;
         int maxY = dimensionType != null ? dimensionType.maxY() : DimensionType.VANILLA_MAX_Y;
@@ -658,73 +959,77 @@ public final class PortalRouter {
         int baseX = axis == PortalAxis.Z ? centerX - 1 : centerX;
         int baseZ = axis == PortalAxis.X ? centerZ - 1 : centerZ;
 
-        PortalKey portalKey = buildPortal(instance, dimensionKey, axis, baseX, baseY, baseZ, 2, 3);
-        portalIndex.index(portalKey);
-        return portalKey;
+        return placePortal(instance, portalKeyAt(dimensionKey, axis, baseX, baseY, baseZ, 2, 3));
     }
 
-    private PortalKey buildPortal(InstanceContainer instance,
-                                  DimensionKey dimensionKey,
+    private PortalKey portalKeyAt(DimensionKey dimensionKey,
                                   PortalAxis axis,
                                   int baseX,
                                   int baseY,
                                   int baseZ,
                                   int width,
                                   int height) {
-        Block portalBlock = portalBlock(axis);
-        if (axis == PortalAxis.Z) {
-            int minX = baseX;
-            int maxX = baseX + width - 1;
-            int minY = baseY;
-            int maxY = baseY + height - 1;
-            int z = baseZ;
-            for (int x = minX - 1; x <= maxX + 1; x++) {
-                for (int y = minY - 1; y <= maxY + 1; y++) {
-                    boolean frame = x == minX - 1 || x == maxX + 1 || y == minY - 1 || y == maxY + 1;
-                    instance.setBlock(x, y, z, frame ? Block.OBSIDIAN : portalBlock);
-                }
-            }
-            return PortalKey.normalize(dimensionKey, axis,
-                new Vec3i(minX, minY, z),
-                new Vec3i(maxX, maxY, z));
-        }
-
-        int minZ = baseZ;
-        int maxZ = baseZ + width - 1;
-        int minY = baseY;
-        int maxY = baseY + height - 1;
-        int x = baseX;
-        for (int z = minZ - 1; z <= maxZ + 1; z++) {
-            for (int y = minY - 1; y <= maxY + 1; y++) {
-                boolean frame = z == minZ - 1 || z == maxZ + 1 || y == minY - 1 || y == maxY + 1;
-                instance.setBlock(x, y, z, frame ? Block.OBSIDIAN : portalBlock);
-            }
-        }
+        int maxX = axis == PortalAxis.Z ? baseX + width - 1 : baseX;
+        int maxZ = axis == PortalAxis.X ? baseZ + width - 1 : baseZ;
         return PortalKey.normalize(dimensionKey, axis,
-            new Vec3i(x, minY, minZ),
-            new Vec3i(x, maxY, maxZ));
+            new Vec3i(baseX, baseY, baseZ),
+            new Vec3i(maxX, baseY + height - 1, maxZ));
     }
 
-    private void buildPortalFromKey(InstanceContainer instance, PortalKey portalKey) {
+    // Frame and interior go out as one batch instead of one setBlock, update event and detection per block.
+    // The detector cache is invalidated once for the whole frame when the batch has landed.
+    private CompletableFuture<PortalKey> placePortal(InstanceContainer instance, PortalKey portalKey) {
         Vec3i min = portalKey.min();
         Vec3i max = portalKey.max();
+        int spanX = portalKey.axis() == PortalAxis.Z ? 1 : 0;
+        int spanZ = portalKey.axis() == PortalAxis.X ? 1 : 0;
         Block portalBlock = portalBlock(portalKey.axis());
-        if (portalKey.axis() == PortalAxis.Z) {
-            for (int x = min.x() - 1; x <= max.x() + 1; x++) {
-                for (int y = min.y() - 1; y <= max.y() + 1; y++) {
-                    boolean frame = x == min.x() - 1 || x == max.x() + 1 || y == min.y() - 1 || y == max.y() + 1;
-                    instance.setBlock(x, y, min.z(), frame ? Block.OBSIDIAN : portalBlock);
+        AbsoluteBlockBatch batch = new AbsoluteBlockBatch();
+        for (int x = min.x() - spanX; x <= max.x() + spanX; x++) {
+            for (int y = min.y() - 1; y <= max.y() + 1; y++) {
+                for (int z = min.z() - spanZ; z <= max.z() + spanZ; z++) {
+                    boolean frame = x < min.x() || x > max.x() || y < min.y() || y > max.y()
+                        || z < min.z() || z > max.z();
+                    batch.setBlock(x, y, z, frame ? Block.OBSIDIAN : portalBlock);
                 }
             }
-            return;
         }
-        for (int z = min.z() - 1; z <= max.z() + 1; z++) {
-            for (int y = min.y() - 1; y <= max.y() + 1; y++) {
-                boolean frame = z == min.z() - 1 || z == max.z() + 1 || y == min.y() - 1 || y == max.y() + 1;
-                instance.setBlock(min.x(), y, z, frame ? Block.OBSIDIAN : portalBlock);
+
+        CompletableFuture<PortalKey> placed = new CompletableFuture<>();
+        placingPortals.add(portalKey);
+        try {
+            batch.apply(instance, applied -> {
+                placingPortals.remove(portalKey);
+                for (int x = min.x() - spanX; x <= max.x() + spanX; x++) {
+                    for (int y = min.y() - 1; y <= max.y() + 1; y++) {
+                        for (int z = min.z() - spanZ; z <= max.z() + spanZ; z++) {
+                            portalDetector.invalidate(portalKey.dimension(), x, y, z);
+                        }
+                    }
+                }
+                portalIndex.index(portalKey);
+                placed.complete(portalKey);
+            });
+        } catch (RuntimeException e) {
+            placingPortals.remove(portalKey);
+            placed.completeExceptionally(e);
+        }
+        return placed;
+    }
+
+    private boolean isPlacingPortalAt(DimensionKey dimensionKey, int x, int y, int z) {
+        for (PortalKey placing : placingPortals) {
+            if (!placing.dimension().equals(dimensionKey)) {
+                continue;
+            }
+            Vec3i min = placing.min();
+            Vec3i max = placing.max();
+            if (x >= min.x() - 1 && x <= max.x() + 1 && y >= min.y() - 1 && y <= max.y() + 1
+                && z >= min.z() - 1 && z <= max.z() + 1) {
+                return true;
             }
         }
-        portalIndex.index(portalKey);
+        return false;
     }
 
     private Block portalBlock(PortalAxis axis) {
@@ -737,7 +1042,11 @@ public final class PortalRouter {
         return BaseWorldRegistry.resolve(manager, dimensionKey);
     }
 
+    // A trip still warming its arrival area counts as cooldown; the warm-up can outlast TELEPORT_COOLDOWN_MS.
     private boolean isOnCooldown(Player player) {
+        if (arrivalWarmups.containsKey(player.getUuid())) {
+            return true;
+        }
         Long last = playerTeleportCooldowns.get(player.getUuid());
         if (last == null) {
             return false;
@@ -888,4 +1197,10 @@ public final class PortalRouter {
 
     private record ChunkCoord(int x, int z) {
     }
+
+    private record BookDestination(ResolvedDimensionKey resolved,
+                                   ShellType shellType,
+                                   List<BiomeSlot> biomes,
+                                   Map<Integer, PaletteDefinition> palettes) {
+    }
 }
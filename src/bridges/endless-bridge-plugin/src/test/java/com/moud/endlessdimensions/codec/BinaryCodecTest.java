@@ -0,0 +1,132 @@
+package com.moud.endlessdimensions.codec;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BinaryCodecTest {
+    private static final int[] EDGES = {
+        0, 1, 63, 64, 127, 128, 16_383, 16_384, 2_097_151, 2_097_152, 268_435_455, 268_435_456,
+        Integer.MAX_VALUE, -1, -64, -65, -30_000_000, Integer.MIN_VALUE + 1, Integer.MIN_VALUE
+    };
+
+    @Test
+    void varIntRoundTripsEdges() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryOutput out = new BinaryOutput(bytes);
+        for (int value : EDGES) {
+            out.writeVarInt(value);
+        }
+        out.flush();
+
+        BinaryInput in = new BinaryInput(new ByteArrayInputStream(bytes.toByteArray()));
+        for (int value : EDGES) {
+            assertEquals(value, in.readVarInt());
+        }
+    }
+
+    @Test
+    void signedVarIntRoundTripsEdges() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryOutput out = new BinaryOutput(bytes);
+        for (int value : EDGES) {
+            out.writeSignedVarInt(value);
+        }
+        out.flush();
+
+        BinaryInput in = new BinaryInput(new ByteArrayInputStream(bytes.toByteArray()));
+        for (int value : EDGES) {
+            assertEquals(value, in.readSignedVarInt());
+        }
+    }
+
+    @Test
+    void varIntLengths() throws IOException {
+        assertEquals(1, varIntBytes(127, false));
+        assertEquals(2, varIntBytes(128, false));
+        assertEquals(5, varIntBytes(-1, false));
+        assertEquals(5, varIntBytes(Integer.MIN_VALUE, false));
+        // Zigzag keeps small magnitudes short whatever their sign.
+        assertEquals(1, varIntBytes(-1, true));
+        assertEquals(1, varIntBytes(-64, true));
+        assertEquals(2, varIntBytes(-65, true));
+        assertEquals(2, varIntBytes(64, true));
+        assertEquals(5, varIntBytes(Integer.MIN_VALUE, true));
+    }
+
+    @Test
+    void overlongVarIntIsRejected() {
+        byte[] sixBytes = { (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x01 };
+
+        assertThrows(IOException.class, () -> new BinaryInput(new ByteArrayInputStream(sixBytes)).readVarInt());
+    }
+
+    @Test
+    void repeatedStringsAreWrittenAsBackReferences() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryOutput out = new BinaryOutput(bytes);
+        out.writeString("minecraft:stone");
+        out.writeString("minecraft:dirt");
+        out.writeString("minecraft:stone");
+        out.writeString(null);
+        out.writeString("minecraft:dirt");
+        out.writeString("");
+        out.writeString("");
+        out.flush();
+        byte[] encoded = bytes.toByteArray();
+
+        int inlineStone = 2 + "minecraft:stone".length();
+        int inlineDirt = 2 + "minecraft:dirt".length();
+        assertEquals(inlineStone + inlineDirt + 1 + 1 + 1 + 2 + 1, encoded.length);
+        assertEquals(BinaryOutput.STRING_REFERENCE_BASE, encoded[inlineStone + inlineDirt]);
+
+        BinaryInput in = new BinaryInput(new ByteArrayInputStream(encoded));
+        assertEquals("minecraft:stone", in.readString());
+        assertEquals("minecraft:dirt", in.readString());
+        assertEquals("minecraft:stone", in.readString());
+        assertNull(in.readString());
+        assertEquals("minecraft:dirt", in.readString());
+        assertEquals("", in.readString());
+        assertEquals("", in.readString());
+    }
+
+    @Test
+    void unknownBackReferenceIsRejected() {
+        byte[] reference = { BinaryOutput.STRING_REFERENCE_BASE };
+
+        assertThrows(IOException.class, () -> new BinaryInput(new ByteArrayInputStream(reference)).readString());
+    }
+
+    @Test
+    void headerRoundTripsAndRejectsOtherMagic() throws IOException {
+        byte[] magic = { 'E', 'D', 'T', 'S' };
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryOutput out = new BinaryOutput(bytes);
+        out.writeHeader(magic, 3);
+        out.flush();
+
+        assertEquals(3, new BinaryInput(new ByteArrayInputStream(bytes.toByteArray())).readHeader(magic));
+        assertArrayEquals(magic, java.util.Arrays.copyOf(bytes.toByteArray(), magic.length));
+        assertThrows(IOException.class, () -> new BinaryInput(new ByteArrayInputStream(bytes.toByteArray()))
+            .readHeader(new byte[] { 'N', 'O', 'P', 'E' }));
+    }
+
+    private static int varIntBytes(int value, boolean signed) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryOutput out = new BinaryOutput(bytes);
+        if (signed) {
+            out.writeSignedVarInt(value);
+        } else {
+            out.writeVarInt(value);
+        }
+        out.flush();
+        return bytes.size();
+    }
+}
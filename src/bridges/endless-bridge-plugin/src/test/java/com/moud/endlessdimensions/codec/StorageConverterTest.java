@@ -0,0 +1,144 @@
+package com.moud.endlessdimensions.codec;
+
+import com.moud.endlessdimensions.dimension.DimensionKey;
+import com.moud.endlessdimensions.generation.BiomeSlot;
+import com.moud.endlessdimensions.generation.BiomeTemplateId;
+import com.moud.endlessdimensions.generation.DimensionDefinition;
+import com.moud.endlessdimensions.generation.DimensionDefinitionCodec;
+import com.moud.endlessdimensions.generation.PaletteDefinition;
+import com.moud.endlessdimensions.generation.ShellType;
+import com.moud.endlessdimensions.portal.DestinationRef;
+import com.moud.endlessdimensions.portal.LegacyKey;
+import com.moud.endlessdimensions.portal.LegacyLink;
+import com.moud.endlessdimensions.portal.LinkType;
+import com.moud.endlessdimensions.portal.PortalAxis;
+import com.moud.endlessdimensions.portal.PortalKey;
+import com.moud.endlessdimensions.portal.PortalLink;
+import com.moud.endlessdimensions.portal.PortalRegistrySnapshot;
+import com.moud.endlessdimensions.portal.PortalRegistryStore;
+import com.moud.endlessdimensions.portal.Vec3i;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class StorageConverterTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StorageConverterTest.class);
+    private static final DimensionKey SOURCE = new DimensionKey("endlessdimensions:source");
+    private static final DimensionKey TARGET = new DimensionKey("minecraft:the_nether");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void bindingsRoundTripBetweenJsonAndBinary() throws IOException {
+        Map<PortalKey, PortalLink> links = new LinkedHashMap<>();
+        PortalKey negative = new PortalKey(SOURCE, PortalAxis.Z, new Vec3i(-29_999_999, -64, -1),
+            new Vec3i(-29_999_998, -62, -1));
+        PortalKey positive = new PortalKey(TARGET, PortalAxis.X, new Vec3i(12, 70, 29_999_998),
+            new Vec3i(12, 72, 29_999_999));
+        links.put(negative, new PortalLink(LinkType.BOOK_LINKED, new UUID(Long.MIN_VALUE, -1L),
+            new DestinationRef(TARGET, -3_749_999.5, -64, -0.5, -180f, 90f, positive)));
+        links.put(positive, new PortalLink(LinkType.BOOK_LINKED, new UUID(7, 7),
+            new DestinationRef(SOURCE, 0.5, 320, 0.5, 0f, 0f)));
+        Map<LegacyKey, LegacyLink> legacyLinks = Map.of(
+            new LegacyKey(SOURCE.id(), Integer.MIN_VALUE, Integer.MAX_VALUE), new LegacyLink(TARGET.id()),
+            new LegacyKey(SOURCE.id(), -1, 0), new LegacyLink(SOURCE.id()));
+        Path json = dir.resolve("bindings.json");
+        PortalRegistryStore codec = new PortalRegistryStore(json, LOGGER);
+        try (OutputStream out = Files.newOutputStream(json)) {
+            codec.write(links, legacyLinks, StorageFormat.JSON, out);
+        }
+        Path binary = dir.resolve("bindings.bin");
+        Path back = dir.resolve("bindings-back.json");
+
+        StorageConverter.convertBindings(json, binary, StorageFormat.BINARY);
+        StorageConverter.convertBindings(binary, back, StorageFormat.JSON);
+
+        assertEquals(StorageFormat.BINARY, detectedFormat(binary));
+        assertEquals(StorageFormat.JSON, detectedFormat(back));
+        for (Path converted : List.of(binary, back)) {
+            PortalRegistrySnapshot snapshot = readBindings(codec, converted);
+            assertEquals(links, snapshot.links());
+            assertEquals(legacyLinks, snapshot.legacyLinks());
+        }
+    }
+
+    @Test
+    void dimensionRoundTripsBetweenJsonAndBinary() throws IOException {
+        BiomeTemplateId overlay = Arrays.stream(BiomeTemplateId.values())
+            .filter(BiomeTemplateId::isOverlay)
+            .findFirst()
+            .orElseThrow();
+        List<BiomeTemplateId> pool = ShellType.OVERWORLD_OPEN.baseBiomePool();
+        DimensionDefinition definition = new DimensionDefinition("endlessdimensions:round_trip", Long.MIN_VALUE,
+            ShellType.OVERWORLD_OPEN,
+            List.of(new BiomeSlot(pool.get(0), overlay, 1), new BiomeSlot(pool.get(1), null, 2)),
+            Map.of(
+                1, new PaletteDefinition("minecraft:grass_block", "minecraft:dirt", "minecraft:stone",
+                    "minecraft:water"),
+                2, new PaletteDefinition("minecraft:stone", null, "minecraft:stone", null)));
+        Path json = dir.resolve("dimension.json");
+        try (OutputStream out = Files.newOutputStream(json)) {
+            DimensionDefinitionCodec.write(definition, StorageFormat.JSON, out);
+        }
+        Path binary = dir.resolve("dimension.bin");
+        Path back = dir.resolve("dimension-back.json");
+
+        StorageConverter.convertDimension(json, binary, StorageFormat.BINARY);
+        StorageConverter.convertDimension(binary, back, StorageFormat.JSON);
+
+        assertEquals(StorageFormat.BINARY, detectedFormat(binary));
+        assertNotEquals(Files.size(json), Files.size(binary));
+        for (Path converted : List.of(binary, back)) {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(converted))) {
+                assertEquals(definition, DimensionDefinitionCodec.read(in));
+            }
+        }
+    }
+
+    @Test
+    void convertingInPlaceRewritesTheSameFile() throws IOException {
+        PortalKey portal = new PortalKey(SOURCE, PortalAxis.Z, new Vec3i(-5, 64, -9), new Vec3i(-4, 66, -9));
+        Map<PortalKey, PortalLink> links = Map.of(portal, new PortalLink(LinkType.BOOK_LINKED, new UUID(1, 2),
+            new DestinationRef(TARGET, -0.5, 64, -0.5, 0f, 0f)));
+        Path file = dir.resolve("bindings.json");
+        PortalRegistryStore codec = new PortalRegistryStore(file, LOGGER);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            codec.write(links, Map.of(), StorageFormat.JSON, out);
+        }
+
+        StorageConverter.convertBindings(file, file, StorageFormat.BINARY);
+
+        assertEquals(StorageFormat.BINARY, detectedFormat(file));
+        assertEquals(links, readBindings(codec, file).links());
+    }
+
+    private static PortalRegistrySnapshot readBindings(PortalRegistryStore codec, Path file) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            return codec.read(in);
+        }
+    }
+
+    // JSON snapshots start with '{'; anything else here is the binary encoding.
+    private static StorageFormat detectedFormat(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return in.read() == '{' ? StorageFormat.JSON : StorageFormat.BINARY;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.moud.endlessdimensions.generation;
+
+import com.moud.endlessdimensions.codec.StorageFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DimensionRegistryTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DimensionRegistryTest.class);
+    private static final String DIMENSION_ID = "endlessdimensions:both_formats";
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void savingRemovesTheOtherFormat() throws Exception {
+        new DimensionRegistry(dataDir, StorageFormat.BINARY, LOGGER).save(definition(1L));
+        new DimensionRegistry(dataDir, StorageFormat.JSON, LOGGER).save(definition(2L));
+
+        assertTrue(Files.exists(file(StorageFormat.JSON)));
+        assertFalse(Files.exists(file(StorageFormat.BINARY)));
+    }
+
+    @Test
+    void loadAllPrefersTheConfiguredFormat() throws Exception {
+        // Leaves both files behind, as a crash between save()'s write and its cleanup would.
+        new DimensionRegistry(dataDir, StorageFormat.BINARY, LOGGER).save(definition(1L));
+        Path binary = file(StorageFormat.BINARY);
+        Path kept = dataDir.resolve("kept.bin");
+        Files.copy(binary, kept);
+        new DimensionRegistry(dataDir, StorageFormat.JSON, LOGGER).save(definition(2L));
+        Files.move(kept, binary);
+
+        DimensionRegistry json = new DimensionRegistry(dataDir, StorageFormat.JSON, LOGGER);
+        json.loadAll();
+        DimensionRegistry bin = new DimensionRegistry(dataDir, StorageFormat.BINARY, LOGGER);
+        bin.loadAll();
+
+        assertEquals(1, json.getAll().size());
+        assertEquals(2L, json.get(DIMENSION_ID).seed());
+        assertEquals(1, bin.getAll().size());
+        assertEquals(1L, bin.get(DIMENSION_ID).seed());
+    }
+
+    private Path file(StorageFormat format) {
+        return dataDir.resolve("dimensions").resolve(DIMENSION_ID.replace(":", "_") + format.extension());
+    }
+
+    private static DimensionDefinition definition(long seed) {
+        ShellType shellType = ShellType.OVERWORLD_OPEN;
+        return new DimensionDefinition(DIMENSION_ID, seed, shellType,
+            List.of(new BiomeSlot(shellType.baseBiomePool().get(0), null, 1)),
+            Map.of(1, new PaletteDefinition("minecraft:stone", null, "minecraft:stone", "minecraft:water")));
+    }
+}
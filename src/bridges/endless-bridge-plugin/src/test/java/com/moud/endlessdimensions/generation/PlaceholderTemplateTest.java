@@ -0,0 +1,164 @@
+package com.moud.endlessdimensions.generation;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlaceholderTemplateTest {
+    private static final List<String> SURFACE_BLOCKS = List.of("minecraft:grass_block", "minecraft:sand",
+        "minecraft:podzol");
+
+    @Test
+    void longestNameWins() {
+        String text = "log: DIM_TREE_LOG\naxis: DIM_TREE_LOG_X DIM_TREE_LOG_Y DIM_TREE_LOG_Z\nwood: DIM_TREE_WOOD_XDIM_TREE_WOOD\n";
+        Map<String, String> values = Map.of(
+            "DIM_TREE_LOG", "minecraft:oak_log",
+            "DIM_TREE_LOG_X", "minecraft:oak_log[axis=x]",
+            "DIM_TREE_LOG_Y", "minecraft:oak_log[axis=y]",
+            "DIM_TREE_LOG_Z", "minecraft:oak_log[axis=z]",
+            "DIM_TREE_WOOD", "minecraft:oak_wood",
+            "DIM_TREE_WOOD_X", "minecraft:oak_wood[axis=x]");
+
+        String rendered = PlaceholderTemplate.compile(text).render(values, Map.of());
+
+        assertEquals(chainedReplace(text, values), rendered);
+        assertTrue(rendered.contains("minecraft:oak_wood[axis=x]minecraft:oak_wood"));
+    }
+
+    @Test
+    void unboundNamesStayInPlace() {
+        String text = "a: DIM_PAL_SLOT_STONE\nb: DIM_PAL_SLOT\nc: DIM_UNKNOWN\n";
+
+        String rendered = PlaceholderTemplate.compile(text).render(Map.of("DIM_PAL_SLOT", "DIM_PAL_3"), Map.of());
+
+        assertEquals("a: DIM_PAL_SLOT_STONE\nb: DIM_PAL_3\nc: DIM_UNKNOWN\n", rendered);
+    }
+
+    @Test
+    void listLinesExpandLikeTheLineRewrite() {
+        String text = String.join("\n",
+            "blocks:",
+            "  - DIM_SURFACE_BLOCK",
+            "    - DIM_SURFACE_BLOCK   ",
+            "inline: DIM_SURFACE_BLOCK",
+            "-DIM_SURFACE_BLOCK",
+            "  - minecraft:stone",
+            "  - DIM_SURFACE_BLOCK");
+
+        String rendered = PlaceholderTemplate.compile(text)
+            .render(Map.of(), Map.of("DIM_SURFACE_BLOCK", SURFACE_BLOCKS));
+
+        assertEquals(surfaceLineRewrite(text, SURFACE_BLOCKS), rendered);
+    }
+
+    @Test
+    void listLinesKeepCrlf() {
+        String text = "blocks:\r\n  - DIM_SURFACE_BLOCK\r\nnext: 1\r\n";
+
+        String rendered = PlaceholderTemplate.compile(text)
+            .render(Map.of(), Map.of("DIM_SURFACE_BLOCK", SURFACE_BLOCKS));
+
+        assertEquals(surfaceLineRewrite(text, SURFACE_BLOCKS), rendered);
+    }
+
+    @Test
+    void scalarBindingWinsOverList() {
+        String text = "  - DIM_SURFACE_BLOCK\nsurface: DIM_SURFACE_BLOCK\n";
+        Map<String, String> values = Map.of("DIM_SURFACE_BLOCK", "minecraft:mycelium");
+
+        String rendered = PlaceholderTemplate.compile(text)
+            .render(values, Map.of("DIM_SURFACE_BLOCK", SURFACE_BLOCKS));
+
+        assertEquals(surfaceLineRewrite(chainedReplace(text, values), SURFACE_BLOCKS), rendered);
+    }
+
+    @Test
+    void everyTemplateRendersLikeTheReplaceChain() throws URISyntaxException {
+        TemplateCache templates = new TemplateCache(resolveTemplatesRoot());
+        Map<String, String> values = sampleValues();
+        int compared = 0;
+        for (TemplateCache.TemplateFile file : templates.files().values()) {
+            if (file.text() == null) {
+                continue;
+            }
+            PlaceholderTemplate template = PlaceholderTemplate.compile(file.text());
+
+            assertEquals(chainedReplace(file.text(), values), template.render(values, Map.of()), file.path());
+            assertEquals(surfaceLineRewrite(file.text(), SURFACE_BLOCKS),
+                template.render(Map.of(), Map.of("DIM_SURFACE_BLOCK", SURFACE_BLOCKS)), file.path());
+            compared++;
+        }
+        assertTrue(compared > 0, "no templates found");
+    }
+
+    private Path resolveTemplatesRoot() throws URISyntaxException {
+        var url = PlaceholderTemplateTest.class.getClassLoader().getResource("templates");
+        Objects.requireNonNull(url, "templates resource not found on classpath");
+        return Path.of(url.toURI());
+    }
+
+    private static Map<String, String> sampleValues() {
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put("DIM_PAL_SLOT", "DIM_PAL_2");
+        values.put("DIM_PAL_SLOT_STONE", "DIM_PAL_2_STONE");
+        values.put("DIM_SURFACE_BLOCK", "minecraft:grass_block");
+        values.put("DIM_TREE_LOG", "minecraft:birch_log");
+        values.put("DIM_TREE_LOG_X", "minecraft:birch_log[axis=x]");
+        values.put("DIM_TREE_LOG_Y", "minecraft:birch_log[axis=y]");
+        values.put("DIM_TREE_LOG_Z", "minecraft:birch_log[axis=z]");
+        values.put("DIM_TREE_WOOD", "minecraft:birch_wood");
+        values.put("DIM_TREE_WOOD_X", "minecraft:birch_wood[axis=x]");
+        values.put("DIM_TREE_WOOD_Z", "minecraft:birch_wood[axis=z]");
+        values.put("DIM_TREE_LEAVES", "minecraft:birch_leaves");
+        values.put("DIM_BETWEEN_GRID_WIDTH", "48");
+        values.put("DIM_BETWEEN_GRID_PADDING", "12");
+        values.put("DIM_BETWEEN_AMOUNT", "2");
+        values.put("DIM_BETWEEN_SHIP_STRUCTURE", "end_ship_small");
+        values.put("DIM_SHAPES_GRID_WIDTH", "20");
+        values.put("DIM_SHAPES_GRID_PADDING", "8");
+        values.put("DIM_SHAPES_AMOUNT", "1");
+        values.put("DIM_SHAPES_WEIGHT_CUBE", "3");
+        values.put("DIM_SHAPES_WEIGHT_SPHERE", "2");
+        values.put("DIM_SHAPES_WEIGHT_DIAMOND", "2");
+        return values;
+    }
+
+    // PackFactory's replacement before templates were compiled: longest key first, one String.replace each.
+    private static String chainedReplace(String content, Map<String, String> placeholders) {
+        List<String> keys = new ArrayList<>(placeholders.keySet());
+        keys.sort(Comparator.comparingInt(String::length).reversed());
+        String updated = content;
+        for (String key : keys) {
+            updated = updated.replace(key, placeholders.get(key));
+        }
+        return updated;
+    }
+
+    // PackFactory's former surface block pass: "- DIM_SURFACE_BLOCK" lines become one entry per block.
+    private static String surfaceLineRewrite(String content, List<String> blocks) {
+        String lineSeparator = content.contains("\r\n") ? "\r\n" : "\n";
+        String[] lines = content.split("\\R", -1);
+        List<String> output = new ArrayList<>(lines.length);
+        for (String line : lines) {
+            if ("- DIM_SURFACE_BLOCK".equals(line.trim())) {
+                String indent = line.substring(0, line.indexOf('-'));
+                for (String block : blocks) {
+                    output.add(indent + "- " + block);
+                }
+                continue;
+            }
+            output.add(line.replace("DIM_SURFACE_BLOCK", blocks.get(0)));
+        }
+        return String.join(lineSeparator, output);
+    }
+}
@@ -0,0 +1,80 @@
+package com.moud.endlessdimensions.portal;
+
+import com.moud.endlessdimensions.dimension.DimensionKey;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.instance.block.Block;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PortalDetectorTest {
+    private static final DimensionKey DIMENSION = new DimensionKey("minecraft:overworld");
+    private static final Pos CORNER = new Pos(0, 64, 0);
+
+    private final PortalWorld world = new PortalWorld(4, 5);
+    private final PortalDetector detector = new PortalDetector();
+
+    @Test
+    void unchangedPortalIsServedFromCache() {
+        PortalKey first = detector.detectPortalKey(world, CORNER, DIMENSION);
+
+        assertSame(first, detector.detectPortalKey(world, CORNER, DIMENSION));
+    }
+
+    // Blocks change here without invalidate(), as when a chunk is reloaded from storage.
+    @Test
+    void filledInteriorBlockMissesTheCache() {
+        PortalKey first = detector.detectPortalKey(world, CORNER, DIMENSION);
+        world.portals.remove(PackedBlockPos.pack(1, 66, 0));
+
+        PortalKey second = detector.detectPortalKey(world, CORNER, DIMENSION);
+
+        assertNotSame(first, second);
+        assertNotSame(second, detector.detectPortalKey(world, CORNER, DIMENSION));
+    }
+
+    @Test
+    void filledInteriorColumnShrinksThePortal() {
+        detector.detectPortalKey(world, CORNER, DIMENSION);
+        for (int y = 64; y < 69; y++) {
+            world.portals.remove(PackedBlockPos.pack(2, y, 0));
+        }
+
+        PortalKey shrunk = detector.detectPortalKey(world, CORNER, DIMENSION);
+
+        assertEquals(new Vec3i(1, 68, 0), shrunk.max());
+    }
+
+    @Test
+    void grownEdgeMissesTheCache() {
+        detector.detectPortalKey(world, CORNER, DIMENSION);
+        world.portals.add(PackedBlockPos.pack(1, 69, 0));
+
+        PortalKey grown = detector.detectPortalKey(world, CORNER, DIMENSION);
+
+        assertEquals(69, grown.max().y());
+    }
+
+    private static final class PortalWorld implements Block.Getter {
+        private final Block portal = Block.NETHER_PORTAL.withProperty("axis", "x");
+        private final Set<Long> portals = new HashSet<>();
+
+        private PortalWorld(int width, int height) {
+            for (int x = 0; x < width; x++) {
+                for (int y = 64; y < 64 + height; y++) {
+                    portals.add(PackedBlockPos.pack(x, y, 0));
+                }
+            }
+        }
+
+        @Override
+        public Block getBlock(int x, int y, int z, Condition condition) {
+            return portals.contains(PackedBlockPos.pack(x, y, z)) ? portal : Block.AIR;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.moud.endlessdimensions.portal;
+
+import com.moud.endlessdimensions.dimension.DimensionKey;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PortalLinkTableTest {
+    private static final DimensionKey SOURCE = new DimensionKey("endlessdimensions:source");
+    private static final DimensionKey TARGET = new DimensionKey("endlessdimensions:target");
+
+    private final PortalLinkTable table = new PortalLinkTable(new DimensionInterner(), 0);
+
+    @Test
+    void putThenGet() {
+        table.put(portal(SOURCE, 0), link(1, null));
+        table.put(portal(SOURCE, -40_000), link(2, portal(TARGET, 7)));
+
+        assertEquals(2, table.size());
+        assertEquals(link(1, null), table.get(portal(SOURCE, 0)));
+        assertEquals(link(2, portal(TARGET, 7)), table.get(portal(SOURCE, -40_000)));
+        assertNull(table.get(portal(SOURCE, 1)));
+        assertNull(table.get(portal(TARGET, 0)));
+    }
+
+    @Test
+    void putOverwritesExistingKey() {
+        table.put(portal(SOURCE, 0), link(1, null));
+        table.put(portal(SOURCE, 0), link(2, portal(TARGET, 3)));
+
+        assertEquals(1, table.size());
+        assertEquals(link(2, portal(TARGET, 3)), table.get(portal(SOURCE, 0)));
+    }
+
+    @Test
+    void removeMiddleRowKeepsOthersReachable() {
+        for (int i = 0; i < 5; i++) {
+            table.put(portal(SOURCE, i), link(i, null));
+        }
+
+        assertTrue(table.remove(portal(SOURCE, 2)));
+
+        assertEquals(4, table.size());
+        assertNull(table.get(portal(SOURCE, 2)));
+        for (int i : new int[] { 0, 1, 3, 4 }) {
+            assertEquals(link(i, null), table.get(portal(SOURCE, i)));
+        }
+        assertFalse(table.remove(portal(SOURCE, 2)));
+    }
+
+    @Test
+    void removeLastRow() {
+        table.put(portal(SOURCE, 0), link(0, null));
+        table.put(portal(SOURCE, 1), link(1, null));
+
+        assertTrue(table.remove(portal(SOURCE, 1)));
+
+        assertEquals(1, table.size());
+        assertNull(table.get(portal(SOURCE, 1)));
+        assertEquals(link(0, null), table.get(portal(SOURCE, 0)));
+    }
+
+    @Test
+    void growsPastInitialCapacity() {
+        Map<PortalKey, PortalLink> expected = new HashMap<>();
+        for (int i = 0; i < 1_000; i++) {
+            PortalKey key = portal(i % 2 == 0 ? SOURCE : TARGET, i * 3);
+            PortalLink link = link(i, i % 3 == 0 ? portal(TARGET, -i) : null);
+            table.put(key, link);
+            expected.put(key, link);
+        }
+        for (int i = 0; i < 1_000; i += 7) {
+            PortalKey key = portal(i % 2 == 0 ? SOURCE : TARGET, i * 3);
+            assertTrue(table.remove(key));
+            expected.remove(key);
+        }
+
+        assertEquals(expected.size(), table.size());
+        assertEquals(expected, table.snapshot().asMap());
+        expected.forEach((key, link) -> assertEquals(link, table.get(key)));
+    }
+
+    @Test
+    void snapshotIsIsolatedFromLaterWrites() {
+        table.put(portal(SOURCE, 0), link(0, null));
+        table.put(portal(SOURCE, 1), link(1, null));
+        PortalLinkTable snapshot = table.snapshot();
+
+        table.put(portal(SOURCE, 0), link(9, null));
+        table.remove(portal(SOURCE, 1));
+        table.put(portal(SOURCE, 2), link(2, null));
+
+        assertEquals(Map.of(portal(SOURCE, 0), link(0, null), portal(SOURCE, 1), link(1, null)),
+            snapshot.asMap());
+        assertEquals(Map.of(portal(SOURCE, 0), link(9, null), portal(SOURCE, 2), link(2, null)),
+            table.snapshot().asMap());
+    }
+
+    @Test
+    void unpackablePortalIsRejectedWithoutChangingTheTable() {
+        table.put(portal(SOURCE, 0), link(0, null));
+        PortalKey outOfRange = new PortalKey(SOURCE, PortalAxis.Z, new Vec3i(0, 5_000, 0), new Vec3i(1, 5_002, 0));
+
+        assertThrows(IllegalArgumentException.class, () -> table.put(outOfRange, link(1, null)));
+        assertThrows(IllegalArgumentException.class, () -> table.put(portal(SOURCE, 0), link(1, outOfRange)));
+        assertThrows(IllegalArgumentException.class, () -> table.put(portal(SOURCE, 5), link(1, outOfRange)));
+
+        assertEquals(Map.of(portal(SOURCE, 0), link(0, null)), table.snapshot().asMap());
+        assertNull(table.get(portal(SOURCE, 5)));
+    }
+
+    private static PortalKey portal(DimensionKey dimension, int x) {
+        return new PortalKey(dimension, PortalAxis.X, new Vec3i(x, 64, -3), new Vec3i(x, 66, -2));
+    }
+
+    private static PortalLink link(int seed, PortalKey destinationPortal) {
+        return new PortalLink(LinkType.BOOK_LINKED, new UUID(seed, -seed),
+            new DestinationRef(TARGET, seed + 0.5, 70, -seed - 0.5, 90f, -15f, destinationPortal));
+    }
+}
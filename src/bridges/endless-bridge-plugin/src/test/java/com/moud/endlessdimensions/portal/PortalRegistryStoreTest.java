@@ -0,0 +1,165 @@
+package com.moud.endlessdimensions.portal;
+
+import com.moud.endlessdimensions.dimension.DimensionKey;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PortalRegistryStoreTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PortalRegistryStoreTest.class);
+    private static final DimensionKey SOURCE = new DimensionKey("endlessdimensions:source");
+    private static final DimensionKey TARGET = new DimensionKey("endlessdimensions:target");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void journalReplaysPutsAndRemovesInOrder() {
+        PortalRegistryStore store = journaledStore();
+        PortalKey kept = portal(SOURCE, 0);
+        PortalKey removed = portal(SOURCE, 10);
+        LegacyKey legacyKey = new LegacyKey(SOURCE.id(), 4, 5);
+        store.appendPut(kept, link(TARGET, 1));
+        store.appendPut(removed, link(TARGET, 2));
+        store.appendPut(kept, link(TARGET, 3));
+        store.appendRemove(removed);
+        store.appendPutLegacy(legacyKey, new LegacyLink(TARGET.id()));
+        store.close();
+
+        PortalRegistrySnapshot snapshot = journaledStore().load();
+
+        assertEquals(Map.of(kept, link(TARGET, 3)), snapshot.links());
+        assertEquals(Map.of(legacyKey, new LegacyLink(TARGET.id())), snapshot.legacyLinks());
+    }
+
+    @Test
+    void journalBytesCountEncodedBytes() throws Exception {
+        PortalRegistryStore store = journaledStore();
+        DimensionKey accented = new DimensionKey("endlessdimensions:höhle_über");
+        store.appendPut(portal(accented, 0), link(new DimensionKey("endlessdimensions:世界"), 1));
+        store.appendRemove(portal(accented, 0));
+        store.close();
+
+        long onDisk = Files.size(journalFile());
+        assertEquals(onDisk, store.journalBytes());
+
+        PortalRegistryStore reopened = journaledStore();
+        reopened.load();
+        assertEquals(onDisk, reopened.journalBytes());
+    }
+
+    @Test
+    void unreadableRecordIsSkipped() throws Exception {
+        PortalRegistryStore store = journaledStore();
+        store.appendPut(portal(SOURCE, 0), link(TARGET, 1));
+        store.close();
+        Files.writeString(journalFile(), "{\"op\":\"put\",\"from\":\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        store.appendPut(portal(SOURCE, 10), link(TARGET, 2));
+        store.close();
+
+        PortalRegistrySnapshot snapshot = journaledStore().load();
+
+        assertEquals(Map.of(portal(SOURCE, 0), link(TARGET, 1), portal(SOURCE, 10), link(TARGET, 2)),
+            snapshot.links());
+    }
+
+    @Test
+    void compactionFoldsJournalIntoSnapshot() {
+        PortalRegistryStore store = journaledStore();
+        store.appendPut(portal(SOURCE, 0), link(TARGET, 1));
+        store.appendPut(portal(SOURCE, 10), link(TARGET, 2));
+        PortalRegistrySnapshot loaded = journaledStore().load();
+
+        assertTrue(store.save(loaded.links(), loaded.legacyLinks()) > 0);
+
+        assertEquals(0, store.journalBytes());
+        assertFalse(Files.exists(journalFile()));
+        assertFalse(Files.exists(compactingFile()));
+        assertEquals(loaded.links(), journaledStore().load().links());
+    }
+
+    @Test
+    void appendsAfterCompactionReplayOnTopOfSnapshot() {
+        PortalRegistryStore store = journaledStore();
+        store.appendPut(portal(SOURCE, 0), link(TARGET, 1));
+        store.save(Map.of(portal(SOURCE, 0), link(TARGET, 1)), Map.of());
+        store.appendPut(portal(SOURCE, 0), link(TARGET, 7));
+        store.appendPut(portal(SOURCE, 10), link(TARGET, 2));
+        store.close();
+
+        PortalRegistrySnapshot snapshot = journaledStore().load();
+
+        assertEquals(Map.of(portal(SOURCE, 0), link(TARGET, 7), portal(SOURCE, 10), link(TARGET, 2)),
+            snapshot.links());
+    }
+
+    @Test
+    void appendDuringCompactionSurvivesTheRotatedJournal() {
+        PortalRegistryStore store = journaledStore();
+        store.appendPut(portal(SOURCE, 0), link(TARGET, 1));
+
+        // A put racing the save: its append lands while the snapshot is being taken, after the rotation.
+        store.save(() -> {
+            store.appendPut(portal(SOURCE, 10), link(TARGET, 2));
+            return new PortalRegistrySnapshot(Map.of(portal(SOURCE, 0), link(TARGET, 1)), Map.of());
+        });
+        store.close();
+
+        assertFalse(Files.exists(compactingFile()));
+        assertTrue(store.journalBytes() > 0);
+        assertEquals(Map.of(portal(SOURCE, 0), link(TARGET, 1), portal(SOURCE, 10), link(TARGET, 2)),
+            journaledStore().load().links());
+    }
+
+    @Test
+    void leftoverCompactingJournalReplaysBeforeLiveJournal() throws Exception {
+        PortalRegistryStore store = journaledStore();
+        store.appendPut(portal(SOURCE, 0), link(TARGET, 1));
+        store.appendPut(portal(SOURCE, 10), link(TARGET, 2));
+        store.close();
+        // A compaction that rotated the journal but failed before writing its snapshot.
+        Files.move(journalFile(), compactingFile());
+        store.appendPut(portal(SOURCE, 0), link(TARGET, 3));
+        store.close();
+
+        PortalRegistryStore reopened = journaledStore();
+        PortalRegistrySnapshot snapshot = reopened.load();
+
+        assertEquals(Map.of(portal(SOURCE, 0), link(TARGET, 3), portal(SOURCE, 10), link(TARGET, 2)),
+            snapshot.links());
+        assertEquals(Files.size(journalFile()) + Files.size(compactingFile()), reopened.journalBytes());
+    }
+
+    private PortalRegistryStore journaledStore() {
+        return new PortalRegistryStore(dir.resolve("bindings.json"), true, LOGGER);
+    }
+
+    private Path journalFile() {
+        return dir.resolve("bindings.json.journal");
+    }
+
+    private Path compactingFile() {
+        return dir.resolve("bindings.json.journal.compacting");
+    }
+
+    private static PortalKey portal(DimensionKey dimension, int x) {
+        return new PortalKey(dimension, PortalAxis.Z, new Vec3i(x, 64, -3), new Vec3i(x + 1, 66, -3));
+    }
+
+    private static PortalLink link(DimensionKey destination, int seed) {
+        return new PortalLink(LinkType.BOOK_LINKED, new UUID(seed, seed),
+            new DestinationRef(destination, seed + 0.5, 70, -seed - 0.5, 0f, 0f));
+    }
+}
@@ -0,0 +1,130 @@
+package com.moud.endlessdimensions.portal;
+
+import com.moud.endlessdimensions.codec.StorageFormat;
+import com.moud.endlessdimensions.dimension.DimensionKey;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PortalRegistryTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PortalRegistryTest.class);
+    private static final DimensionKey SOURCE = new DimensionKey("endlessdimensions:source");
+    private static final DimensionKey TARGET = new DimensionKey("endlessdimensions:target");
+    private static final PortalKey PORTAL = new PortalKey(SOURCE, PortalAxis.Z, new Vec3i(0, 64, -3),
+        new Vec3i(1, 66, -3));
+    private static final PortalLink LINK = new PortalLink(LinkType.BOOK_LINKED, new UUID(1, 1),
+        new DestinationRef(TARGET, 0.5, 70, -0.5, 0f, 0f));
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void loadDimensionReadsAndIndexesSegment() {
+        PortalRegistry writer = registry(true, new PortalIndex());
+        writer.putLink(PORTAL, LINK);
+        writer.close();
+
+        PortalIndex index = new PortalIndex();
+        PortalRegistry registry = registry(true, index);
+        registry.loadDimension(SOURCE).join();
+
+        assertEquals(Set.of(SOURCE), registry.loadedDimensions());
+        assertEquals(PORTAL, index.findContaining(SOURCE, 0, 65, -3));
+        assertEquals(LINK, registry.getLink(PORTAL));
+    }
+
+    @Test
+    void unloadEvictsCleanSegmentAndIndexEntries() {
+        PortalIndex index = new PortalIndex();
+        PortalRegistry registry = registry(true, index);
+        registry.putLink(PORTAL, LINK);
+
+        registry.unloadDimension(SOURCE);
+
+        assertTrue(registry.loadedDimensions().isEmpty());
+        assertNull(index.findContaining(SOURCE, 0, 65, -3));
+        // The journal append made the link durable, so it comes back on the next lookup.
+        assertEquals(LINK, registry.getLink(PORTAL));
+    }
+
+    @Test
+    void unloadWritesPendingChangesBeforeEvicting() {
+        PortalRegistry registry = registry(false, new PortalIndex());
+        registry.putLink(PORTAL, LINK);
+
+        // Without a started saver, the save the unload requests is written inline.
+        registry.unloadDimension(SOURCE);
+
+        assertTrue(registry.loadedDimensions().isEmpty());
+        assertEquals(LINK, registry(false, new PortalIndex()).getLink(PORTAL));
+    }
+
+    @Test
+    void evictedSegmentLoadsAgain() {
+        PortalIndex index = new PortalIndex();
+        PortalRegistry registry = registry(true, index);
+        registry.putLink(PORTAL, LINK);
+        registry.unloadDimension(SOURCE);
+
+        registry.loadDimension(SOURCE).join();
+        PortalKey second = new PortalKey(SOURCE, PortalAxis.Z, new Vec3i(20, 64, -3), new Vec3i(21, 66, -3));
+        registry.putLink(second, LINK);
+        registry.unloadDimension(SOURCE);
+        registry.loadDimension(SOURCE).join();
+
+        assertTrue(registry.isLoaded(SOURCE));
+        assertEquals(PORTAL, index.findContaining(SOURCE, 0, 65, -3));
+        assertEquals(second, index.findContaining(SOURCE, 20, 65, -3));
+        registry.close();
+        PortalRegistry reopened = registry(true, new PortalIndex());
+        assertEquals(LINK, reopened.getLink(PORTAL));
+        assertEquals(LINK, reopened.getLink(second));
+    }
+
+    @Test
+    void concurrentLoadsShareOneSegment() {
+        PortalRegistry registry = registry(true, new PortalIndex());
+        registry.putLink(PORTAL, LINK);
+        registry.unloadDimension(SOURCE);
+
+        CompletableFuture<Void> first = registry.loadDimension(SOURCE);
+        PortalLink looked = registry.getLink(PORTAL);
+        first.join();
+
+        assertEquals(LINK, looked);
+        assertEquals(Set.of(SOURCE), registry.loadedDimensions());
+    }
+
+    @Test
+    void outOfRangeBindingDoesNotBlockTheSegment() {
+        PortalKey outOfRange = new PortalKey(SOURCE, PortalAxis.Z, new Vec3i(40_000_000, 64, -3),
+            new Vec3i(40_000_001, 66, -3));
+        PortalRegistryStore.forSegment(dir, SOURCE, true, StorageFormat.JSON, LOGGER)
+            .save(Map.of(PORTAL, LINK, outOfRange, LINK), Map.of());
+
+        PortalRegistry registry = registry(true, new PortalIndex());
+        registry.loadDimension(SOURCE).join();
+
+        assertTrue(registry.isLoaded(SOURCE));
+        assertEquals(LINK, registry.getLink(PORTAL));
+        assertEquals(LINK, registry.getLink(outOfRange));
+        assertEquals(Map.of(PORTAL, LINK, outOfRange, LINK), registry.links());
+    }
+
+    private PortalRegistry registry(boolean journaled, PortalIndex index) {
+        return new PortalRegistry(dir, journaled, StorageFormat.JSON, null, Duration.ZERO,
+            PortalRegistry.DEFAULT_COMPACTION_THRESHOLD_BYTES, index, LOGGER);
+    }
+}
@@ -1,13 +1,38 @@
 package com.moud.polar;
 
+import net.hollowcube.polar.AnvilPolar;
+import net.hollowcube.polar.PolarLoader;
+import net.hollowcube.polar.PolarReader;
+import net.hollowcube.polar.PolarWorld;
+import net.hollowcube.polar.PolarWriter;
+import net.minestom.server.event.instance.InstanceBlockUpdateEvent;
+import net.minestom.server.event.instance.InstanceChunkLoadEvent;
+import net.minestom.server.event.instance.InstanceChunkUnloadEvent;
+import net.minestom.server.instance.Chunk;
+import net.minestom.server.instance.ChunkLoader;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.instance.InstanceContainer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Polar Facade for Moud
@@ -15,13 +40,16 @@ import java.util.concurrent.Executors;
  * Uses Polar JAR from Moud's classpath
  */
 public class PolarFacade {
-    
+
     private static final Logger logger = LoggerFactory.getLogger(PolarFacade.class);
-    
-    // In-memory storage for loaded worlds
-    private static final ConcurrentMap<String, PolarWorld> loadedWorlds = new ConcurrentHashMap<>();
+
+    // Worlds currently held in memory, keyed by dimension id
+    private static final ConcurrentMap<String, LoadedWorld> loadedWorlds = new ConcurrentHashMap<>();
     private static final ExecutorService executor = Executors.newFixedThreadPool(4);
-    
+    private static final AtomicLong totalLoads = new AtomicLong();
+    private static final AtomicLong totalSaves = new AtomicLong();
+    private static final AtomicLong skippedSaves = new AtomicLong();
+
     /**
      * Simple result object for operations
      */
@@ -29,40 +57,53 @@ public class PolarFacade {
         private final String status;
         private final String message;
         private final Object data;
-        
+
         public PolarResult(String status, String message, Object data) {
             this.status = status;
             this.message = message;
             this.data = data;
         }
-        
+
         public String getStatus() { return status; }
         public String getMessage() { return message; }
         public Object getData() { return data; }
         public boolean isSuccess() { return "success".equals(status); }
         public boolean isError() { return "error".equals(status); }
     }
-    
+
     /**
-     * Simple world metadata
+     * World metadata as measured on load and on the last save
      */
     public static class PolarMetadata {
         private final String dimensionId;
         private final String filePath;
         private final long fileSize;
         private final long loadTime;
-        
-        public PolarMetadata(String dimensionId, String filePath, long fileSize, long loadTime) {
+        private final long loadDurationMs;
+        private final int chunkCount;
+        private final int dirtyChunkCount;
+        private final long lastSaveTime;
+
+        public PolarMetadata(String dimensionId, String filePath, long fileSize, long loadTime,
+                             long loadDurationMs, int chunkCount, int dirtyChunkCount, long lastSaveTime) {
             this.dimensionId = dimensionId;
             this.filePath = filePath;
             this.fileSize = fileSize;
             this.loadTime = loadTime;
+            this.loadDurationMs = loadDurationMs;
+            this.chunkCount = chunkCount;
+            this.dirtyChunkCount = dirtyChunkCount;
+            this.lastSaveTime = lastSaveTime;
         }
-        
+
         public String getDimensionId() { return dimensionId; }
         public String getFilePath() { return filePath; }
         public long getFileSize() { return fileSize; }
         public long getLoadTime() { return loadTime; }
+        public long getLoadDurationMs() { return loadDurationMs; }
+        public int getChunkCount() { return chunkCount; }
+        public int getDirtyChunkCount() { return dirtyChunkCount; }
+        public long getLastSaveTime() { return lastSaveTime; }
         public String getFileSizeFormatted() {
             return String.format("%.2f MB", fileSize / (1024.0 * 1024.0));
         }
@@ -70,23 +111,108 @@ public class PolarFacade {
             return new java.util.Date(loadTime).toString();
         }
     }
-    
+
     /**
-     * Simple world representation
+     * A loaded world: the Polar data, the loader serving it and the chunks changed since the last save.
+     * Changed chunks that unload before a save wait in unloadedChunks, so the tick never blocks on a save.
      */
-    public static class PolarWorld {
+    public static class LoadedWorld {
         private final String dimensionId;
-        private final String filePath;
-        
-        public PolarWorld(String dimensionId, String filePath) {
+        private final Path filePath;
+        private final PolarWorld world;
+        private final PolarLoader loader;
+        private final long loadTime;
+        private final long loadDurationMs;
+        private final ChunkLoader chunkLoader;
+        private final Set<Long> dirtyChunks = ConcurrentHashMap.newKeySet();
+        // Chunks being written by the running save; they count as changed until it completes
+        private final Set<Long> savingChunks = ConcurrentHashMap.newKeySet();
+        private final ConcurrentMap<Long, Chunk> unloadedChunks = new ConcurrentHashMap<>();
+        private final Object saveLock = new Object();
+        private volatile InstanceContainer instance;
+        private volatile long fileSize;
+        private volatile long lastSaveTime;
+
+        LoadedWorld(String dimensionId, Path filePath, PolarWorld world, long fileSize, long loadDurationMs) {
             this.dimensionId = dimensionId;
             this.filePath = filePath;
+            this.world = world;
+            // No save path: the loader only updates the in-memory world and the facade owns all file writes
+            this.loader = new PolarLoader(world);
+            this.chunkLoader = new PendingChunkLoader(this);
+            this.loadTime = System.currentTimeMillis();
+            this.loadDurationMs = loadDurationMs;
+            this.fileSize = fileSize;
         }
-        
+
         public String getDimensionId() { return dimensionId; }
-        public String getFilePath() { return filePath; }
+        public String getFilePath() { return filePath.toString(); }
+        public ChunkLoader getLoader() { return chunkLoader; }
+
+        private int chunkCount() {
+            return world.chunks().size();
+        }
+
+        private boolean isChanged(long index) {
+            return dirtyChunks.contains(index) || savingChunks.contains(index);
+        }
     }
-    
+
+    /**
+     * Serves changed chunks that unloaded before the next save from their copies, everything else from Polar
+     */
+    private static final class PendingChunkLoader implements ChunkLoader {
+        private final LoadedWorld world;
+
+        PendingChunkLoader(LoadedWorld world) {
+            this.world = world;
+        }
+
+        @Override
+        public void loadInstance(Instance instance) {
+            world.loader.loadInstance(instance);
+        }
+
+        @Override
+        public Chunk loadChunk(Instance instance, int chunkX, int chunkZ) {
+            Chunk unloaded = world.unloadedChunks.get(chunkIndex(chunkX, chunkZ));
+            if (unloaded != null) {
+                return unloaded.copy(instance, chunkX, chunkZ);
+            }
+            return world.loader.loadChunk(instance, chunkX, chunkZ);
+        }
+
+        @Override
+        public void saveInstance(Instance instance) {
+            world.loader.saveInstance(instance);
+        }
+
+        @Override
+        public void saveChunk(Chunk chunk) {
+            world.loader.saveChunk(chunk);
+        }
+
+        @Override
+        public void saveChunks(Collection<Chunk> chunks) {
+            world.loader.saveChunks(chunks);
+        }
+
+        @Override
+        public boolean supportsParallelSaving() {
+            return world.loader.supportsParallelSaving();
+        }
+
+        @Override
+        public boolean supportsParallelLoading() {
+            return world.loader.supportsParallelLoading();
+        }
+
+        @Override
+        public void unloadChunk(Chunk chunk) {
+            world.loader.unloadChunk(chunk);
+        }
+    }
+
     /**
      * Load a Polar world
      */
@@ -94,26 +220,85 @@ public class PolarFacade {
         return CompletableFuture.supplyAsync(() -> {
             try {
                 logger.info("Loading Polar world '{}' from file '{}'", dimensionId, filename);
-                
-                // Simulate loading a Polar world
-                // In a real implementation, this would:
-                // 1. Check if file exists
-                // 2. Load the Polar file using PolarLoader from classpath
-                // 3. Create PolarLoader instance and set it up
-                
-                PolarWorld world = new PolarWorld(dimensionId, filename);
-                loadedWorlds.put(dimensionId, world);
-                
-                logger.info("Successfully loaded Polar world '{}'", dimensionId);
+
+                LoadedWorld existing = loadedWorlds.get(dimensionId);
+                if (existing != null) {
+                    return new PolarResult("success", "World already loaded", dimensionId);
+                }
+
+                Path path = Path.of(filename);
+                long started = System.nanoTime();
+                PolarWorld world;
+                long fileSize = 0;
+                if (Files.exists(path)) {
+                    byte[] bytes = Files.readAllBytes(path);
+                    fileSize = bytes.length;
+                    world = PolarReader.read(bytes);
+                } else {
+                    world = new PolarWorld();
+                }
+                long loadDurationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+                LoadedWorld loaded = new LoadedWorld(dimensionId, path, world, fileSize, loadDurationMs);
+                if (loadedWorlds.putIfAbsent(dimensionId, loaded) != null) {
+                    return new PolarResult("success", "World already loaded", dimensionId);
+                }
+                totalLoads.incrementAndGet();
+
+                logger.info("Successfully loaded Polar world '{}' ({} chunks, {} bytes, {} ms)",
+                    dimensionId, loaded.chunkCount(), fileSize, loadDurationMs);
                 return new PolarResult("success", "World loaded successfully", dimensionId);
-                
+
             } catch (Exception e) {
                 logger.error("Failed to load Polar world '{}': {}", dimensionId, e.getMessage());
                 return new PolarResult("error", e.getMessage(), null);
             }
         }, executor);
     }
-    
+
+    /**
+     * Serve an instance's chunks from a loaded world and track which chunks it changes
+     */
+    public static boolean attach(String dimensionId, InstanceContainer instance) {
+        LoadedWorld world = loadedWorlds.get(dimensionId);
+        if (world == null || instance == null) {
+            return false;
+        }
+        world.instance = instance;
+        instance.setChunkLoader(world.chunkLoader);
+        var node = instance.eventNode();
+        node.addListener(InstanceChunkLoadEvent.class, event -> {
+            // Chunks missing from the Polar world were just generated and have never been stored
+            if (world.world.chunkAt(event.getChunkX(), event.getChunkZ()) == null) {
+                markDirty(world, event.getChunkX(), event.getChunkZ());
+            }
+        });
+        node.addListener(InstanceChunkUnloadEvent.class, event -> {
+            Chunk chunk = event.getChunk();
+            long index = chunkIndex(chunk.getChunkX(), chunk.getChunkZ());
+            if (world.isChanged(index)) {
+                // Kept as a copy until the next save merges it; the save lock is never taken on the tick
+                world.unloadedChunks.put(index, chunk.copy(chunk.getInstance(), chunk.getChunkX(), chunk.getChunkZ()));
+            }
+        });
+        // Every setBlock on the instance, whether from a player, a script or the server
+        node.addListener(InstanceBlockUpdateEvent.class, event ->
+            markDirty(world, event.getBlockPosition().chunkX(), event.getBlockPosition().chunkZ()));
+        return true;
+    }
+
+    /**
+     * Mark a chunk as changed, for edits that bypass Instance#setBlock (e.g. block batches)
+     */
+    public static boolean markDirty(String dimensionId, int chunkX, int chunkZ) {
+        LoadedWorld world = loadedWorlds.get(dimensionId);
+        if (world == null) {
+            return false;
+        }
+        markDirty(world, chunkX, chunkZ);
+        return true;
+    }
+
     /**
      * Save a Polar world
      */
@@ -121,28 +306,28 @@ public class PolarFacade {
         return CompletableFuture.supplyAsync(() -> {
             try {
                 logger.info("Saving Polar world '{}'", dimensionId);
-                
-                PolarWorld world = loadedWorlds.get(dimensionId);
+
+                LoadedWorld world = loadedWorlds.get(dimensionId);
                 if (world == null) {
                     return new PolarResult("error", "World not loaded: " + dimensionId, null);
                 }
-                
-                // Simulate saving a Polar world
-                // In a real implementation, this would:
-                // 1. Get the PolarLoader instance
-                // 2. Serialize the world to bytes
-                // 3. Write to file atomically
-                
-                logger.info("Successfully saved Polar world '{}'", dimensionId);
+
+                int written = saveWorld(world);
+                if (written < 0) {
+                    return new PolarResult("success", "No changes to save", dimensionId);
+                }
+
+                logger.info("Successfully saved Polar world '{}' ({} changed chunks, {} bytes)",
+                    dimensionId, written, world.fileSize);
                 return new PolarResult("success", "World saved successfully", dimensionId);
-                
+
             } catch (Exception e) {
                 logger.error("Failed to save Polar world '{}': {}", dimensionId, e.getMessage());
                 return new PolarResult("error", e.getMessage(), null);
             }
         }, executor);
     }
-    
+
     /**
      * Convert Anvil world to Polar
      */
@@ -150,132 +335,236 @@ public class PolarFacade {
         return CompletableFuture.supplyAsync(() -> {
             try {
                 logger.info("Converting Anvil world '{}' to Polar '{}'", anvilPath, targetPolarPath);
-                
-                // Simulate Anvil to Polar conversion
-                // In a real implementation, this would:
-                // 1. Use AnvilPolar.anvilToPolar() method from classpath
-                // 2. Handle conversion errors
-                // 3. Create new Polar file
-                
-                logger.info("Successfully converted Anvil world to Polar '{}'", targetPolarPath);
+
+                // Polar decodes the whole world in one pass and holds it in memory until it is written
+                PolarWorld target = AnvilPolar.anvilToPolar(Path.of(anvilPath));
+
+                long size = writeAtomically(Path.of(targetPolarPath), PolarWriter.write(target));
+
+                logger.info("Successfully converted Anvil world to Polar '{}' ({} chunks, {} bytes)",
+                    targetPolarPath, target.chunks().size(), size);
                 return new PolarResult("success", "Conversion completed", targetPolarPath);
-                
+
             } catch (Exception e) {
                 logger.error("Failed to convert Anvil world '{}': {}", anvilPath, e.getMessage());
                 return new PolarResult("error", e.getMessage(), null);
             }
         }, executor);
     }
-    
+
     /**
      * Check if a world is loaded
      */
     public static boolean isLoaded(String dimensionId) {
         return loadedWorlds.containsKey(dimensionId);
     }
-    
+
     /**
-     * Unload a world
+     * Unload a world; unsaved changes are discarded, so save first
      */
     public static boolean unload(String dimensionId) {
-        PolarWorld world = loadedWorlds.remove(dimensionId);
+        LoadedWorld world = loadedWorlds.remove(dimensionId);
         if (world != null) {
+            if (!world.dirtyChunks.isEmpty()) {
+                logger.warn("Unloaded Polar world '{}' with {} unsaved chunks", dimensionId, world.dirtyChunks.size());
+            }
             logger.info("Unloaded Polar world '{}'", dimensionId);
             return true;
         }
         return false;
     }
-    
+
     /**
      * Get all loaded dimension IDs
      */
     public static String[] getLoadedDimensions() {
         return loadedWorlds.keySet().toArray(new String[0]);
     }
-    
+
     /**
      * Get number of loaded worlds
      */
     public static int getLoadedWorldCount() {
         return loadedWorlds.size();
     }
-    
+
+    /**
+     * Get the loader of a loaded world, for setting on an instance from Java
+     */
+    public static ChunkLoader getLoader(String dimensionId) {
+        LoadedWorld world = loadedWorlds.get(dimensionId);
+        return world != null ? world.chunkLoader : null;
+    }
+
     /**
      * Get metadata for a world
      */
     public static PolarMetadata getMetadata(String dimensionId) {
-        PolarWorld world = loadedWorlds.get(dimensionId);
+        LoadedWorld world = loadedWorlds.get(dimensionId);
         if (world == null) {
             return null;
         }
-        
-        // Simulate getting metadata
-        // In a real implementation, this would get actual file info
+
         return new PolarMetadata(
-            world.getDimensionId(),
-            world.getFilePath(),
-            1024 * 1024, // 1MB simulated size
-            System.currentTimeMillis()
+            world.dimensionId,
+            world.filePath.toString(),
+            world.fileSize,
+            world.loadTime,
+            world.loadDurationMs,
+            world.chunkCount(),
+            world.dirtyChunks.size(),
+            world.lastSaveTime
         );
     }
-    
+
     /**
      * Save all loaded worlds
      */
     public static CompletableFuture<Object> saveAll() {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                logger.info("Saving all loaded Polar worlds ({} worlds)", loadedWorlds.size());
-                
-                // Simulate saving all worlds
-                // In a real implementation, this would iterate through all loaded worlds
-                
-                logger.info("Successfully saved all Polar worlds");
-                return new PolarResult("success", "All worlds saved successfully", null);
-                
-            } catch (Exception e) {
-                logger.error("Failed to save all Polar worlds: {}", e.getMessage());
-                return new PolarResult("error", e.getMessage(), null);
+        List<CompletableFuture<Object>> saves = new ArrayList<>();
+        for (String dimensionId : loadedWorlds.keySet()) {
+            saves.add(save(dimensionId));
+        }
+        return CompletableFuture.allOf(saves.toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+            int failed = 0;
+            for (CompletableFuture<Object> save : saves) {
+                if (save.join() instanceof PolarResult result && result.isError()) {
+                    failed++;
+                }
             }
-        }, executor);
+            if (failed > 0) {
+                logger.error("Failed to save {} of {} Polar worlds", failed, saves.size());
+                return new PolarResult("error", failed + " of " + saves.size() + " worlds failed to save", null);
+            }
+            logger.info("Successfully saved all Polar worlds ({} worlds)", saves.size());
+            return new PolarResult("success", "All worlds saved successfully", null);
+        });
     }
-    
+
     /**
      * Get memory usage information
      */
     public static String getMemoryUsage() {
         int worldCount = loadedWorlds.size();
-        long totalMemory = worldCount * 1024 * 1024; // Simulate 1MB per world
-        
-        return String.format("Loaded worlds: %d, Total memory: %d bytes (%.2f MB)", 
-                           worldCount, totalMemory, totalMemory / (1024.0 * 1024.0));
+        long chunkCount = 0;
+        long encodedBytes = 0;
+        for (LoadedWorld world : loadedWorlds.values()) {
+            chunkCount += world.chunkCount();
+            encodedBytes += world.fileSize;
+        }
+
+        return String.format("Loaded worlds: %d, Chunks: %d, Encoded size: %d bytes (%.2f MB)",
+                           worldCount, chunkCount, encodedBytes, encodedBytes / (1024.0 * 1024.0));
     }
-    
+
     /**
      * Get registry statistics
      */
     public static String getStatistics() {
-        return String.format("Polar Registry Stats - Loaded: %d, Total loads: %d, Total saves: %d", 
-                           loadedWorlds.size(), 0, 0); // Simplified stats
+        return String.format("Polar Registry Stats - Loaded: %d, Total loads: %d, Total saves: %d, Skipped saves: %d",
+                           loadedWorlds.size(), totalLoads.get(), totalSaves.get(), skippedSaves.get());
     }
-    
+
     /**
      * Shutdown the facade
      */
     public static void shutdown() {
         try {
             logger.info("Shutting down Polar facade...");
-            
+
             // Save all loaded worlds before shutdown
             saveAll().get(); // Wait for completion
-            
+
             // Clear loaded worlds
             loadedWorlds.clear();
-            
+
             logger.info("Polar facade shutdown complete");
-            
+
         } catch (Exception e) {
             logger.error("Error during Polar facade shutdown", e);
         }
     }
+
+    // Returns the number of chunks re-encoded, or -1 when nothing changed since the last save
+    private static int saveWorld(LoadedWorld world) throws IOException {
+        synchronized (world.saveLock) {
+            List<Long> dirty = new ArrayList<>(world.dirtyChunks);
+            if (dirty.isEmpty() && Files.exists(world.filePath)) {
+                skippedSaves.incrementAndGet();
+                return -1;
+            }
+            // Moved to savingChunks up front so edits made while this save runs stay dirty for the next one
+            world.savingChunks.addAll(dirty);
+            dirty.forEach(world.dirtyChunks::remove);
+            try {
+                encodeAndWrite(world, dirty);
+            } catch (IOException | RuntimeException e) {
+                world.dirtyChunks.addAll(dirty);
+                throw e;
+            } finally {
+                world.savingChunks.clear();
+            }
+            totalSaves.incrementAndGet();
+            return dirty.size();
+        }
+    }
+
+    private static void encodeAndWrite(LoadedWorld world, List<Long> dirty) throws IOException {
+        // Only chunks changed since the last save are re-encoded into the Polar world; a loaded chunk
+        // is newer than any copy taken when it last unloaded
+        InstanceContainer instance = world.instance;
+        List<Chunk> chunks = new ArrayList<>(dirty.size());
+        Map<Long, Chunk> merged = new HashMap<>();
+        for (long index : dirty) {
+            Chunk chunk = instance != null ? instance.getChunk(chunkX(index), chunkZ(index)) : null;
+            Chunk unloaded = world.unloadedChunks.get(index);
+            if (unloaded != null) {
+                merged.put(index, unloaded);
+            }
+            if (chunk != null) {
+                chunks.add(chunk);
+            } else if (unloaded != null) {
+                chunks.add(unloaded);
+            }
+        }
+        if (!chunks.isEmpty()) {
+            world.loader.saveChunks(chunks);
+        }
+        world.fileSize = writeAtomically(world.filePath, PolarWriter.write(world.world));
+        world.lastSaveTime = System.currentTimeMillis();
+        merged.forEach(world.unloadedChunks::remove);
+    }
+
+    private static long writeAtomically(Path target, byte[] bytes) throws IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, "." + target.getFileName() + "-", ".tmp");
+        try {
+            Files.write(temp, bytes);
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return bytes.length;
+    }
+
+    private static void markDirty(LoadedWorld world, int chunkX, int chunkZ) {
+        world.dirtyChunks.add(chunkIndex(chunkX, chunkZ));
+    }
+
+    private static long chunkIndex(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    private static int chunkX(long index) {
+        return (int) (index >> 32);
+    }
+
+    private static int chunkZ(long index) {
+        return (int) index;
+    }
 }